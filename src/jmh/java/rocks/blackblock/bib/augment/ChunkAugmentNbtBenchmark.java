@@ -0,0 +1,300 @@
+package rocks.blackblock.bib.augment;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.Chunk;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import rocks.blackblock.bib.collection.ConcurrentChunkMap;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the old & new way of (de)serializing the chunk-NBT augments of a single chunk.
+ * <p>
+ * Serializing either asks the cache of every registered key (one striped lookup per key)
+ * and creates the id string each time, or visits only the instances attached to the chunk
+ * and uses the precomputed id strings.
+ * Deserializing either uses {@code getCompound()} with a fresh id string
+ * (which creates an empty compound for every missing key),
+ * or {@code get()} with the precomputed id strings.
+ * <p>
+ * Both write & read real NbtCompounds through a stub {@link Augment.PerChunk}.
+ * Creating worlds & chunks is not possible outside a server,
+ * so the caches are modelled with the same ConcurrentChunkMap the augment caches use.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChunkAugmentNbtBenchmark {
+
+    // The amount of chunk augment keys that store their data in the chunk NBT
+    @Param({"4", "16"})
+    public int key_count;
+
+    // The percentage of chunks that have an instance of a given key
+    @Param({"10", "100"})
+    public int attached_percentage;
+
+    // The loaded chunks: a 41x41 square
+    private static final int RADIUS = 20;
+
+    // The ids of the keys, and their precomputed strings
+    private Identifier[] ids;
+    private String[] id_strings;
+
+    // The per-key caches (the old approach)
+    private ConcurrentChunkMap<StubAugment>[] key_caches;
+
+    // The attached instances of each chunk (the new approach)
+    private ConcurrentChunkMap<Attached[]> attached_instances;
+
+    // The instances to deserialize into, one per key
+    private StubAugment[] readers;
+
+    // The chunks to serialize, and their serialized NBT
+    private long[] chunk_keys;
+    private NbtCompound[] chunk_nbts;
+    private int chunk_index = 0;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+
+        Random random = new Random(42);
+
+        this.ids = new Identifier[this.key_count];
+        this.id_strings = new String[this.key_count];
+        this.key_caches = new ConcurrentChunkMap[this.key_count];
+        this.attached_instances = new ConcurrentChunkMap<>();
+        this.readers = new StubAugment[this.key_count];
+
+        for (int i = 0; i < this.key_count; i++) {
+            this.ids[i] = Identifier.of("bib", "augment_" + i);
+            this.id_strings[i] = this.ids[i].toString();
+            this.key_caches[i] = new ConcurrentChunkMap<>();
+            this.readers[i] = new StubAugment(0);
+        }
+
+        int size = (RADIUS * 2 + 1) * (RADIUS * 2 + 1);
+        this.chunk_keys = new long[size];
+        this.chunk_nbts = new NbtCompound[size];
+        int index = 0;
+
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int z = -RADIUS; z <= RADIUS; z++) {
+                long chunk_key = ChunkPos.toLong(x, z);
+                Attached[] attached = new Attached[0];
+
+                for (int i = 0; i < this.key_count; i++) {
+
+                    if (random.nextInt(100) >= this.attached_percentage) {
+                        continue;
+                    }
+
+                    StubAugment instance = new StubAugment(random.nextInt());
+                    this.key_caches[i].put(chunk_key, instance);
+
+                    attached = Arrays.copyOf(attached, attached.length + 1);
+                    attached[attached.length - 1] = new Attached(this.id_strings[i], instance);
+                }
+
+                if (attached.length > 0) {
+                    this.attached_instances.put(chunk_key, attached);
+                }
+
+                this.chunk_keys[index] = chunk_key;
+                this.chunk_nbts[index] = this.writeAttached(chunk_key);
+                index++;
+            }
+        }
+    }
+
+    private int nextChunk() {
+
+        int index = this.chunk_index++;
+
+        if (this.chunk_index == this.chunk_keys.length) {
+            this.chunk_index = 0;
+        }
+
+        return index;
+    }
+
+    @Benchmark
+    public NbtCompound serializeEveryKey() {
+
+        long chunk_key = this.chunk_keys[this.nextChunk()];
+        NbtCompound target_nbt = new NbtCompound();
+        NbtCompound chunk_augments_nbt = null;
+
+        for (int i = 0; i < this.key_count; i++) {
+            StubAugment instance = this.key_caches[i].get(chunk_key);
+
+            if (instance == null) {
+                continue;
+            }
+
+            instance.setDirty(false);
+            NbtCompound augment_nbt = instance.writeToNbt(new NbtCompound(), null);
+
+            if (chunk_augments_nbt == null) {
+                chunk_augments_nbt = new NbtCompound();
+            }
+
+            chunk_augments_nbt.put(this.ids[i].toString(), augment_nbt);
+        }
+
+        if (chunk_augments_nbt != null) {
+            target_nbt.put("BlackBlockAugments", chunk_augments_nbt);
+        }
+
+        return target_nbt;
+    }
+
+    @Benchmark
+    public NbtCompound serializeAttached() {
+        return this.writeAttached(this.chunk_keys[this.nextChunk()]);
+    }
+
+    private NbtCompound writeAttached(long chunk_key) {
+
+        NbtCompound target_nbt = new NbtCompound();
+        Attached[] attached = this.attached_instances.get(chunk_key);
+
+        if (attached == null || attached.length == 0) {
+            return target_nbt;
+        }
+
+        NbtCompound chunk_augments_nbt = new NbtCompound();
+
+        for (Attached entry : attached) {
+            entry.instance().setDirty(false);
+            chunk_augments_nbt.put(entry.id_string(), entry.instance().writeToNbt(new NbtCompound(), null));
+        }
+
+        target_nbt.put("BlackBlockAugments", chunk_augments_nbt);
+
+        return target_nbt;
+    }
+
+    @Benchmark
+    public int deserializeWithGetCompound() {
+
+        NbtCompound source_nbt = this.chunk_nbts[this.nextChunk()];
+        NbtCompound chunk_augments_nbt = source_nbt.getCompound("BlackBlockAugments");
+        int read = 0;
+
+        if (chunk_augments_nbt.isEmpty()) {
+            return read;
+        }
+
+        for (int i = 0; i < this.key_count; i++) {
+            NbtCompound augment_nbt = chunk_augments_nbt.getCompound(this.ids[i].toString());
+
+            if (augment_nbt.isEmpty()) {
+                continue;
+            }
+
+            this.readers[i].readFromNbt(augment_nbt, null);
+            read++;
+        }
+
+        return read;
+    }
+
+    @Benchmark
+    public int deserializeWithIdStrings() {
+
+        NbtCompound source_nbt = this.chunk_nbts[this.nextChunk()];
+        int read = 0;
+
+        if (!(source_nbt.get("BlackBlockAugments") instanceof NbtCompound chunk_augments_nbt) || chunk_augments_nbt.isEmpty()) {
+            return read;
+        }
+
+        for (int i = 0; i < this.key_count; i++) {
+
+            if (!(chunk_augments_nbt.get(this.id_strings[i]) instanceof NbtCompound augment_nbt) || augment_nbt.isEmpty()) {
+                continue;
+            }
+
+            this.readers[i].readFromNbt(augment_nbt, null);
+            read++;
+        }
+
+        return read;
+    }
+
+    /**
+     * An instance attached to a chunk, with the id string of its key
+     *
+     * @since    0.2.0
+     */
+    private record Attached(String id_string, StubAugment instance) {}
+
+    /**
+     * A chunk augment with a bit of data to (de)serialize
+     *
+     * @since    0.2.0
+     */
+    private static class StubAugment implements Augment.PerChunk {
+
+        private Chunk chunk = null;
+        private boolean dirty = false;
+        private int value;
+        private long last_changed;
+        private String owner;
+
+        private StubAugment(int value) {
+            this.value = value;
+            this.last_changed = value * 31L;
+            this.owner = "player_" + (value & 0xFF);
+        }
+
+        @Override
+        public void setDirty(boolean dirty) {
+            this.dirty = dirty;
+        }
+
+        @Override
+        public boolean isDirty() {
+            return this.dirty;
+        }
+
+        @Override
+        public void readFromNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup registryLookup) {
+            this.value = nbt.getInt("value");
+            this.last_changed = nbt.getLong("last_changed");
+            this.owner = nbt.getString("owner");
+        }
+
+        @Override
+        public NbtCompound writeToNbt(@NotNull NbtCompound nbt, RegistryWrapper.WrapperLookup registryLookup) {
+            nbt.putInt("value", this.value);
+            nbt.putLong("last_changed", this.last_changed);
+            nbt.putString("owner", this.owner);
+            return nbt;
+        }
+
+        @Override
+        public void setChunk(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public Chunk getChunk() {
+            return this.chunk;
+        }
+    }
+}
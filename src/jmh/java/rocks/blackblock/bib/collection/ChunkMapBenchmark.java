@@ -0,0 +1,100 @@
+package rocks.blackblock.bib.collection;
+
+import net.minecraft.util.math.ChunkPos;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the ChunkPos-keyed ChunkMap with the packed LongChunkMap:
+ * lookups of loaded & missing chunks, and iterating over all entries
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChunkMapBenchmark {
+
+    // The view distance: the maps contain (2 * radius + 1)^2 chunks
+    @Param({"10", "32"})
+    public int radius;
+
+    private ChunkMap<Object> chunk_map;
+    private LongChunkMap<Object> long_chunk_map;
+
+    // The positions to look up, about 3/4 of them are missing
+    private int[] lookup_x;
+    private int[] lookup_z;
+    private int lookup_index = 0;
+
+    @Setup
+    public void setup() {
+
+        int size = (this.radius * 2 + 1) * (this.radius * 2 + 1);
+        this.chunk_map = new ChunkMap<>(size);
+        this.long_chunk_map = new LongChunkMap<>(size);
+
+        for (int x = -this.radius; x <= this.radius; x++) {
+            for (int z = -this.radius; z <= this.radius; z++) {
+                Object value = new Object();
+                this.chunk_map.put(new ChunkPos(x, z), value);
+                this.long_chunk_map.put(ChunkPos.toLong(x, z), value);
+            }
+        }
+
+        this.lookup_x = new int[1024];
+        this.lookup_z = new int[1024];
+
+        Random random = new Random(42);
+
+        for (int i = 0; i < this.lookup_x.length; i++) {
+            this.lookup_x[i] = random.nextInt(this.radius * 4 + 1) - this.radius * 2;
+            this.lookup_z[i] = random.nextInt(this.radius * 4 + 1) - this.radius * 2;
+        }
+    }
+
+    private int nextLookup() {
+        return this.lookup_index++ & (this.lookup_x.length - 1);
+    }
+
+    @Benchmark
+    public Object getChunkMap() {
+        int i = this.nextLookup();
+        return this.chunk_map.get(new ChunkPos(this.lookup_x[i], this.lookup_z[i]));
+    }
+
+    @Benchmark
+    public Object getLongChunkMap() {
+        int i = this.nextLookup();
+        return this.long_chunk_map.get(this.lookup_x[i], this.lookup_z[i]);
+    }
+
+    @Benchmark
+    public Object getLongChunkMapWithChunkPos() {
+        int i = this.nextLookup();
+        return this.long_chunk_map.get(new ChunkPos(this.lookup_x[i], this.lookup_z[i]));
+    }
+
+    @Benchmark
+    public void iterateChunkMap(Blackhole blackhole) {
+        this.chunk_map.forEach((chunk_pos, value) -> {
+            blackhole.consume(chunk_pos.x);
+            blackhole.consume(value);
+        });
+    }
+
+    @Benchmark
+    public void iterateLongChunkMap(Blackhole blackhole) {
+        this.long_chunk_map.forEachPacked((chunk_key, value) -> {
+            blackhole.consume(ChunkPos.getPackedX(chunk_key));
+            blackhole.consume(value);
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package rocks.blackblock.bib.collection;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the boxed RollingAverage with the primitive variants:
+ * adding a sample & reading the average, like BibPerf does every tick
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RollingAverageBenchmark {
+
+    @Param({"20", "1200"})
+    public int buffer_size;
+
+    private RollingAverage<Float> boxed_average;
+    private FloatRollingAverage float_average;
+    private DoubleRollingAverage double_average;
+
+    // The samples, so generating them is not part of the measurement
+    private final float[] samples = new float[1024];
+    private int sample_index = 0;
+
+    @Setup
+    public void setup() {
+        this.boxed_average = new RollingAverage<>(this.buffer_size);
+        this.float_average = new FloatRollingAverage(this.buffer_size);
+        this.double_average = new DoubleRollingAverage(this.buffer_size);
+
+        for (int i = 0; i < this.samples.length; i++) {
+            this.samples[i] = 20f + (float) Math.sin(i) * 15f;
+        }
+
+        // Fill the windows first
+        for (int i = 0; i < this.buffer_size; i++) {
+            float sample = this.nextSample();
+            this.boxed_average.addValue(sample);
+            this.float_average.addValue(sample);
+            this.double_average.addValue(sample);
+        }
+    }
+
+    private float nextSample() {
+        return this.samples[this.sample_index++ & (this.samples.length - 1)];
+    }
+
+    @Benchmark
+    public double boxed() {
+        this.boxed_average.addValue(this.nextSample());
+        return this.boxed_average.getAverage();
+    }
+
+    @Benchmark
+    public double primitiveFloat() {
+        this.float_average.addValue(this.nextSample());
+        return this.float_average.getAverage();
+    }
+
+    @Benchmark
+    public double primitiveDouble() {
+        this.double_average.addValue(this.nextSample());
+        return this.double_average.getAverage();
+    }
+
+    @Benchmark
+    public double primitiveFloatWithStatistics() {
+        this.float_average.addValue(this.nextSample());
+        return this.float_average.getAverage() + this.float_average.getStandardDeviation() + this.float_average.getMin() + this.float_average.getMax();
+    }
+}
@@ -0,0 +1,84 @@
+package rocks.blackblock.bib.runnable;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare Pledge with CompletableFuture:
+ * synchronous chains, blocking on a result completed by another thread,
+ * and async stages running on an executor
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PledgeBenchmark {
+
+    // The other thread completing the results
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PledgeBenchmark-Worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Integer pledgeChain() throws Exception {
+        Pledge<Integer> pledge = new Pledge<>();
+        Pledge<Integer> result = pledge.thenApply(value -> value + 1).thenApply(value -> value * 2).thenApply(value -> value - 1);
+        pledge.resolve(1);
+        return result.get();
+    }
+
+    @Benchmark
+    public Integer futureChain() throws Exception {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        CompletableFuture<Integer> result = future.thenApply(value -> value + 1).thenApply(value -> value * 2).thenApply(value -> value - 1);
+        future.complete(1);
+        return result.get();
+    }
+
+    @Benchmark
+    public Integer pledgeBlockingGet() throws Exception {
+        Pledge<Integer> pledge = new Pledge<>();
+        this.executor.execute(() -> pledge.resolve(1));
+        return pledge.get();
+    }
+
+    @Benchmark
+    public Integer futureBlockingGet() throws Exception {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        this.executor.execute(() -> future.complete(1));
+        return future.get();
+    }
+
+    @Benchmark
+    public Integer pledgeAsyncStage() throws Exception {
+        Pledge<Integer> pledge = Pledge.resolved(1);
+        return pledge.thenApplyAsync(value -> value + 1, this.executor).get();
+    }
+
+    @Benchmark
+    public Integer futureAsyncStage() throws Exception {
+        CompletableFuture<Integer> future = CompletableFuture.completedFuture(1);
+        return future.thenApplyAsync(value -> value + 1, this.executor).get();
+    }
+}
@@ -9,11 +9,15 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 import rocks.blackblock.bib.augment.AugmentManager;
+import rocks.blackblock.bib.augment.AugmentProfiler;
 import rocks.blackblock.bib.bv.operator.BvOperators;
 import rocks.blackblock.bib.bv.parameter.MapParameter;
+import rocks.blackblock.bib.command.CommandCreator;
 import rocks.blackblock.bib.config.Config;
 import rocks.blackblock.bib.debug.rendering.shapes.payload.DebugShapesPayload;
 import rocks.blackblock.bib.interop.BibInterop;
+import rocks.blackblock.bib.monitor.ErrorAggregator;
+import rocks.blackblock.bib.monitor.SpanTracer;
 import rocks.blackblock.bib.platform.FabricPlatform;
 import rocks.blackblock.bib.platform.Platform;
 import rocks.blackblock.bib.tweaks.TweaksConfiguration;
@@ -49,6 +53,15 @@ public class BibMod implements ModInitializer {
 		CommandRegistrationCallback.EVENT.register(BibServer::setCommandCanBeRegistered);
 		BibPerf.start();
 
+		// Augment timings are available under `/blackblock perf augments`
+		AugmentProfiler.addToCommandLeaf(CommandCreator.getBlackblockRoot().getChild("perf"));
+
+		// Error statistics are available under `/blackblock perf errors`
+		ErrorAggregator.addToCommandLeaf(CommandCreator.getBlackblockRoot().getChild("perf"));
+
+		// Recent slow transactions are available under `/blackblock perf traces`
+		SpanTracer.addToCommandLeaf(CommandCreator.getBlackblockRoot().getChild("perf"));
+
 		// Initialize the augments when everything has registered
 		BibServer.withReadyServer(minecraftServer -> {
 			AugmentManager.initialize();
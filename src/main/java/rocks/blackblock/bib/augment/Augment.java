@@ -138,6 +138,26 @@ public interface Augment {
         return BibMod.getDynamicRegistry();
     }
 
+    /**
+     * Get the tick priority of this augment:
+     * it decides how much its ticking can be stretched when the world is busy
+     *
+     * @since    0.2.0
+     */
+    default AugmentTickScheduler.Priority getTickPriority() {
+        return AugmentTickScheduler.Priority.NORMAL;
+    }
+
+    /**
+     * Get the desired tick interval of this augment (in ticks).
+     * Instances with the same interval are spread over that many ticks.
+     *
+     * @since    0.2.0
+     */
+    default int getTickInterval() {
+        return 1;
+    }
+
     /**
      * A global augment: only one instance of this augment exists.
      *
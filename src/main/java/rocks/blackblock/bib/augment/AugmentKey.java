@@ -1,6 +1,7 @@
 package rocks.blackblock.bib.augment;
 
 
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.item.ItemConvertible;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
@@ -14,14 +15,26 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.*;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import rocks.blackblock.bib.collection.ChunkBlockMap;
+import rocks.blackblock.bib.collection.LongChunkMap;
+import rocks.blackblock.bib.collection.ChunkZoneIndex;
+import rocks.blackblock.bib.collection.ConcurrentChunkMap;
 import rocks.blackblock.bib.collection.WeakValueHashMap;
+import rocks.blackblock.bib.collection.LongWorldChunkBlockMap;
 import rocks.blackblock.bib.collection.WorldChunkBlockMap;
 import rocks.blackblock.bib.util.*;
 
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * A key for augments
@@ -32,8 +45,10 @@ import java.util.*;
 public abstract class AugmentKey<$C extends Augment> {
 
     protected final Identifier id;
+    protected final String id_string;
     protected final Class<$C> augment_class;
     protected final AugmentManager<$C> manager;
+    private final AugmentProfiler.Profile profile = new AugmentProfiler.Profile();
 
     /**
      * Initialize the augment key
@@ -44,6 +59,7 @@ public abstract class AugmentKey<$C extends Augment> {
     public AugmentKey(Identifier id, Class<$C> augment_class) {
         this.augment_class = augment_class;
         this.id = id;
+        this.id_string = id.toString();
         this.manager = new AugmentManager<>(this);
     }
 
@@ -57,6 +73,16 @@ public abstract class AugmentKey<$C extends Augment> {
         return this.id;
     }
 
+    /**
+     * Return the identifier of this augment key as a string,
+     * as it is used in NBT data
+     *
+     * @since    0.2.0
+     */
+    public final String getIdString() {
+        return this.id_string;
+    }
+
     /**
      * Get the augment class of this key's augment type
      *
@@ -67,6 +93,15 @@ public abstract class AugmentKey<$C extends Augment> {
         return this.augment_class;
     }
 
+    /**
+     * Get the timing statistics of this key
+     *
+     * @since    0.2.0
+     */
+    public final AugmentProfiler.Profile getProfile() {
+        return this.profile;
+    }
+
     /**
      * Return the directory path where to save this augment instance data
      *
@@ -412,6 +447,36 @@ public abstract class AugmentKey<$C extends Augment> {
 
             return result;
         }
+
+        /**
+         * Is there already an instance for the given world?
+         *
+         * @since    0.2.0
+         */
+        public boolean hasInstance(World world) {
+            return this.cache.containsKey(world);
+        }
+
+        /**
+         * Create a new instance for the given world
+         * without loading or caching it
+         *
+         * @since    0.2.0
+         */
+        @SuppressWarnings("unchecked")
+        C createInstance(World world) {
+            return (C) this.instantiator.create(world);
+        }
+
+        /**
+         * Cache an instance that has been loaded elsewhere
+         * (unless one exists already)
+         *
+         * @since    0.2.0
+         */
+        void putLoadedInstance(World world, C instance) {
+            this.cache.putIfAbsent(world, instance);
+        }
     }
 
     /**
@@ -422,9 +487,14 @@ public abstract class AugmentKey<$C extends Augment> {
      */
     public static class PerChunk<C extends Augment.PerChunk> extends AugmentKey<C> {
 
-        // Chunk augments have 1 instance per chunk
-        // Though when the chunk is loaded, it's a ProtoChunk. Afterwards a normal Chunk is created.
-        private final WeakHashMap<Chunk, ChunkCacheEntry<C>> cache = new WeakHashMap<>();
+        // Chunk augments have 1 instance per chunk, keyed by the packed chunk position.
+        // Entries are added when the instance is created (which can happen on a chunk worker thread)
+        // and removed again when the chunk unloads.
+        private final Map<World, ConcurrentChunkMap<ChunkCacheEntry<C>>> cache = new ConcurrentHashMap<>();
+
+        // The instances of all the keys that store their data in the chunk NBT, per chunk,
+        // so chunk serialization only has to visit the augments a chunk actually has
+        private static final Map<World, ConcurrentChunkMap<ChunkNbtInstances>> CHUNK_NBT_INSTANCES = new ConcurrentHashMap<>();
 
         // The instantiator
         private final Augment.PerChunk.Instantiator<C> instantiator;
@@ -435,8 +505,47 @@ public abstract class AugmentKey<$C extends Augment> {
         // Should this augment be ticked with the chunk?
         private final boolean tick_with_chunk;
 
-        // Cache entry record
-        private record ChunkCacheEntry<C>(World world, C instance) {}
+        /**
+         * Cache entry:
+         * when the chunk is loaded it starts out as a ProtoChunk,
+         * afterwards a WorldChunk is created at the same position.
+         *
+         * @since    0.2.0
+         */
+        private static class ChunkCacheEntry<C> {
+            private final World world;
+            private final C instance;
+            private volatile Chunk chunk;
+
+            private ChunkCacheEntry(World world, Chunk chunk, C instance) {
+                this.world = world;
+                this.chunk = chunk;
+                this.instance = instance;
+            }
+        }
+
+        /**
+         * An instance attached to a chunk
+         *
+         * @since    0.2.0
+         */
+        record ChunkNbtInstance(PerChunk<?> key, Augment.PerChunk instance) {}
+
+        /**
+         * The chunk-NBT instances attached to a single chunk.
+         * The array is copied on every change, so it can be iterated without locking.
+         *
+         * @since    0.2.0
+         */
+        private static class ChunkNbtInstances {
+
+            private static final ChunkNbtInstance[] EMPTY = new ChunkNbtInstance[0];
+
+            private volatile ChunkNbtInstance[] instances = EMPTY;
+
+            // Set once this has been removed from its map
+            private boolean removed = false;
+        }
 
         /**
          * Initialize the augment key
@@ -452,35 +561,34 @@ public abstract class AugmentKey<$C extends Augment> {
         }
 
         /**
-         * Save & dereference unloaded chunks
+         * Loaded chunks are evicted by their unload event,
+         * so this only has to get rid of instances created for ProtoChunks
+         * that never made it to a WorldChunk.
+         *
+         * @since    0.2.0
          */
         @Override
         public void collectGarbage() {
 
-            if (cache.size() < 1) {
-                return;
-            }
+            for (ConcurrentChunkMap<ChunkCacheEntry<C>> world_cache : this.cache.values()) {
+                for (ChunkCacheEntry<C> entry : world_cache.values()) {
+                    Chunk chunk = entry.chunk;
 
-            // If the data is stored in the chunk nbt itself,
-            // we can safely remove it from the cache
-            if (this.storeInChunkNbt()) {
-                this.cache.entrySet().removeIf(pair -> !this.isChunkLoaded(pair.getValue().world(), pair.getKey()));
-                return;
-            }
+                    if (chunk instanceof WorldChunk || this.isChunkLoaded(entry.world, chunk)) {
+                        continue;
+                    }
 
-            // It's stored in a separate file,
-            // we need to make sure we trigger a save first
-            Iterator<Map.Entry<Chunk, ChunkCacheEntry<C>>> iterator = this.cache.entrySet().iterator();
+                    long chunk_key = chunk.getPos().toLong();
 
-            // Remove chunks that are not loaded
-            while (iterator.hasNext()) {
-                Map.Entry<Chunk, ChunkCacheEntry<C>> pair = iterator.next();
-                Chunk chunk = pair.getKey();
-                ChunkCacheEntry<C> entry = pair.getValue();
+                    if (!world_cache.remove(chunk_key, entry)) {
+                        continue;
+                    }
 
-                if (!this.isChunkLoaded(entry.world(), chunk)) {
-                    this.save(entry.instance);
-                    iterator.remove();
+                    if (this.storeInChunkNbt()) {
+                        this.detachChunkNbtInstance(entry.world, chunk_key, entry.instance);
+                    } else {
+                        this.save(entry.instance);
+                    }
                 }
             }
         }
@@ -517,8 +625,10 @@ public abstract class AugmentKey<$C extends Augment> {
                 return false;
             }
 
-            for (ChunkCacheEntry<C> entry : this.cache.values()) {
-                this.save(entry.instance);
+            for (ConcurrentChunkMap<ChunkCacheEntry<C>> world_cache : this.cache.values()) {
+                for (ChunkCacheEntry<C> entry : world_cache.values()) {
+                    this.save(entry.instance);
+                }
             }
 
             return true;
@@ -547,30 +657,84 @@ public abstract class AugmentKey<$C extends Augment> {
         }
 
         /**
-         * Get an the instance of this augment for the given chunk,
-         * but only from cache. Do not create a new one
+         * Get the cache of the given world
          *
-         * @author   Jelle De Loecker <jelle@elevenways.be>
-         * @since    0.1.0
+         * @since    0.2.0
          */
-        public C getFromCache(Chunk chunk) {
+        @Nullable
+        private ConcurrentChunkMap<ChunkCacheEntry<C>> getWorldCache(World world, boolean create) {
+
+            if (!create) {
+                return this.cache.get(world);
+            }
 
-            ChunkCacheEntry<C> entry = this.cache.get(chunk);
+            return this.cache.computeIfAbsent(world, w -> new ConcurrentChunkMap<>());
+        }
 
-            if (entry != null) {
-                return entry.instance;
+        /**
+         * Get the cache entry of the given position
+         *
+         * @since    0.2.0
+         */
+        @Nullable
+        private ChunkCacheEntry<C> getEntry(World world, long chunk_key) {
+
+            ConcurrentChunkMap<ChunkCacheEntry<C>> world_cache = this.cache.get(world);
+
+            if (world_cache == null) {
+                return null;
             }
 
+            return world_cache.get(chunk_key);
+        }
+
+        /**
+         * Get the cache entry of the given chunk,
+         * without knowing which world it belongs to
+         *
+         * @since    0.2.0
+         */
+        @Nullable
+        private ChunkCacheEntry<C> getEntry(Chunk chunk) {
+
+            // Get rid of those nasty ReadOnlyChunks
             if (chunk instanceof WrapperProtoChunk roc) {
                 chunk = roc.getWrappedChunk();
 
                 if (chunk == null) {
                     return null;
                 }
+            }
+
+            long chunk_key = chunk.getPos().toLong();
 
-                entry = this.cache.get(chunk);
+            if (chunk instanceof WorldChunk world_chunk) {
+                return this.getEntry(world_chunk.getWorld(), chunk_key);
+            }
+
+            // ProtoChunks don't know their world
+            for (ConcurrentChunkMap<ChunkCacheEntry<C>> world_cache : this.cache.values()) {
+                ChunkCacheEntry<C> entry = world_cache.get(chunk_key);
+
+                if (entry != null && entry.chunk == chunk) {
+                    return entry;
+                }
             }
 
+            return null;
+        }
+
+        /**
+         * Get an the instance of this augment for the given chunk,
+         * but only from cache. Do not create a new one
+         *
+         * @author   Jelle De Loecker <jelle@elevenways.be>
+         * @since    0.1.0
+         */
+        public C getFromCache(Chunk chunk) {
+
+            ChunkCacheEntry<C> entry = this.getEntry(chunk);
+
             if (entry == null) {
                 return null;
             }
@@ -578,6 +742,16 @@ public abstract class AugmentKey<$C extends Augment> {
             return entry.instance;
         }
 
+        /**
+         * Get an the instance of this augment for the given chunk,
+         * but only from cache. Do not create a new one
+         *
+         * @since    0.2.0
+         */
+        public C getFromCache(World world, Chunk chunk) {
+            return this.getFromCache(world, chunk.getPos().toLong());
+        }
+
         /**
          * Get an the instance of this augment for the given chunk,
          * but only from cache. Do not create a new one
@@ -586,14 +760,24 @@ public abstract class AugmentKey<$C extends Augment> {
          * @since    0.1.0
          */
         public C getFromCache(ServerWorld world, ChunkPos chunk_pos) {
+            return this.getFromCache(world, chunk_pos.toLong());
+        }
 
-            Chunk chunk = world.getChunk(chunk_pos.x, chunk_pos.z, ChunkStatus.EMPTY);
+        /**
+         * Get an the instance of this augment for the given packed chunk position,
+         * but only from cache. Do not create a new one
+         *
+         * @since    0.2.0
+         */
+        public C getFromCache(World world, long chunk_key) {
+
+            ChunkCacheEntry<C> entry = this.getEntry(world, chunk_key);
 
-            if (chunk == null) {
+            if (entry == null) {
                 return null;
             }
 
-            return this.getFromCache(chunk);
+            return entry.instance;
         }
 
         /**
@@ -604,27 +788,134 @@ public abstract class AugmentKey<$C extends Augment> {
          */
         public C get(ServerWorld world, Chunk chunk) {
 
-            C result = this.getFromCache(chunk);
-
-            if (result != null) {
-                return result;
-            }
-
             // Get rid of those nasty ReadOnlyChunks
             if (chunk instanceof WrapperProtoChunk roc) {
                 chunk = roc.getWrappedChunk();
             }
 
-            result = this.instantiator.create(world, chunk);
+            long chunk_key = chunk.getPos().toLong();
+            ConcurrentChunkMap<ChunkCacheEntry<C>> world_cache = this.getWorldCache(world, true);
+            ChunkCacheEntry<C> entry = world_cache.get(chunk_key);
+
+            if (entry != null) {
+                return entry.instance;
+            }
+
+            // Create the instance outside the lock: reading the file can take a while
+            C result = this.instantiator.create(world, chunk);
 
             if (!this.store_in_chunk_nbt) {
                 this.manager.readFromFile(result);
             }
 
-            ChunkCacheEntry<C> entry = new ChunkCacheEntry<>(world, result);
-            this.cache.put(chunk, entry);
+            // Another thread might have beaten us to it
+            C instance = world_cache.putIfAbsent(chunk_key, new ChunkCacheEntry<>(world, chunk, result)).instance;
 
-            return result;
+            if (instance == result && this.store_in_chunk_nbt) {
+                this.attachChunkNbtInstance(world, chunk_key, result);
+            }
+
+            return instance;
+        }
+
+        /**
+         * Get the chunk-NBT instances of all keys attached to the given chunk
+         *
+         * @since    0.2.0
+         */
+        @ApiStatus.Internal
+        @Nullable
+        static ChunkNbtInstance[] getChunkNbtInstances(World world, long chunk_key) {
+
+            ConcurrentChunkMap<ChunkNbtInstances> world_instances = CHUNK_NBT_INSTANCES.get(world);
+
+            if (world_instances == null) {
+                return null;
+            }
+
+            ChunkNbtInstances attached = world_instances.get(chunk_key);
+
+            if (attached == null) {
+                return null;
+            }
+
+            return attached.instances;
+        }
+
+        /**
+         * Attach a new chunk-NBT instance to its chunk
+         *
+         * @since    0.2.0
+         */
+        private void attachChunkNbtInstance(World world, long chunk_key, C instance) {
+
+            ConcurrentChunkMap<ChunkNbtInstances> world_instances = CHUNK_NBT_INSTANCES.computeIfAbsent(world, w -> new ConcurrentChunkMap<>());
+
+            while (true) {
+                ChunkNbtInstances attached = world_instances.computeIfAbsent(chunk_key, key -> new ChunkNbtInstances());
+
+                synchronized (attached) {
+
+                    // It was emptied & removed in the meantime: get a new one
+                    if (attached.removed) {
+                        continue;
+                    }
+
+                    ChunkNbtInstance[] old_instances = attached.instances;
+                    ChunkNbtInstance[] new_instances = Arrays.copyOf(old_instances, old_instances.length + 1);
+                    new_instances[old_instances.length] = new ChunkNbtInstance(this, instance);
+                    attached.instances = new_instances;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Detach a chunk-NBT instance from its chunk
+         *
+         * @since    0.2.0
+         */
+        private void detachChunkNbtInstance(World world, long chunk_key, C instance) {
+
+            ConcurrentChunkMap<ChunkNbtInstances> world_instances = CHUNK_NBT_INSTANCES.get(world);
+
+            if (world_instances == null) {
+                return;
+            }
+
+            ChunkNbtInstances attached = world_instances.get(chunk_key);
+
+            if (attached == null) {
+                return;
+            }
+
+            synchronized (attached) {
+                ChunkNbtInstance[] old_instances = attached.instances;
+                int index = -1;
+
+                for (int i = 0; i < old_instances.length; i++) {
+                    if (old_instances[i].instance() == instance) {
+                        index = i;
+                        break;
+                    }
+                }
+
+                if (index == -1) {
+                    return;
+                }
+
+                if (old_instances.length == 1) {
+                    attached.instances = ChunkNbtInstances.EMPTY;
+                    attached.removed = true;
+                    world_instances.remove(chunk_key, attached);
+                    return;
+                }
+
+                ChunkNbtInstance[] new_instances = new ChunkNbtInstance[old_instances.length - 1];
+                System.arraycopy(old_instances, 0, new_instances, 0, index);
+                System.arraycopy(old_instances, index + 1, new_instances, index, old_instances.length - index - 1);
+                attached.instances = new_instances;
+            }
         }
 
         /**
@@ -634,6 +925,13 @@ public abstract class AugmentKey<$C extends Augment> {
          * @since    0.1.0
          */
         public C get(ServerWorld world, ChunkPos chunk_pos) {
+
+            C result = this.getFromCache(world, chunk_pos.toLong());
+
+            if (result != null) {
+                return result;
+            }
+
             Chunk chunk = world.getChunk(chunk_pos.x, chunk_pos.z, ChunkStatus.EMPTY);
             return this.get(world, chunk);
         }
@@ -645,33 +943,100 @@ public abstract class AugmentKey<$C extends Augment> {
          * @since    0.1.0
          */
         public C get(Chunk chunk) {
+            return this.getFromCache(chunk);
+        }
 
-            C result = this.getFromCache(chunk);
+        /**
+         * A WorldChunk has been loaded:
+         * point the existing entry at it
+         *
+         * @since    0.2.0
+         */
+        @ApiStatus.Internal
+        public void onChunkLoad(World world, WorldChunk chunk) {
 
-            if (result != null) {
-                return result;
+            ChunkCacheEntry<C> entry = this.getEntry(world, chunk.getPos().toLong());
+
+            if (entry != null) {
+                entry.chunk = chunk;
             }
+        }
 
-            return null;
+        /**
+         * A chunk has been unloaded (after it has been serialized):
+         * remove its instance from the cache
+         *
+         * @since    0.2.0
+         */
+        @ApiStatus.Internal
+        @Nullable
+        public C onChunkUnload(World world, Chunk chunk) {
+
+            ConcurrentChunkMap<ChunkCacheEntry<C>> world_cache = this.getWorldCache(world, false);
+
+            if (world_cache == null) {
+                return null;
+            }
+
+            long chunk_key = chunk.getPos().toLong();
+            ChunkCacheEntry<C> entry = world_cache.remove(chunk_key);
+
+            if (entry == null) {
+                return null;
+            }
+
+            if (this.storeInChunkNbt()) {
+                this.detachChunkNbtInstance(world, chunk_key, entry.instance);
+            } else {
+                this.save(entry.instance);
+            }
+
+            return entry.instance;
+        }
+
+        /**
+         * A world has been unloaded:
+         * drop all of its instances
+         *
+         * @since    0.2.0
+         */
+        @ApiStatus.Internal
+        public void onWorldUnload(World world) {
+
+            ConcurrentChunkMap<ChunkCacheEntry<C>> world_cache = this.cache.remove(world);
+
+            if (this.storeInChunkNbt()) {
+                CHUNK_NBT_INSTANCES.remove(world);
+                return;
+            }
+
+            if (world_cache == null) {
+                return;
+            }
+
+            for (ChunkCacheEntry<C> entry : world_cache.values()) {
+                this.save(entry.instance);
+            }
         }
 
         /**
          * Handle the upgrade of a proto chunk to a world chunk.
+         * Both chunks share the same position, so the entry stays where it is.
          *
          * @author   Jelle De Loecker <jelle@elevenways.be>
          * @since    0.1.0
          */
         public void handleUpgradedProtoChunk(ProtoChunk proto_chunk, WorldChunk world_chunk) {
 
-            ChunkCacheEntry<C> entry = this.cache.get(proto_chunk);
+            ChunkCacheEntry<C> entry = this.getEntry(world_chunk.getWorld(), world_chunk.getPos().toLong());
 
-            if (entry == null) {
+            if (entry == null || entry.chunk == world_chunk) {
                 return;
             }
 
             C instance = entry.instance;
 
-            cache.put(world_chunk, entry);
+            entry.chunk = world_chunk;
             instance.onUpgrade(proto_chunk, world_chunk);
 
             if (instance.isDirty()) {
@@ -1054,8 +1419,11 @@ public abstract class AugmentKey<$C extends Augment> {
      */
     public static class PerBlock<C extends Augment.InternalPerBlock> extends AugmentKey<C> {
 
+        // The pattern of the per-chunk file names
+        public static final Pattern CHUNK_FILE_PATTERN = Pattern.compile("(-?\\d+)x(-?\\d+)\\.nbt");
+
         // Instances per world & chunk
-        protected final WorldChunkBlockMap<C> cache = new WorldChunkBlockMap<>(new WeakHashMap<>(10));
+        protected final LongWorldChunkBlockMap<C> cache = new LongWorldChunkBlockMap<>(new WeakHashMap<>(10));
 
         // The instantiator
         protected final Augment.PerBlock.Instantiator<C> instantiator;
@@ -1063,6 +1431,21 @@ public abstract class AugmentKey<$C extends Augment> {
         // Should this augment be ticked?
         private final boolean tick_with_world;
 
+        // Should the data be packed into region files?
+        private boolean region_storage = false;
+
+        // The region storages per world
+        private final Map<World, AugmentRegionStorage> region_storages = new WeakHashMap<>(6);
+
+        // Should the data only be loaded while its chunk is loaded?
+        private boolean lazy_loading = false;
+
+        // The chunks that have data on disk, per world (only used when lazy loading)
+        private final Map<World, LongOpenHashSet> stored_chunks = new WeakHashMap<>(6);
+
+        // The chunks whose data has been loaded, per world (only used when lazy loading)
+        private final Map<World, LongOpenHashSet> loaded_chunks = new WeakHashMap<>(6);
+
         /**
          * Initialize the augment key
          *
@@ -1116,6 +1499,169 @@ public abstract class AugmentKey<$C extends Augment> {
             return this.getAugmentHomePath().resolve(id.toUnderscoreSeparatedString());
         }
 
+        /**
+         * Pack the data of this augment into region files
+         * (32x32 chunks per file) instead of using a file per chunk.
+         * Existing per-chunk files are migrated when the world loads.
+         * This has to be set before any world is loaded.
+         *
+         * @since    0.2.0
+         */
+        public PerBlock<C> setRegionStorage(boolean region_storage) {
+            this.region_storage = region_storage;
+            return this;
+        }
+
+        /**
+         * Is the data of this augment packed into region files?
+         *
+         * @since    0.2.0
+         */
+        public boolean usesRegionStorage() {
+            return this.region_storage;
+        }
+
+        /**
+         * Only load the data of a chunk when that chunk loads,
+         * and save & evict it again when it unloads.
+         * When the world loads, only the list of chunks that have data is read.
+         * This has to be set before any world is loaded.
+         *
+         * @since    0.2.0
+         */
+        public PerBlock<C> setLazyLoading(boolean lazy_loading) {
+            this.lazy_loading = lazy_loading;
+            return this;
+        }
+
+        /**
+         * Is the data of this augment only loaded while its chunk is loaded?
+         *
+         * @since    0.2.0
+         */
+        public boolean usesLazyLoading() {
+            return this.lazy_loading;
+        }
+
+        /**
+         * Remember which chunks of the given world have data on disk,
+         * without reading any of it
+         *
+         * @since    0.2.0
+         */
+        public void indexStoredChunks(ServerWorld world) {
+
+            LongOpenHashSet stored = new LongOpenHashSet();
+
+            try {
+                if (this.region_storage) {
+                    stored.addAll(this.getRegionStorage(world).getStoredChunks());
+                } else {
+                    Path world_path = this.getAugmentInstancePath(world);
+
+                    if (Files.isDirectory(world_path)) {
+                        try (DirectoryStream<Path> stream = Files.newDirectoryStream(world_path, "*.nbt")) {
+                            for (Path entry : stream) {
+                                Matcher matcher = CHUNK_FILE_PATTERN.matcher(entry.getFileName().toString());
+
+                                if (matcher.matches()) {
+                                    stored.add(ChunkPos.toLong(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                BibServer.registerThrowable(t, "Failed to index the stored chunks of " + this.getId());
+            }
+
+            stored.trim();
+
+            this.stored_chunks.put(world, stored);
+            this.loaded_chunks.put(world, new LongOpenHashSet());
+        }
+
+        /**
+         * Make sure the data of the given chunk has been loaded
+         * (Only does something when lazy loading)
+         *
+         * @since    0.2.0
+         */
+        public void ensureChunkLoaded(World world, long chunk_key) {
+
+            if (!this.lazy_loading || !(world instanceof ServerWorld server_world)) {
+                return;
+            }
+
+            LongOpenHashSet stored = this.stored_chunks.get(world);
+
+            if (stored == null || !stored.contains(chunk_key)) {
+                return;
+            }
+
+            LongOpenHashSet loaded = this.loaded_chunks.computeIfAbsent(world, w -> new LongOpenHashSet());
+
+            // Mark it as loaded first: loading creates instances via get()
+            if (!loaded.add(chunk_key)) {
+                return;
+            }
+
+            if (this.region_storage) {
+                this.loadRegionChunk(server_world, chunk_key);
+            } else {
+                ChunkPos chunk_pos = new ChunkPos(chunk_key);
+                Path path = this.getAugmentInstancePath(world).resolve(this.getMainFileName(chunk_pos));
+                this.loadFile(server_world, chunk_pos, path);
+            }
+        }
+
+        /**
+         * A chunk has been loaded
+         *
+         * @since    0.2.0
+         */
+        public void onChunkLoad(ServerWorld world, long chunk_key) {
+            this.ensureChunkLoaded(world, chunk_key);
+        }
+
+        /**
+         * A chunk has been unloaded:
+         * save its dirty instances & evict them
+         * (Only does something when lazy loading)
+         *
+         * @since    0.2.0
+         */
+        public void onChunkUnload(ServerWorld world, long chunk_key) {
+
+            if (!this.lazy_loading) {
+                return;
+            }
+
+            LongOpenHashSet loaded = this.loaded_chunks.get(world);
+
+            if (loaded != null) {
+                loaded.remove(chunk_key);
+            }
+
+            ChunkBlockMap<C> instances = this.cache.getChunkBlockMap(world, chunk_key);
+
+            if (instances == null) {
+                return;
+            }
+
+            this.writeFileIfDirty(world, new ChunkPos(chunk_key), instances.asMap());
+            this.cache.removeChunk(world, chunk_key);
+        }
+
+        /**
+         * Get the region storage of the given world
+         *
+         * @since    0.2.0
+         */
+        public AugmentRegionStorage getRegionStorage(World world) {
+            return this.region_storages.computeIfAbsent(world, w -> new AugmentRegionStorage(this.getAugmentInstancePath(w)));
+        }
+
         /**
          * Save all the instances of this augment to file if needed.
          *
@@ -1157,11 +1703,60 @@ public abstract class AugmentKey<$C extends Augment> {
                 return false;
             }
 
-            Path world_dir = this.getAugmentInstancePath(world);
-            String chunk_filename = this.getMainFileName(chunk_pos);
-            Path chunk_path = world_dir.resolve(chunk_filename);
+            NbtCompound compound = this.serializeChunk(instances);
+            long chunk_key = chunk_pos.toLong();
+            boolean saved;
+
+            if (compound == null) {
+                // Nothing persists anymore, so the old data must not come back on the next load
+                this.deleteChunk(world, chunk_pos);
+                saved = true;
+            } else if (this.region_storage) {
+                saved = this.manager.saveToRegion(this.getRegionStorage(world), chunk_key, compound);
+            } else {
+                saved = this.manager.saveToFile(this.getChunkPath(world, chunk_pos).toFile(), compound);
+            }
 
-            return this.writeFile(world, chunk_pos, chunk_path, instances);
+            if (saved) {
+                // The data has been snapshotted, so it's safe to reset the flags
+                for (C instance : instances.values()) {
+                    instance.setDirty(false);
+                }
+
+                LongOpenHashSet stored = this.stored_chunks.get(world);
+
+                if (stored != null) {
+                    if (compound == null) {
+                        stored.remove(chunk_key);
+                    } else {
+                        stored.add(chunk_key);
+                    }
+                }
+            }
+
+            return saved;
+        }
+
+        /**
+         * Get the path of the file of the given chunk
+         *
+         * @since    0.2.0
+         */
+        public Path getChunkPath(World world, ChunkPos chunk_pos) {
+            return this.getAugmentInstancePath(world).resolve(this.getMainFileName(chunk_pos));
+        }
+
+        /**
+         * Delete the stored data of the given chunk
+         *
+         * @since    0.2.0
+         */
+        public void deleteChunk(World world, ChunkPos chunk_pos) {
+            if (this.region_storage) {
+                this.manager.deleteFromRegion(this.getRegionStorage(world), chunk_pos.toLong());
+            } else {
+                this.manager.deleteFile(this.getChunkPath(world, chunk_pos).toFile());
+            }
         }
 
         /**
@@ -1171,6 +1766,39 @@ public abstract class AugmentKey<$C extends Augment> {
          */
         public boolean writeFile(World world, ChunkPos chunk_pos, Path path, Map<BlockPos, C> instances) {
 
+            NbtCompound compound = this.serializeChunk(instances);
+
+            if (compound == null) {
+                return false;
+            }
+
+            return this.manager.saveToFile(path.toFile(), compound);
+        }
+
+        /**
+         * Write all the origins of the given chunk to the world's region storage
+         *
+         * @since    0.2.0
+         */
+        public boolean writeRegionChunk(World world, ChunkPos chunk_pos, Map<BlockPos, C> instances) {
+
+            NbtCompound compound = this.serializeChunk(instances);
+
+            if (compound == null) {
+                return false;
+            }
+
+            return this.manager.saveToRegion(this.getRegionStorage(world), chunk_pos.toLong(), compound);
+        }
+
+        /**
+         * Serialize all the origins of a chunk
+         *
+         * @since    0.2.0
+         */
+        @Nullable
+        protected NbtCompound serializeChunk(Map<BlockPos, C> instances) {
+
             NbtList list = new NbtList();
 
             for (C instance : instances.values()) {
@@ -1193,13 +1821,13 @@ public abstract class AugmentKey<$C extends Augment> {
             }
 
             if (list.isEmpty()) {
-                return false;
+                return null;
             }
 
             NbtCompound compound = new NbtCompound();
             compound.put("origins", list);
 
-            return this.manager.saveToFile(path.toFile(), compound);
+            return compound;
         }
 
         /**
@@ -1208,8 +1836,24 @@ public abstract class AugmentKey<$C extends Augment> {
          * @since    0.2.0
          */
         public boolean loadFile(ServerWorld world, ChunkPos chunk_pos, Path path) {
+            return this.loadChunkNbt(world, this.manager.parseNbt(path.toFile()));
+        }
+
+        /**
+         * Load all the origins of the given chunk from the world's region storage
+         *
+         * @since    0.2.0
+         */
+        public boolean loadRegionChunk(ServerWorld world, long chunk_key) {
+            return this.loadChunkNbt(world, this.manager.parseRegionNbt(this.getRegionStorage(world), chunk_key));
+        }
 
-            NbtCompound nbt = this.manager.parseNbt(path.toFile());
+        /**
+         * Load all the origins of the given chunk data
+         *
+         * @since    0.2.0
+         */
+        protected boolean loadChunkNbt(ServerWorld world, @Nullable NbtCompound nbt) {
 
             if (nbt == null) {
                 return false;
@@ -1235,11 +1879,21 @@ public abstract class AugmentKey<$C extends Augment> {
                 C instance = this.get(world, origin_pos);
 
                 instance.readFromNbt(data, world.getRegistryManager());
+                this.onInstanceLoaded(instance);
             }
 
             return true;
         }
 
+        /**
+         * An instance has been loaded from disk
+         *
+         * @since    0.2.0
+         */
+        protected void onInstanceLoaded(C instance) {
+
+        }
+
         /**
          * Iterate over all the instances in the given world
          *
@@ -1249,6 +1903,16 @@ public abstract class AugmentKey<$C extends Augment> {
             this.cache.forEach(iterator);
         }
 
+        /**
+         * Iterate over all the instances in the given world,
+         * without allocating any positions
+         *
+         * @since    0.2.0
+         */
+        public void forEachInstance(World world, Consumer<C> consumer) {
+            this.cache.forEachValue(world, consumer);
+        }
+
         /**
          * Get or create the instance of this augment for the given world and origin.
          *
@@ -1258,6 +1922,12 @@ public abstract class AugmentKey<$C extends Augment> {
 
             C instance = this.cache.get(world, origin);
 
+            if (instance == null && this.lazy_loading) {
+                // The chunk's data might not have been loaded yet
+                this.ensureChunkLoaded(world, LongChunkMap.toKey(origin));
+                instance = this.cache.get(world, origin);
+            }
+
             if (instance == null) {
                 // Create a new instance
                 instance = this.instantiator.create(world, origin);
@@ -1276,7 +1946,8 @@ public abstract class AugmentKey<$C extends Augment> {
      */
     public static class PerChunkZone<C extends Augment.PerChunkZone> extends PerBlock<C> {
 
-        private WeakHashMap<ChunkPos, Boolean> AFFECTS_CACHE = new WeakHashMap<>(128);
+        // The chunks each instance affects, per world
+        private final ChunkZoneIndex<C> zone_index = new ChunkZoneIndex<>();
 
         /**
          * Initialize the augment key
@@ -1288,32 +1959,67 @@ public abstract class AugmentKey<$C extends Augment> {
         }
 
         /**
-         * Received a dirty instance
+         * Chunk zones can affect any chunk, so they always have to be resident:
+         * lazy loading is not supported
          *
          * @since    0.2.0
          */
+        @Override
+        public PerChunkZone<C> setLazyLoading(boolean lazy_loading) {
+
+            if (lazy_loading) {
+                BibLog.attention("PerChunkZone augment", this.getId(), "does not support lazy loading");
+            }
+
+            return this;
+        }
+
+        /**
+         * Received a dirty instance:
+         * its affected chunks might have changed
+         *
+         * @since    0.2.0
+         */
+        @SuppressWarnings("unchecked")
         public void onDirtyInstance(Augment.PerChunkZone instance) {
-            AFFECTS_CACHE.clear();
+            this.reindex((C) instance);
         }
 
         /**
-         * Is the given chunk affected by any of this augment?
-         * (Will not check any BlockPos)
+         * An instance has been loaded from disk
          *
          * @since    0.2.0
          */
-        public boolean affectsChunk(World world, ChunkPos chunkPos) {
+        @Override
+        protected void onInstanceLoaded(C instance) {
+            this.reindex(instance);
+        }
 
-            Boolean result = AFFECTS_CACHE.get(chunkPos);
+        /**
+         * Update the chunks the given instance is indexed under
+         *
+         * @since    0.2.0
+         */
+        public void reindex(C instance) {
+            this.zone_index.update(instance.getWorld(), instance, instance.getAffectedChunks());
+        }
 
-            if (result != null) {
-                return result;
-            }
+        /**
+         * Get or create the instance of this augment for the given world and origin.
+         *
+         * @since    0.2.0
+         */
+        @Override
+        public C get(World world, BlockPos origin) {
 
-            result = this.affectsChunkUncached(world, chunkPos);
-            AFFECTS_CACHE.put(chunkPos, result);
+            C instance = this.cache.get(world, origin);
 
-            return result;
+            if (instance == null) {
+                instance = super.get(world, origin);
+                this.zone_index.update(world, instance, instance.getAffectedChunks());
+            }
+
+            return instance;
         }
 
         /**
@@ -1322,32 +2028,14 @@ public abstract class AugmentKey<$C extends Augment> {
          *
          * @since    0.2.0
          */
-        private boolean affectsChunkUncached(World world, ChunkPos chunkPos) {
-
-            Map<BlockPos, C> block_map = this.cache.get(world, chunkPos);
+        public boolean affectsChunk(World world, ChunkPos chunkPos) {
 
-            if (block_map != null) {
-                for (C instance : block_map.values()) {
-                    if (instance.affects(chunkPos)) {
-                        return true;
-                    }
-                }
+            if (this.zone_index.contains(world, chunkPos)) {
                 return true;
             }
 
-            var instances = this.cache.valuesPerWorld(world);
-
-            if (instances == null) {
-                return false;
-            }
-
-            for (var instance : instances) {
-                if (instance.affects(chunkPos)) {
-                    return true;
-                }
-            }
-
-            return false;
+            // Chunks containing an origin are always considered affected
+            return this.cache.containsKey(world, chunkPos);
         }
 
         /**
@@ -1357,20 +2045,10 @@ public abstract class AugmentKey<$C extends Augment> {
          */
         public boolean affectsBlock(World world, BlockPos blockPos) {
 
-            ChunkPos chunk_pos = new ChunkPos(blockPos);
-
-            if (!this.affectsChunk(world, chunk_pos)) {
-                return false;
-            }
-
-            var instances = this.cache.valuesPerWorld(world);
+            List<C> instances = this.zone_index.get(world, blockPos);
 
-            if (instances == null) {
-                return false;
-            }
-
-            for (var value : instances) {
-                if (value.affects(blockPos)) {
+            for (int i = 0; i < instances.size(); i++) {
+                if (instances.get(i).affects(blockPos)) {
                     return true;
                 }
             }
@@ -1385,21 +2063,13 @@ public abstract class AugmentKey<$C extends Augment> {
          */
         public List<C> getInstancesAffectingChunk(World world, ChunkPos chunkPos) {
 
-            var chunk_values = this.cache.valuesPerWorld(world);
+            List<C> instances = this.zone_index.get(world, chunkPos);
 
-            if (chunk_values == null || chunk_values.isEmpty()) {
+            if (instances.isEmpty()) {
                 return Collections.emptyList();
             }
 
-            List<C> result = new ArrayList<>(chunk_values.size());
-
-            for (var instance : chunk_values) {
-                if (instance.affects(chunkPos)) {
-                    result.add(instance);
-                }
-            }
-
-            return result;
+            return new ArrayList<>(instances);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package rocks.blackblock.bib.augment;
+
+import net.minecraft.nbt.NbtCompound;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+import rocks.blackblock.bib.util.BibLog;
+import rocks.blackblock.bib.util.BibServer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Loads many augment files at once:
+ * decompressing & parsing the NBT happens in parallel on a fork-join pool,
+ * while the parsed data is applied to the instances on the calling thread, in batches.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@ApiStatus.Internal
+public final class AugmentLoader {
+
+    // How many parsed entries are applied at once
+    private static final int BATCH_SIZE = 256;
+
+    // How often to log the progress
+    private static final long PROGRESS_INTERVAL_NS = TimeUnit.SECONDS.toNanos(5);
+
+    // The pool used for parsing (created on first use)
+    private static volatile ForkJoinPool POOL = null;
+
+    /**
+     * Don't let anyone instantiate this class
+     *
+     * @since    0.2.0
+     */
+    private AugmentLoader() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Get the pool used for parsing
+     *
+     * @since    0.2.0
+     */
+    private static ForkJoinPool getPool() {
+
+        ForkJoinPool pool = POOL;
+
+        if (pool != null) {
+            return pool;
+        }
+
+        synchronized (AugmentLoader.class) {
+            if (POOL == null) {
+                AtomicInteger counter = new AtomicInteger();
+
+                POOL = new ForkJoinPool(
+                        Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                        fork_join_pool -> {
+                            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(fork_join_pool);
+                            thread.setName("Bib-Augment-Loader-" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        },
+                        (t, e) -> BibServer.registerThrowable(e, "Augment loader thread failed"),
+                        false
+                );
+            }
+
+            return POOL;
+        }
+    }
+
+    /**
+     * Parse all the given sources in parallel,
+     * and apply the results on the calling thread.
+     * This blocks until everything has been applied.
+     *
+     * @since    0.2.0
+     *
+     * @param    label     What is being loaded (used for logging)
+     * @param    sources   The things to load
+     * @param    parser    Parses a source (called on the pool, so it has to be thread-safe)
+     * @param    applier   Applies the parsed data (called on the calling thread, never with null data)
+     */
+    public static <S> void load(String label, Collection<S> sources, Function<S, NbtCompound> parser, BiConsumer<S, NbtCompound> applier) {
+
+        int total = sources.size();
+
+        if (total == 0) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicLong parse_ns = new AtomicLong();
+        BlockingQueue<Parsed<S>> parsed_queue = new LinkedBlockingQueue<>();
+        ForkJoinPool pool = getPool();
+
+        for (S source : sources) {
+            pool.execute(() -> {
+                long parse_start = System.nanoTime();
+                NbtCompound nbt = null;
+
+                try {
+                    nbt = parser.apply(source);
+                } catch (Throwable t) {
+                    BibServer.registerThrowable(t, "Failed to parse " + label + " data of " + source);
+                }
+
+                parse_ns.addAndGet(System.nanoTime() - parse_start);
+                parsed_queue.add(new Parsed<>(source, nbt));
+            });
+        }
+
+        List<Parsed<S>> batch = new ArrayList<>(BATCH_SIZE);
+        long apply_ns = 0;
+        long next_progress = start + PROGRESS_INTERVAL_NS;
+        int applied = 0;
+
+        while (applied < total) {
+
+            Parsed<S> first;
+
+            try {
+                first = parsed_queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                BibLog.attention("Interrupted while loading", label, "after", applied, "of", total);
+                return;
+            }
+
+            if (first != null) {
+                batch.add(first);
+                parsed_queue.drainTo(batch, BATCH_SIZE - 1);
+
+                long apply_start = System.nanoTime();
+
+                for (Parsed<S> parsed : batch) {
+
+                    if (parsed.nbt() == null) {
+                        continue;
+                    }
+
+                    try {
+                        applier.accept(parsed.source(), parsed.nbt());
+                    } catch (Throwable t) {
+                        BibServer.registerThrowable(t, "Failed to apply " + label + " data of " + parsed.source());
+                    }
+                }
+
+                apply_ns += System.nanoTime() - apply_start;
+                applied += batch.size();
+                batch.clear();
+            }
+
+            long now = System.nanoTime();
+
+            if (now >= next_progress && applied < total) {
+                BibLog.log("Loading", label + ":", applied, "/", total);
+                next_progress = now + PROGRESS_INTERVAL_NS;
+            }
+        }
+
+        BibLog.log(
+                "Loaded", total, label, "in", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), "ms",
+                "(parsing:", TimeUnit.NANOSECONDS.toMillis(parse_ns.get()), "ms over", pool.getParallelism(), "threads,",
+                "applying:", TimeUnit.NANOSECONDS.toMillis(apply_ns), "ms)"
+        );
+    }
+
+    /**
+     * A parsed source
+     *
+     * @since    0.2.0
+     */
+    private record Parsed<S>(S source, @Nullable NbtCompound nbt) {}
+}
@@ -1,14 +1,15 @@
 package rocks.blackblock.bib.augment;
 
 
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.nbt.NbtHelper;
-import net.minecraft.nbt.NbtIo;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
-import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.ProtoChunk;
 import net.minecraft.world.chunk.WorldChunk;
@@ -16,6 +17,7 @@ import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import rocks.blackblock.bib.monitor.GlitchGuru;
+import rocks.blackblock.bib.monitor.SpanTracer;
 import rocks.blackblock.bib.util.BibData;
 import rocks.blackblock.bib.util.BibLog;
 import rocks.blackblock.bib.util.BibServer;
@@ -24,9 +26,8 @@ import java.io.*;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 /**
@@ -38,8 +39,11 @@ import java.util.regex.Pattern;
 @ApiStatus.Internal
 public class AugmentManager<C extends Augment> {
 
-    private static final Pattern PER_CHUNK_ZONE_FILE_PATTERN = Pattern.compile("(-?\\d+)x(-?\\d+)\\.nbt");
+    private static final Pattern PER_CHUNK_ZONE_FILE_PATTERN = AugmentKey.PerBlock.CHUNK_FILE_PATTERN;
     public static boolean INITIALIZED = false;
+
+    // The chunk augments stored in the chunk's NBT (see `getChunkNbtKeys()`)
+    private static volatile AugmentKey.PerChunk<?>[] CHUNK_NBT_KEYS = new AugmentKey.PerChunk<?>[0];
     protected final AugmentKey<C> augment_key;
 
     /**
@@ -74,14 +78,28 @@ public class AugmentManager<C extends Augment> {
                 BibServer.registerThrowable(t, "Failed to collect augment garbage for " + key.getId());
             }
 
+            long start = AugmentProfiler.start();
+
             try {
                 key.saveAll();
             } catch (Throwable t) {
                 BibServer.registerThrowable(t, "Failed to save augment instances of " + key.getId());
             }
+
+            AugmentProfiler.record(key, AugmentProfiler.Phase.SAVE, start);
         }
     }
 
+    /**
+     * Wait for all the queued augment writes to hit the disk.
+     * This blocks the calling thread.
+     *
+     * @since    0.2.0
+     */
+    public static boolean flushSaves() {
+        return AugmentSaveQueue.flush(60_000);
+    }
+
     /**
      * Startup
      *
@@ -92,7 +110,9 @@ public class AugmentManager<C extends Augment> {
     public static void initialize() {
         startGlobalAugments();
 
+        ServerChunkEvents.CHUNK_LOAD.register(AugmentManager::loadChunkAugments);
         ServerChunkEvents.CHUNK_UNLOAD.register(AugmentManager::unloadChunkAugments);
+        ServerWorldEvents.UNLOAD.register(AugmentManager::unloadWorldAugments);
 
         INITIALIZED = true;
     }
@@ -126,12 +146,19 @@ public class AugmentManager<C extends Augment> {
      */
     public static void tickPlayerAugments(ServerPlayerEntity player) {
         // Tick the player augments
+        AugmentTickScheduler scheduler = AugmentTickScheduler.get(player.getServerWorld());
+
         for (AugmentKey.PerPlayer<?> key : Augment.PerPlayer.TICK_REGISTRY.keySet()) {
+            long start = AugmentProfiler.start();
+
             try {
-                key.get(player).onTick();
+                Augment.PerPlayer instance = key.get(player);
+                scheduler.tick(instance, Augment.PerPlayer::onTick);
             } catch (Throwable t) {
                 BibServer.registerThrowable(t, "Failed to tick player augment instances of " + key.getId());
             }
+
+            AugmentProfiler.record(key, AugmentProfiler.Phase.TICK, start);
         }
     }
 
@@ -233,13 +260,7 @@ public class AugmentManager<C extends Augment> {
      */
     public static void createWorldAugments(ServerWorld world) {
 
-        Augment.PerWorld.REGISTRY.forEach((key, aClass) -> {
-            try {
-                key.get(world);
-            } catch (Throwable t) {
-                BibServer.registerThrowable(t, "Failed to create world augment instances of " + key.getId());
-            }
-        });
+        createPerWorldAugments(world);
 
         Augment.PerBlock.REGISTRY.forEach((key, aClass) -> {
             initializePerBlockAugment(world, key, aClass);
@@ -250,6 +271,39 @@ public class AugmentManager<C extends Augment> {
         });
     }
 
+    /**
+     * Create all the PerWorld augments of the given world,
+     * reading their files in parallel
+     *
+     * @since    0.2.0
+     */
+    private static void createPerWorldAugments(ServerWorld world) {
+
+        List<PendingWorldAugment<?>> pending = new ArrayList<>();
+
+        Augment.PerWorld.REGISTRY.forEach((key, aClass) -> {
+            try {
+                if (!key.hasInstance(world)) {
+                    pending.add(PendingWorldAugment.create(key, world));
+                }
+            } catch (Throwable t) {
+                BibServer.registerThrowable(t, "Failed to create world augment instances of " + key.getId());
+            }
+        });
+
+        AugmentLoader.load(
+                "PerWorld augments of " + world.getRegistryKey().getValue(),
+                pending,
+                PendingWorldAugment::parse,
+                PendingWorldAugment::apply
+        );
+
+        // Instances without saved data are cached too
+        for (PendingWorldAugment<?> entry : pending) {
+            entry.cache(world);
+        }
+    }
+
     /**
      * Create all the augments for the given world
      *
@@ -270,42 +324,109 @@ public class AugmentManager<C extends Augment> {
             }
         }
 
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(world_path)) {
-            for (Path entry : stream) {
+        if (key.usesRegionStorage()) {
+            initializePerBlockRegions(world, key, world_path);
+            return;
+        }
 
-                // Only process files that match the pattern
-                Matcher matcher = PER_CHUNK_ZONE_FILE_PATTERN.matcher(entry.getFileName().toString());
+        if (key.usesLazyLoading()) {
+            // Only remember which chunks have data, they're loaded with their chunk
+            key.indexStoredChunks(world);
+            return;
+        }
 
-                if (matcher.matches()) {
-                    // Parse integers from the filename
-                    int x = Integer.parseInt(matcher.group(1));
-                    int z = Integer.parseInt(matcher.group(2));
+        List<Path> files = new ArrayList<>();
 
-                    ChunkPos chunk_pos = new ChunkPos(x, z);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(world_path)) {
+            for (Path entry : stream) {
 
-                    key.loadFile(world, chunk_pos, entry);
+                // Only process files that match the pattern
+                if (PER_CHUNK_ZONE_FILE_PATTERN.matcher(entry.getFileName().toString()).matches()) {
+                    files.add(entry);
                 }
             }
         } catch (Throwable e) {
             BibServer.registerThrowable(e, "Failed to create PerChunkZone augment instance of " + key.getId());
         }
+
+        AugmentLoader.load(
+                key.getId() + " files of " + world.getRegistryKey().getValue(),
+                files,
+                path -> key.manager.parseNbt(path.toFile()),
+                (path, nbt) -> key.loadChunkNbt(world, nbt)
+        );
+    }
+
+    /**
+     * Load the region-packed data of the given PerBlock key.
+     * Per-chunk files left over from before are migrated first.
+     *
+     * @since    0.2.0
+     */
+    private static void initializePerBlockRegions(ServerWorld world, AugmentKey.PerBlock<?> key, Path world_path) {
+
+        AugmentRegionStorage storage = key.getRegionStorage(world);
+
+        try {
+            int migrated = storage.migrateChunkFiles(world_path, PER_CHUNK_ZONE_FILE_PATTERN);
+
+            if (migrated > 0) {
+                BibLog.log("Migrated", migrated, "chunk files of", key.getId(), "to region storage");
+            }
+        } catch (Throwable t) {
+            BibServer.registerThrowable(t, "Failed to migrate PerBlock augment files of " + key.getId());
+        }
+
+        if (key.usesLazyLoading()) {
+            // Only remember which chunks have data, they're loaded with their chunk
+            key.indexStoredChunks(world);
+            return;
+        }
+
+        LongList chunks;
+
+        try {
+            chunks = storage.getStoredChunks();
+        } catch (Throwable t) {
+            BibServer.registerThrowable(t, "Failed to load PerBlock augment regions of " + key.getId());
+            return;
+        }
+
+        AugmentLoader.load(
+                key.getId() + " regions of " + world.getRegistryKey().getValue(),
+                chunks,
+                chunk_key -> key.manager.parseRegionNbt(storage, chunk_key),
+                (chunk_key, nbt) -> key.loadChunkNbt(world, nbt)
+        );
     }
 
     /**
-     * Handle a world tick
+     * Handle a world tick.
+     * Which instances actually tick is up to the world's {@link AugmentTickScheduler}.
      *
      * @author   Jelle De Loecker <jelle@elevenways.be>
      * @since    0.1.0
      */
     public static void tickWorldAugments(ServerWorld world) {
 
+        AugmentTickScheduler scheduler = AugmentTickScheduler.get(world);
+
+        // Run whatever didn't fit in the previous tick's budget first,
+        // so it doesn't get attributed to the first key that ticks
+        scheduler.prepareTick();
+
         // Tick the augments first
         Augment.PerWorld.REGISTRY.forEach((key, aClass) -> {
+            long start = AugmentProfiler.start();
+
             try {
-                key.get(world).onTick();
+                Augment.PerWorld instance = key.get(world);
+                scheduler.tick(instance, Augment.PerWorld::onTick);
             } catch (Throwable t) {
                 BibServer.registerThrowable(t, "Failed to tick world augment instances of " + key.getId());
             }
+
+            AugmentProfiler.record(key, AugmentProfiler.Phase.TICK, start);
         });
 
         // Now tick the Ticks.WithChunk instances
@@ -313,26 +434,60 @@ public class AugmentManager<C extends Augment> {
 
         // And the PerBlock & PerChunkZone augments
         Augment.PerBlock.TICKS_WITH_WORLD.forEach((key, aClass) -> {
+            long start = AugmentProfiler.start();
+
             try {
-                key.forEach((world1, chunk_pos, block_pos, value) -> {
-                    value.onTick();
-                });
+                key.forEachInstance(world, instance -> scheduler.tick(instance, Augment.InternalPerBlock::onTick));
             } catch (Throwable t) {
                 BibServer.registerThrowable(t, "Failed to tick PerBlock augment instances of " + key.getId());
             }
+
+            AugmentProfiler.record(key, AugmentProfiler.Phase.TICK, start);
         });
 
         Augment.PerChunkZone.TICKS_WITH_WORLD.forEach((key, aClass) -> {
+            long start = AugmentProfiler.start();
+
             try {
-                key.forEach((world1, chunk_pos, block_pos, value) -> {
-                    value.onTick();
-                });
+                key.forEachInstance(world, instance -> scheduler.tick(instance, Augment.InternalPerBlock::onTick));
             } catch (Throwable t) {
                 BibServer.registerThrowable(t, "Failed to tick PerChunkZone augment instances of " + key.getId());
             }
+
+            AugmentProfiler.record(key, AugmentProfiler.Phase.TICK, start);
         });
     }
 
+    /**
+     * A chunk has been loaded:
+     * load the data of lazy PerBlock augments & wake up chunk tickers
+     *
+     * @since    0.2.0
+     */
+    public static void loadChunkAugments(ServerWorld world, WorldChunk chunk) {
+
+        long chunk_key = chunk.getPos().toLong();
+
+        Augment.PerBlock.REGISTRY.forEach((key, aClass) -> {
+
+            if (!key.usesLazyLoading()) {
+                return;
+            }
+
+            try {
+                key.onChunkLoad(world, chunk_key);
+            } catch (Throwable t) {
+                BibServer.registerThrowable(t, "Failed to load PerBlock augment instances of " + key.getId());
+            }
+        });
+
+        Augment.PerChunk.REGISTRY.forEach((key, aClass) -> {
+            key.onChunkLoad(world, chunk);
+        });
+
+        AugmentedTicker.WithChunkAttachments.onChunkLoad(world, chunk);
+    }
+
     /**
      * Unload a chunk augment
      *
@@ -341,9 +496,26 @@ public class AugmentManager<C extends Augment> {
      */
     public static void unloadChunkAugments(ServerWorld world, Chunk chunk) {
 
+        long chunk_key = chunk.getPos().toLong();
+
+        AugmentedTicker.WithChunkAttachments.onChunkUnload(world, chunk);
+
+        Augment.PerBlock.REGISTRY.forEach((key, aClass) -> {
+
+            if (!key.usesLazyLoading()) {
+                return;
+            }
+
+            try {
+                key.onChunkUnload(world, chunk_key);
+            } catch (Throwable t) {
+                BibServer.registerThrowable(t, "Failed to unload PerBlock augment instances of " + key.getId());
+            }
+        });
+
         Augment.PerChunk.REGISTRY.forEach((key, aClass) -> {
 
-            Augment.PerChunk instance = key.getFromCache(chunk);
+            Augment.PerChunk instance = key.getFromCache(world, chunk);
 
             if (instance == null) {
                 return;
@@ -354,9 +526,56 @@ public class AugmentManager<C extends Augment> {
             } catch (Throwable t) {
                 BibServer.registerThrowable(t, "Failed to unload chunk augment instances of " + key.getId());
             }
+
+            try {
+                key.onChunkUnload(world, chunk);
+            } catch (Throwable t) {
+                BibServer.registerThrowable(t, "Failed to evict chunk augment instances of " + key.getId());
+            }
         });
     }
 
+    /**
+     * Drop the chunk augments of an unloaded world
+     *
+     * @since    0.2.0
+     */
+    public static void unloadWorldAugments(MinecraftServer server, ServerWorld world) {
+
+        AugmentedTicker.WithChunkAttachments.onWorldUnload(world);
+        AugmentTickScheduler.remove(world);
+
+        Augment.PerChunk.REGISTRY.forEach((key, aClass) -> {
+            try {
+                key.onWorldUnload(world);
+            } catch (Throwable t) {
+                BibServer.registerThrowable(t, "Failed to unload chunk augment instances of " + key.getId() + " in " + world);
+            }
+        });
+    }
+
+    /**
+     * Get the chunk augments that are stored in the chunk's NBT as an array,
+     * so deserialization can iterate them without allocating
+     *
+     * @since    0.2.0
+     */
+    private static AugmentKey.PerChunk<?>[] getChunkNbtKeys() {
+
+        AugmentKey.PerChunk<?>[] keys = CHUNK_NBT_KEYS;
+
+        if (keys.length == Augment.PerChunk.STORED_IN_CHUNK_NBT.size()) {
+            return keys;
+        }
+
+        synchronized (AugmentManager.class) {
+            keys = Augment.PerChunk.STORED_IN_CHUNK_NBT.keySet().toArray(new AugmentKey.PerChunk<?>[0]);
+            CHUNK_NBT_KEYS = keys;
+        }
+
+        return keys;
+    }
+
     /**
      * Handle a chunk serialization
      *
@@ -365,39 +584,44 @@ public class AugmentManager<C extends Augment> {
      */
     public static void serializeChunkAugments(ServerWorld world, Chunk chunk, NbtCompound target_nbt) {
 
-        AtomicInteger saves = new AtomicInteger();
-        AtomicReference<NbtCompound> chunk_augments_nbt_ref = new AtomicReference<>();
+        // Only the instances this chunk actually has are visited
+        AugmentKey.PerChunk.ChunkNbtInstance[] attached = AugmentKey.PerChunk.getChunkNbtInstances(world, chunk.getPos().toLong());
 
-        Augment.PerChunk.STORED_IN_CHUNK_NBT.forEach((key, aClass) -> {
+        if (attached == null || attached.length == 0) {
+            return;
+        }
 
-            Augment.PerChunk instance = key.getFromCache(chunk);
+        NbtCompound chunk_augments_nbt = null;
 
-            if (instance == null) {
-                return;
-            }
+        for (AugmentKey.PerChunk.ChunkNbtInstance entry : attached) {
 
-            instance.setDirty(false);
+            AugmentKey.PerChunk<?> key = entry.key();
+            Augment.PerChunk instance = entry.instance();
+            long start = AugmentProfiler.start();
+
+            try {
+                instance.setDirty(false);
 
-            NbtCompound augment_nbt = instance.writeToNbt(world.getRegistryManager());
+                NbtCompound augment_nbt = instance.writeToNbt(world.getRegistryManager());
 
-            if (augment_nbt == null) {
-                return;
-            }
+                if (augment_nbt == null) {
+                    continue;
+                }
 
-            if (chunk_augments_nbt_ref.get() == null) {
-                chunk_augments_nbt_ref.set(new NbtCompound());
-            }
+                if (chunk_augments_nbt == null) {
+                    chunk_augments_nbt = new NbtCompound();
+                }
 
-            try {
-                chunk_augments_nbt_ref.get().put(key.getId().toString(), augment_nbt);
-                saves.getAndIncrement();
+                chunk_augments_nbt.put(key.getIdString(), augment_nbt);
             } catch (Throwable t) {
                 BibServer.registerThrowable(t, "Failed to serialize Chunk augment " + key.getId() + " in " + world + " at " + chunk.getPos());
+            } finally {
+                AugmentProfiler.record(key, AugmentProfiler.Phase.SERIALIZE, start);
             }
-        });
+        }
 
-        if (saves.get() > 0) {
-            target_nbt.put("BlackBlockAugments", chunk_augments_nbt_ref.get());
+        if (chunk_augments_nbt != null) {
+            target_nbt.put("BlackBlockAugments", chunk_augments_nbt);
         }
     }
 
@@ -411,26 +635,21 @@ public class AugmentManager<C extends Augment> {
 
         NbtCompound chunk_augments_nbt = null;
 
-        if (source_nbt.contains("BlackBlockAugments", NbtElement.COMPOUND_TYPE)) {
-            chunk_augments_nbt = (NbtCompound) source_nbt.get("BlackBlockAugments");
-        } else if (source_nbt.contains("BlackBlockComponents", NbtElement.COMPOUND_TYPE)) {
-            chunk_augments_nbt = (NbtCompound) source_nbt.get("BlackBlockComponents");
+        if (source_nbt.get("BlackBlockAugments") instanceof NbtCompound compound) {
+            chunk_augments_nbt = compound;
+        } else if (source_nbt.get("BlackBlockComponents") instanceof NbtCompound compound) {
+            chunk_augments_nbt = compound;
         }
 
-        if (chunk_augments_nbt == null) {
-            return;
-        }
-
-        if (chunk_augments_nbt.isEmpty()) {
+        if (chunk_augments_nbt == null || chunk_augments_nbt.isEmpty()) {
             return;
         }
 
         // Augments that store their data in the chunk should always be deserialized
-        for (AugmentKey.PerChunk<?> key : Augment.PerChunk.STORED_IN_CHUNK_NBT.keySet()) {
-
-            NbtCompound augment_nbt = chunk_augments_nbt.getCompound(key.getId().toString());
+        for (AugmentKey.PerChunk<?> key : getChunkNbtKeys()) {
 
-            if (augment_nbt.isEmpty()) {
+            // Don't use `getCompound()`: it creates a new compound for every missing key
+            if (!(chunk_augments_nbt.get(key.getIdString()) instanceof NbtCompound augment_nbt) || augment_nbt.isEmpty()) {
                 continue;
             }
 
@@ -512,8 +731,7 @@ public class AugmentManager<C extends Augment> {
             return false;
         }
 
-        home_path.toFile().mkdirs();
-
+        // The directories are created by the save queue
         File file = this.augment_key.getMainFilePath(instance).toFile();
         return this.saveToFile(file, instance);
     }
@@ -527,17 +745,34 @@ public class AugmentManager<C extends Augment> {
      */
     public boolean saveToFile(@NotNull File file, @NotNull C instance) {
 
-        NbtCompound data = instance.writeToNbt(new NbtCompound(), instance.getRegistryManager());
+        // This is a hot path, so only use the in-process tracer (no Sentry transaction)
+        SpanTracer.Span span = SpanTracer.start("AugmentManager#saveToFile");
+        span.setData("augment", this.augment_key.getIdString());
 
-        if (data == null) {
-            return false;
-        }
+        try {
+            NbtCompound data;
+
+            try (SpanTracer.Span ignored = SpanTracer.start("writeToNbt")) {
+                data = instance.writeToNbt(new NbtCompound(), instance.getRegistryManager());
+            }
+
+            if (data == null) {
+                return false;
+            }
 
-        return this.saveToFile(file, data);
+            return this.saveToFile(file, data);
+        } catch (Throwable t) {
+            span.setThrowable(t);
+            throw t;
+        } finally {
+            span.finish();
+        }
     }
 
     /**
-     * Save the given NBT data entry to a file
+     * Save the given NBT data entry to a file.
+     * The data is snapshotted right away,
+     * but it is compressed & written on the augment I/O thread.
      *
      * @since    0.2.0
      */
@@ -547,16 +782,74 @@ public class AugmentManager<C extends Augment> {
         nbt_compound.put("data", data_to_wrap);
         NbtHelper.putDataVersion(nbt_compound);
 
-        try {
-            NbtIo.writeCompressed(nbt_compound, file.toPath());
-        } catch (IOException var4) {
-            BibServer.registerThrowable(var4, "Could not save augment data");
-            return false;
-        }
+        AugmentSaveQueue.enqueue(file.toPath(), nbt_compound);
 
         return true;
     }
 
+    /**
+     * Save the given NBT data entry to a chunk of the given region storage.
+     * Like files, it is written on the augment I/O thread.
+     *
+     * @since    0.2.0
+     */
+    public boolean saveToRegion(@NotNull AugmentRegionStorage storage, long chunk_key, @NotNull NbtCompound data_to_wrap) {
+
+        NbtCompound nbt_compound = new NbtCompound();
+        nbt_compound.put("data", data_to_wrap);
+        NbtHelper.putDataVersion(nbt_compound);
+
+        AugmentSaveQueue.enqueue(storage, chunk_key, nbt_compound);
+
+        return true;
+    }
+
+    /**
+     * Delete the given file (asynchronously)
+     *
+     * @since    0.2.0
+     */
+    public void deleteFile(@NotNull File file) {
+        AugmentSaveQueue.enqueueDelete(file.toPath());
+    }
+
+    /**
+     * Delete the data of the given chunk from the given region storage (asynchronously)
+     *
+     * @since    0.2.0
+     */
+    public void deleteFromRegion(@NotNull AugmentRegionStorage storage, long chunk_key) {
+        AugmentSaveQueue.enqueueDelete(storage, chunk_key);
+    }
+
+    /**
+     * Parse the NBT of the given chunk in the given region storage
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public NbtCompound parseRegionNbt(@NotNull AugmentRegionStorage storage, long chunk_key) {
+
+        // Data that is about to be deleted should not come back
+        if (AugmentSaveQueue.isPendingDeletion(storage, chunk_key)) {
+            return null;
+        }
+
+        // Data that has not been written yet is newer than what's on disk
+        NbtCompound pending = AugmentSaveQueue.getPending(storage, chunk_key);
+
+        if (pending != null) {
+            return pending.getCompound("data").copy();
+        }
+
+        try {
+            return unwrapNbt(storage.read(chunk_key));
+        } catch (Throwable t) {
+            BibServer.registerThrowable(t, "Failed to read augment data from region storage " + storage.getDirectory());
+            return null;
+        }
+    }
+
     /**
      * Parse the NBT from the given file
      *
@@ -570,6 +863,18 @@ public class AugmentManager<C extends Augment> {
             return null;
         }
 
+        // Data that is about to be deleted should not come back
+        if (AugmentSaveQueue.isPendingDeletion(expected_file.toPath())) {
+            return null;
+        }
+
+        // Data that has not been written yet is newer than what's on disk
+        NbtCompound pending = AugmentSaveQueue.getPending(expected_file.toPath());
+
+        if (pending != null) {
+            return pending.getCompound("data").copy();
+        }
+
         if (!expected_file.exists()) {
             return null;
         }
@@ -591,18 +896,7 @@ public class AugmentManager<C extends Augment> {
                 nbt_compound = BibData.read(data_input_stream);
             }
 
-            nbt_compound = BibData.performUpdates(nbt_compound);
-
-            if (nbt_compound != null) {
-
-                if (nbt_compound.contains("data")) {
-                    return nbt_compound.getCompound("data");
-                } else if (nbt_compound.contains("Data")) {
-                    return nbt_compound.getCompound("Data");
-                }
-
-                return null;
-            }
+            return unwrapNbt(nbt_compound);
 
         } catch (Throwable t) {
             BibServer.registerThrowable(t, "Failed to read augment data from file");
@@ -633,6 +927,31 @@ public class AugmentManager<C extends Augment> {
                 }
             }
         }
+    }
+
+    /**
+     * Update the given file-wrapped NBT & return its actual data
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public static NbtCompound unwrapNbt(@Nullable NbtCompound nbt_compound) {
+
+        if (nbt_compound == null) {
+            return null;
+        }
+
+        nbt_compound = BibData.performUpdates(nbt_compound);
+
+        if (nbt_compound == null) {
+            return null;
+        }
+
+        if (nbt_compound.contains("data")) {
+            return nbt_compound.getCompound("data");
+        } else if (nbt_compound.contains("Data")) {
+            return nbt_compound.getCompound("Data");
+        }
 
         return null;
     }
@@ -734,15 +1053,28 @@ public class AugmentManager<C extends Augment> {
      */
     public boolean readFromFile(C instance) {
 
-        NbtCompound nbt_data = this.getSavedNbt(instance);
+        // This is a hot path, so only use the in-process tracer (no Sentry transaction)
+        SpanTracer.Span span = SpanTracer.start("AugmentManager#readFromFile");
+        span.setData("augment", this.augment_key.getIdString());
 
-        if (nbt_data == null) {
-            return false;
-        }
+        try {
+            NbtCompound nbt_data = this.getSavedNbt(instance);
 
-        instance.readFromNbt(nbt_data, instance.getRegistryManager());
+            if (nbt_data == null) {
+                return false;
+            }
 
-        return true;
+            try (SpanTracer.Span ignored = SpanTracer.start("readFromNbt")) {
+                instance.readFromNbt(nbt_data, instance.getRegistryManager());
+            }
+
+            return true;
+        } catch (Throwable t) {
+            span.setThrowable(t);
+            throw t;
+        } finally {
+            span.finish();
+        }
     }
 
     /**
@@ -768,4 +1100,33 @@ public class AugmentManager<C extends Augment> {
 
         return bl;
     }
+
+    /**
+     * A PerWorld augment instance waiting for its data
+     *
+     * @since    0.2.0
+     */
+    private record PendingWorldAugment<C extends Augment.PerWorld>(AugmentKey.PerWorld<C> key, C instance) {
+
+        private static <C extends Augment.PerWorld> PendingWorldAugment<C> create(AugmentKey.PerWorld<C> key, ServerWorld world) {
+            return new PendingWorldAugment<>(key, key.createInstance(world));
+        }
+
+        private NbtCompound parse() {
+            return this.key.manager.getSavedNbt(this.instance);
+        }
+
+        private void apply(NbtCompound nbt) {
+            this.instance.readFromNbt(nbt, this.instance.getRegistryManager());
+        }
+
+        private void cache(ServerWorld world) {
+            this.key.putLoadedInstance(world, this.instance);
+        }
+
+        @Override
+        public String toString() {
+            return this.key.getId().toString();
+        }
+    }
 }
@@ -0,0 +1,389 @@
+package rocks.blackblock.bib.augment;
+
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.NotNull;
+import rocks.blackblock.bib.collection.RollingHistogram;
+import rocks.blackblock.bib.command.CommandLeaf;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Measures how much time each augment key spends ticking, saving & serializing.
+ * <p>
+ * Every augment key has a {@link Profile} with one {@link Stats} instance per phase,
+ * so recording a duration is a field access and a few additions.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public final class AugmentProfiler {
+
+    // Is profiling enabled?
+    private static volatile boolean ENABLED = true;
+
+    // How many keys to show in the command output
+    private static final int COMMAND_LIMIT = 10;
+
+    /**
+     * Don't let anyone instantiate this class
+     *
+     * @since    0.2.0
+     */
+    private AugmentProfiler() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Is profiling enabled?
+     *
+     * @since    0.2.0
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Enable or disable profiling
+     *
+     * @since    0.2.0
+     */
+    public static void setEnabled(boolean enabled) {
+        ENABLED = enabled;
+    }
+
+    /**
+     * Get the current time if profiling is enabled
+     *
+     * @since    0.2.0
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the time since the given start for the given key & phase
+     *
+     * @since    0.2.0
+     */
+    public static void record(AugmentKey<?> key, Phase phase, long start_ns) {
+
+        if (start_ns == 0) {
+            return;
+        }
+
+        key.getProfile().get(phase).record(System.nanoTime() - start_ns);
+    }
+
+    /**
+     * Reset the statistics of all the keys
+     *
+     * @since    0.2.0
+     */
+    public static void reset() {
+        for (AugmentKey<?> key : Augment.ALL_AUGMENTS.keySet()) {
+            key.getProfile().reset();
+        }
+    }
+
+    /**
+     * Get a snapshot of the statistics of all the keys
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public static List<Snapshot> getSnapshot() {
+
+        List<Snapshot> result = new ArrayList<>();
+
+        for (AugmentKey<?> key : Augment.ALL_AUGMENTS.keySet()) {
+            for (Phase phase : Phase.values()) {
+                Snapshot snapshot = key.getProfile().get(phase).snapshot(key.getId(), phase);
+
+                if (snapshot.calls() > 0) {
+                    result.add(snapshot);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get a snapshot of the given phase, sorted by total time (descending)
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public static List<Snapshot> getSnapshot(Phase phase) {
+
+        List<Snapshot> result = new ArrayList<>();
+
+        for (Snapshot snapshot : getSnapshot()) {
+            if (snapshot.phase() == phase) {
+                result.add(snapshot);
+            }
+        }
+
+        result.sort(Comparator.comparingLong(Snapshot::total_ns).reversed());
+
+        return result;
+    }
+
+    /**
+     * Add the `augments` command to the given leaf
+     *
+     * @since    0.2.0
+     */
+    public static CommandLeaf addToCommandLeaf(CommandLeaf parent_leaf) {
+
+        CommandLeaf augments_leaf = parent_leaf.getChild("augments");
+        augments_leaf.onExecute(context -> showPhase(context, Phase.TICK));
+
+        for (Phase phase : Phase.values()) {
+            augments_leaf.getChild(phase.getName()).onExecute(context -> showPhase(context, phase));
+        }
+
+        augments_leaf.getChild("reset").onExecute(context -> {
+            reset();
+            context.getSource().sendFeedback(() -> Text.literal("Augment profiler statistics have been reset"), false);
+            return 1;
+        });
+
+        augments_leaf.getChild("enable").onExecute(context -> {
+            setEnabled(true);
+            context.getSource().sendFeedback(() -> Text.literal("Augment profiler enabled"), false);
+            return 1;
+        });
+
+        augments_leaf.getChild("disable").onExecute(context -> {
+            setEnabled(false);
+            context.getSource().sendFeedback(() -> Text.literal("Augment profiler disabled"), false);
+            return 1;
+        });
+
+        return augments_leaf;
+    }
+
+    /**
+     * Show the most expensive keys of the given phase
+     *
+     * @since    0.2.0
+     */
+    private static int showPhase(CommandContext<ServerCommandSource> context, Phase phase) {
+
+        ServerCommandSource source = context.getSource();
+        List<Snapshot> snapshots = getSnapshot(phase);
+
+        if (snapshots.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("No augment " + phase.getName() + " timings recorded yet").formatted(Formatting.GRAY), false);
+            return 1;
+        }
+
+        MutableText text = Text.literal("Augment " + phase.getName() + " timings:").formatted(Formatting.YELLOW);
+
+        for (int i = 0; i < snapshots.size() && i < COMMAND_LIMIT; i++) {
+            text.append(Text.literal("\n")).append(snapshots.get(i).toTextLine());
+        }
+
+        if (snapshots.size() > COMMAND_LIMIT) {
+            text.append(Text.literal("\n... and " + (snapshots.size() - COMMAND_LIMIT) + " more").formatted(Formatting.GRAY));
+        }
+
+        source.sendFeedback(() -> text, false);
+
+        return 1;
+    }
+
+    /**
+     * Format the given nanoseconds as milliseconds
+     *
+     * @since    0.2.0
+     */
+    private static String formatMs(double ns) {
+        return String.format("%.3fms", ns / 1_000_000.0);
+    }
+
+    /**
+     * The things that get measured
+     *
+     * @since    0.2.0
+     */
+    public enum Phase {
+        TICK,
+        SAVE,
+        SERIALIZE;
+
+        /**
+         * Get the name as used in commands
+         *
+         * @since    0.2.0
+         */
+        public String getName() {
+            return this.name().toLowerCase();
+        }
+    }
+
+    /**
+     * All the statistics of a single augment key
+     *
+     * @since    0.2.0
+     */
+    public static final class Profile {
+
+        private final Stats[] stats = new Stats[Phase.values().length];
+
+        /**
+         * Create a new profile
+         *
+         * @since    0.2.0
+         */
+        Profile() {
+            for (int i = 0; i < this.stats.length; i++) {
+                this.stats[i] = new Stats();
+            }
+        }
+
+        /**
+         * Get the statistics of the given phase
+         *
+         * @since    0.2.0
+         */
+        public Stats get(Phase phase) {
+            return this.stats[phase.ordinal()];
+        }
+
+        /**
+         * Reset all the statistics
+         *
+         * @since    0.2.0
+         */
+        public void reset() {
+            for (Stats stats : this.stats) {
+                stats.reset();
+            }
+        }
+    }
+
+    /**
+     * The statistics of a single phase of a single augment key.
+     * Chunk serialization can happen off the main thread,
+     * so recording is synchronized (it is practically never contended).
+     *
+     * @since    0.2.0
+     */
+    public static final class Stats {
+
+        private long calls = 0;
+        private long total_ns = 0;
+        private long max_ns = 0;
+
+        // Only created once something is recorded (most keys never are),
+        // and only the one minute window the p99 uses is kept
+        private RollingHistogram histogram = null;
+
+        /**
+         * Record a duration
+         *
+         * @since    0.2.0
+         */
+        public synchronized void record(long duration_ns) {
+
+            this.calls++;
+            this.total_ns += duration_ns;
+
+            if (duration_ns > this.max_ns) {
+                this.max_ns = duration_ns;
+            }
+
+            if (this.histogram == null) {
+                this.histogram = new RollingHistogram(RollingHistogram.Window.ONE_MINUTE);
+            }
+
+            this.histogram.recordNanos(duration_ns);
+        }
+
+        /**
+         * Reset the statistics
+         *
+         * @since    0.2.0
+         */
+        public synchronized void reset() {
+            this.calls = 0;
+            this.total_ns = 0;
+            this.max_ns = 0;
+            this.histogram = null;
+        }
+
+        /**
+         * Create a snapshot
+         *
+         * @since    0.2.0
+         */
+        public synchronized Snapshot snapshot(Identifier id, Phase phase) {
+            return new Snapshot(
+                    id,
+                    phase,
+                    this.calls,
+                    this.total_ns,
+                    this.max_ns,
+                    this.histogram == null ? 0 : this.histogram.getPercentile(RollingHistogram.Window.ONE_MINUTE, 99) * 1000
+            );
+        }
+    }
+
+    /**
+     * A snapshot of the statistics of a single phase of a single augment key
+     *
+     * @param    id         The id of the augment key
+     * @param    phase      The measured phase
+     * @param    calls      How many times it was measured
+     * @param    total_ns   The total duration
+     * @param    max_ns     The longest duration
+     * @param    p99_ns     The 99th percentile of the last minute
+     *
+     * @since    0.2.0
+     */
+    public record Snapshot(Identifier id, Phase phase, long calls, long total_ns, long max_ns, long p99_ns) {
+
+        /**
+         * Get the average duration
+         *
+         * @since    0.2.0
+         */
+        public double getAverageNs() {
+
+            if (this.calls == 0) {
+                return 0;
+            }
+
+            return (double) this.total_ns / this.calls;
+        }
+
+        /**
+         * Create a MutableText representation of this snapshot
+         *
+         * @since    0.2.0
+         */
+        public MutableText toTextLine() {
+            return Text.literal(" - ")
+                    .append(Text.literal(this.id.toString()).formatted(Formatting.AQUA))
+                    .append(Text.literal(" total ").formatted(Formatting.GRAY))
+                    .append(Text.literal(formatMs(this.total_ns)))
+                    .append(Text.literal(" avg ").formatted(Formatting.GRAY))
+                    .append(Text.literal(formatMs(this.getAverageNs())))
+                    .append(Text.literal(" p99 ").formatted(Formatting.GRAY))
+                    .append(Text.literal(formatMs(this.p99_ns)))
+                    .append(Text.literal(" max ").formatted(Formatting.GRAY))
+                    .append(Text.literal(formatMs(this.max_ns)))
+                    .append(Text.literal(" (" + this.calls + " calls)").formatted(Formatting.GRAY));
+        }
+    }
+}
@@ -0,0 +1,574 @@
+package rocks.blackblock.bib.augment;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import rocks.blackblock.bib.util.BibData;
+import rocks.blackblock.bib.util.BibServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores augment data of many chunks in region files,
+ * like the vanilla Anvil format does for chunks:
+ * each file contains 32x32 chunks, starting with an offset table
+ * followed by sector-aligned, compressed NBT payloads.
+ * Reads are done via a memory-mapped view of the region file.
+ * <p>
+ * All methods are synchronized, so the storage can be read on the server thread
+ * while the augment I/O thread writes to it.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@ApiStatus.Internal
+public class AugmentRegionStorage {
+
+    // The extension of region files
+    public static final String EXTENSION = ".bbr";
+
+    // The pattern of region file names
+    private static final Pattern REGION_FILE_PATTERN = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.bbr");
+
+    // The size of a sector in bytes
+    private static final int SECTOR_SIZE = 4096;
+
+    // The amount of chunks per region side
+    private static final int REGION_SIZE = 32;
+
+    // The amount of chunks in a region
+    private static final int CHUNKS_PER_REGION = REGION_SIZE * REGION_SIZE;
+
+    // The sector count is stored in a single byte
+    private static final int MAX_SECTORS_PER_CHUNK = 255;
+
+    // All the storages that might still have open files
+    private static final Set<AugmentRegionStorage> OPEN_STORAGES = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    // The directory containing the region files
+    private final Path directory;
+
+    // The region files that are currently open
+    private final Long2ObjectMap<RegionFile> open_regions = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Create a storage for the given directory
+     *
+     * @since    0.2.0
+     */
+    public AugmentRegionStorage(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Close the files of all the storages
+     *
+     * @since    0.2.0
+     */
+    public static void closeAll() {
+
+        List<AugmentRegionStorage> storages;
+
+        synchronized (OPEN_STORAGES) {
+            storages = new ArrayList<>(OPEN_STORAGES);
+        }
+
+        for (AugmentRegionStorage storage : storages) {
+            storage.close();
+        }
+    }
+
+    /**
+     * Get the directory of this storage
+     *
+     * @since    0.2.0
+     */
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Get the path of the given region file
+     *
+     * @since    0.2.0
+     */
+    public Path getRegionPath(int region_x, int region_z) {
+        return this.directory.resolve("r." + region_x + "." + region_z + EXTENSION);
+    }
+
+    /**
+     * Read the raw (file-wrapped) NBT of the given chunk.
+     * Only copying the bytes happens under the lock,
+     * so multiple threads can decompress at the same time.
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public NbtCompound read(long chunk_key) throws IOException {
+
+        byte[] bytes = this.readBytes(chunk_key);
+
+        if (bytes == null) {
+            return null;
+        }
+
+        return NbtIo.readCompressed(new ByteArrayInputStream(bytes), NbtSizeTracker.ofUnlimitedBytes());
+    }
+
+    /**
+     * Read the compressed bytes of the given chunk
+     *
+     * @since    0.2.0
+     */
+    private synchronized byte[] readBytes(long chunk_key) throws IOException {
+
+        int chunk_x = ChunkPos.getPackedX(chunk_key);
+        int chunk_z = ChunkPos.getPackedZ(chunk_key);
+
+        RegionFile region = this.getRegion(chunk_x >> 5, chunk_z >> 5, false);
+
+        if (region == null) {
+            return null;
+        }
+
+        return region.read(getLocalIndex(chunk_x, chunk_z));
+    }
+
+    /**
+     * Write the raw (file-wrapped) NBT of the given chunk
+     *
+     * @since    0.2.0
+     */
+    public synchronized void write(long chunk_key, NbtCompound nbt) throws IOException {
+
+        int chunk_x = ChunkPos.getPackedX(chunk_key);
+        int chunk_z = ChunkPos.getPackedZ(chunk_key);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
+        NbtIo.writeCompressed(nbt, output);
+
+        RegionFile region = this.getRegion(chunk_x >> 5, chunk_z >> 5, true);
+        region.write(getLocalIndex(chunk_x, chunk_z), output.toByteArray());
+    }
+
+    /**
+     * Remove the data of the given chunk
+     *
+     * @since    0.2.0
+     */
+    public synchronized void delete(long chunk_key) throws IOException {
+
+        int chunk_x = ChunkPos.getPackedX(chunk_key);
+        int chunk_z = ChunkPos.getPackedZ(chunk_key);
+
+        RegionFile region = this.getRegion(chunk_x >> 5, chunk_z >> 5, false);
+
+        if (region != null) {
+            region.delete(getLocalIndex(chunk_x, chunk_z));
+        }
+    }
+
+    /**
+     * Does the given chunk have any data?
+     *
+     * @since    0.2.0
+     */
+    public synchronized boolean hasChunk(long chunk_key) throws IOException {
+
+        int chunk_x = ChunkPos.getPackedX(chunk_key);
+        int chunk_z = ChunkPos.getPackedZ(chunk_key);
+
+        RegionFile region = this.getRegion(chunk_x >> 5, chunk_z >> 5, false);
+
+        return region != null && region.has(getLocalIndex(chunk_x, chunk_z));
+    }
+
+    /**
+     * Get the packed positions of all the chunks that have data.
+     * This only reads the offset tables.
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public synchronized LongList getStoredChunks() throws IOException {
+
+        LongList result = new LongArrayList();
+
+        if (!Files.isDirectory(this.directory)) {
+            return result;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + EXTENSION)) {
+            for (Path entry : stream) {
+                Matcher matcher = REGION_FILE_PATTERN.matcher(entry.getFileName().toString());
+
+                if (!matcher.matches()) {
+                    continue;
+                }
+
+                int region_x = Integer.parseInt(matcher.group(1));
+                int region_z = Integer.parseInt(matcher.group(2));
+
+                RegionFile region = this.getRegion(region_x, region_z, false);
+
+                if (region == null) {
+                    continue;
+                }
+
+                for (int index = 0; index < CHUNKS_PER_REGION; index++) {
+                    if (region.has(index)) {
+                        result.add(ChunkPos.toLong((region_x << 5) + (index & 31), (region_z << 5) + (index >> 5)));
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Move all the given per-chunk files into this storage,
+     * and delete them afterward.
+     * The legacy files are only deleted once the region files have been forced to disk.
+     *
+     * @since    0.2.0
+     *
+     * @return   The amount of migrated files
+     */
+    public int migrateChunkFiles(Path legacy_directory, Pattern file_pattern) throws IOException {
+
+        if (!Files.isDirectory(legacy_directory)) {
+            return 0;
+        }
+
+        List<Path> migrated_files = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(legacy_directory)) {
+            for (Path entry : stream) {
+                Matcher matcher = file_pattern.matcher(entry.getFileName().toString());
+
+                if (!matcher.matches()) {
+                    continue;
+                }
+
+                long chunk_key = ChunkPos.toLong(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+
+                try {
+                    NbtCompound nbt = BibData.readCompressed(entry);
+                    this.write(chunk_key, nbt);
+                    migrated_files.add(entry);
+                } catch (Throwable t) {
+                    BibServer.registerThrowable(t, "Failed to migrate augment file " + entry + " to region storage");
+                }
+            }
+        }
+
+        if (migrated_files.isEmpty()) {
+            return 0;
+        }
+
+        // Make sure the migrated data survives a crash before the originals are gone
+        this.force();
+
+        int migrated = 0;
+
+        for (Path entry : migrated_files) {
+            try {
+                Files.delete(entry);
+                migrated++;
+            } catch (IOException e) {
+                BibServer.registerThrowable(e, "Failed to delete migrated augment file " + entry);
+            }
+        }
+
+        return migrated;
+    }
+
+    /**
+     * Force all the open region files to disk
+     *
+     * @since    0.2.0
+     */
+    public synchronized void force() throws IOException {
+        for (RegionFile region : this.open_regions.values()) {
+            region.channel.force(true);
+        }
+    }
+
+    /**
+     * Close all the open region files
+     *
+     * @since    0.2.0
+     */
+    public synchronized void close() {
+
+        for (RegionFile region : this.open_regions.values()) {
+            try {
+                region.close();
+            } catch (IOException e) {
+                BibServer.registerThrowable(e, "Failed to close augment region file " + region.path);
+            }
+        }
+
+        this.open_regions.clear();
+        OPEN_STORAGES.remove(this);
+    }
+
+    /**
+     * Get the index of the given chunk inside its region
+     *
+     * @since    0.2.0
+     */
+    private static int getLocalIndex(int chunk_x, int chunk_z) {
+        return (chunk_x & 31) | ((chunk_z & 31) << 5);
+    }
+
+    /**
+     * Get (or open) the given region file
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    private RegionFile getRegion(int region_x, int region_z, boolean create) throws IOException {
+
+        long region_key = ChunkPos.toLong(region_x, region_z);
+        RegionFile region = this.open_regions.get(region_key);
+
+        if (region != null) {
+            return region;
+        }
+
+        Path path = this.getRegionPath(region_x, region_z);
+
+        if (!create && !Files.exists(path)) {
+            return null;
+        }
+
+        if (create) {
+            Files.createDirectories(this.directory);
+        }
+
+        region = new RegionFile(path);
+        this.open_regions.put(region_key, region);
+        OPEN_STORAGES.add(this);
+
+        return region;
+    }
+
+    /**
+     * A single region file
+     *
+     * @since    0.2.0
+     */
+    private static class RegionFile {
+
+        private final Path path;
+        private final FileChannel channel;
+
+        // The location of each chunk: (sector offset << 8) | sector count
+        private final int[] locations = new int[CHUNKS_PER_REGION];
+
+        // The sectors that are in use
+        private final BitSet used_sectors = new BitSet();
+
+        // The read-only mapped view (remapped once the file has grown past it)
+        private MappedByteBuffer mapped = null;
+
+        // The current size of the file
+        private long size;
+
+        private RegionFile(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            // The first sector is the offset table
+            this.used_sectors.set(0);
+
+            long size = this.channel.size();
+            this.size = size;
+
+            if (size < SECTOR_SIZE) {
+                this.writeFully(ByteBuffer.allocate(SECTOR_SIZE), 0);
+                return;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(SECTOR_SIZE);
+            this.channel.read(header, 0);
+            header.flip();
+
+            long total_sectors = (size + SECTOR_SIZE - 1) / SECTOR_SIZE;
+
+            for (int index = 0; index < CHUNKS_PER_REGION; index++) {
+                int location = header.getInt();
+                int offset = location >>> 8;
+                int count = location & 0xFF;
+
+                // Ignore corrupt entries
+                if (location == 0 || offset < 1 || count == 0 || offset + count > total_sectors) {
+                    continue;
+                }
+
+                this.locations[index] = location;
+                this.used_sectors.set(offset, offset + count);
+            }
+        }
+
+        private boolean has(int index) {
+            return this.locations[index] != 0;
+        }
+
+        /**
+         * Read the compressed bytes at the given index via the mapped buffer
+         */
+        @Nullable
+        private byte[] read(int index) throws IOException {
+
+            int location = this.locations[index];
+
+            if (location == 0) {
+                return null;
+            }
+
+            MappedByteBuffer view = this.getMapped();
+            int position = (location >>> 8) * SECTOR_SIZE;
+            int max_length = (location & 0xFF) * SECTOR_SIZE - 4;
+
+            if (position + 4 > view.capacity()) {
+                return null;
+            }
+
+            int length = view.getInt(position);
+
+            if (length <= 0 || length > max_length || position + 4 + length > view.capacity()) {
+                throw new IOException("Corrupt augment region entry " + index + " in " + this.path);
+            }
+
+            byte[] bytes = new byte[length];
+            view.get(position + 4, bytes);
+
+            return bytes;
+        }
+
+        /**
+         * Write the given compressed bytes at the given index.
+         * New sectors are written before the offset table is updated,
+         * so the old data stays intact until the new data is complete.
+         */
+        private void write(int index, byte[] bytes) throws IOException {
+
+            int sector_count = (bytes.length + 4 + SECTOR_SIZE - 1) / SECTOR_SIZE;
+
+            if (sector_count > MAX_SECTORS_PER_CHUNK) {
+                throw new IOException("Augment data of region entry " + index + " is too large: " + bytes.length + " bytes");
+            }
+
+            int offset = this.findFreeSectors(sector_count);
+
+            ByteBuffer buffer = ByteBuffer.allocate(sector_count * SECTOR_SIZE);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+            buffer.rewind();
+
+            this.writeFully(buffer, (long) offset * SECTOR_SIZE);
+            this.used_sectors.set(offset, offset + sector_count);
+
+            this.setLocation(index, (offset << 8) | sector_count);
+        }
+
+        /**
+         * Remove the data at the given index
+         */
+        private void delete(int index) throws IOException {
+            if (this.locations[index] != 0) {
+                this.setLocation(index, 0);
+            }
+        }
+
+        /**
+         * Update the offset table & free the old sectors
+         */
+        private void setLocation(int index, int location) throws IOException {
+
+            int old_location = this.locations[index];
+
+            ByteBuffer entry = ByteBuffer.allocate(4);
+            entry.putInt(location);
+            entry.rewind();
+            this.writeFully(entry, index * 4L);
+
+            this.locations[index] = location;
+
+            if (old_location != 0) {
+                int old_offset = old_location >>> 8;
+                this.used_sectors.clear(old_offset, old_offset + (old_location & 0xFF));
+            }
+        }
+
+        /**
+         * Find the first run of free sectors of the given size
+         */
+        private int findFreeSectors(int sector_count) {
+
+            int start = this.used_sectors.nextClearBit(1);
+
+            while (true) {
+                int next_used = this.used_sectors.nextSetBit(start);
+
+                if (next_used == -1 || next_used - start >= sector_count) {
+                    return start;
+                }
+
+                start = this.used_sectors.nextClearBit(next_used);
+            }
+        }
+
+        private void writeFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += this.channel.write(buffer, position);
+            }
+
+            if (position > this.size) {
+                this.size = position;
+            }
+        }
+
+        /**
+         * Get the mapped view of the file.
+         * Writes within the mapped range are visible through it,
+         * so it only has to be remapped when the file has grown.
+         */
+        private MappedByteBuffer getMapped() throws IOException {
+
+            if (this.mapped == null || this.mapped.capacity() < this.size) {
+                this.mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+            }
+
+            return this.mapped;
+        }
+
+        private void close() throws IOException {
+            this.mapped = null;
+            this.channel.close();
+        }
+    }
+}
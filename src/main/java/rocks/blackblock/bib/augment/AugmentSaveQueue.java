@@ -0,0 +1,426 @@
+package rocks.blackblock.bib.augment;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+import rocks.blackblock.bib.util.BibServer;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes augment data to disk on a dedicated I/O thread.
+ * <p>
+ * The NBT snapshot is taken on the calling (main) thread,
+ * compressing & writing happens on the I/O thread.
+ * Multiple saves of the same file before it is written are coalesced:
+ * only the newest snapshot is written.
+ * Files are written to a temporary file first and then moved in place,
+ * so a crash never leaves a half-written augment file behind.
+ * Deletions go through the same queue, so they are ordered with the writes.
+ * A snapshot that fails to write stays pending (so readers still see it)
+ * and is retried with an increasing delay.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@ApiStatus.Internal
+public final class AugmentSaveQueue {
+
+    // The snapshots waiting to be written, per target (file or region chunk)
+    private static final Map<Object, Snapshot> PENDING = new ConcurrentHashMap<>();
+
+    // The amount of files (or region chunks) that have been written
+    private static final AtomicLong WRITTEN_COUNT = new AtomicLong();
+
+    // The amount of saves that were coalesced into a newer one
+    private static final AtomicLong COALESCED_COUNT = new AtomicLong();
+
+    // The amount of failed writes
+    private static final AtomicLong FAILED_COUNT = new AtomicLong();
+
+    // The targets whose last write failed & are waiting for a retry
+    private static final Set<Object> FAILING = ConcurrentHashMap.newKeySet();
+
+    // The first & maximum delay before retrying a failed write
+    private static final long MIN_RETRY_DELAY_MS = 1_000;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+
+    // The single I/O thread, so writes of the same file never overlap
+    // (tasks without a delay run in submission order)
+    private static final ScheduledExecutorService IO_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Bib-Augment-IO");
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler((t, e) -> BibServer.registerThrowable(e, "Augment I/O thread failed"));
+        return thread;
+    });
+
+    /**
+     * Don't let anyone instantiate this class
+     *
+     * @since    0.2.0
+     */
+    private AugmentSaveQueue() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Queue the given (complete) file contents to be written.
+     * The compound is copied, so the caller can keep modifying its own data.
+     *
+     * @since    0.2.0
+     */
+    public static void enqueue(Path path, NbtCompound file_nbt) {
+        enqueue(path, file_nbt, nbt -> writeAtomically(path, nbt));
+    }
+
+    /**
+     * Queue the given (complete) chunk contents to be written to a region storage.
+     * The compound is copied, so the caller can keep modifying its own data.
+     *
+     * @since    0.2.0
+     */
+    public static void enqueue(AugmentRegionStorage storage, long chunk_key, NbtCompound chunk_nbt) {
+        enqueue(new RegionChunk(storage, chunk_key), chunk_nbt, nbt -> storage.write(chunk_key, nbt));
+    }
+
+    /**
+     * Queue the deletion of the given file
+     *
+     * @since    0.2.0
+     */
+    public static void enqueueDelete(Path path) {
+        enqueue(path, null, nbt -> Files.deleteIfExists(path));
+    }
+
+    /**
+     * Queue the deletion of the given chunk from a region storage
+     *
+     * @since    0.2.0
+     */
+    public static void enqueueDelete(AugmentRegionStorage storage, long chunk_key) {
+        enqueue(new RegionChunk(storage, chunk_key), null, nbt -> storage.delete(chunk_key));
+    }
+
+    /**
+     * Queue the given snapshot for the given target.
+     * A null snapshot means the target has to be deleted.
+     *
+     * @since    0.2.0
+     */
+    private static void enqueue(Object target, @Nullable NbtCompound nbt, Writer writer) {
+
+        Snapshot snapshot = new Snapshot(nbt == null ? null : nbt.copy(), writer);
+
+        if (PENDING.put(target, snapshot) != null) {
+            // A write of this target is already queued, it'll pick up this snapshot
+            COALESCED_COUNT.incrementAndGet();
+            return;
+        }
+
+        try {
+            IO_EXECUTOR.execute(() -> writePending(target));
+        } catch (RejectedExecutionException e) {
+            // Should never happen, but don't lose any data if it does
+            writePending(target);
+        }
+    }
+
+    /**
+     * Get the snapshot that is still waiting to be written to the given file.
+     * Readers should use this instead of the (outdated) file contents.
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public static NbtCompound getPending(Path path) {
+        return getPendingNbt(path);
+    }
+
+    /**
+     * Get the snapshot that is still waiting to be written to the given region chunk.
+     * Readers should use this instead of the (outdated) region contents.
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public static NbtCompound getPending(AugmentRegionStorage storage, long chunk_key) {
+        return getPendingNbt(new RegionChunk(storage, chunk_key));
+    }
+
+    /**
+     * Is the given file waiting to be deleted?
+     * Readers should then act as if it doesn't exist anymore.
+     *
+     * @since    0.2.0
+     */
+    public static boolean isPendingDeletion(Path path) {
+        return isPendingDeletion((Object) path);
+    }
+
+    /**
+     * Is the given region chunk waiting to be deleted?
+     *
+     * @since    0.2.0
+     */
+    public static boolean isPendingDeletion(AugmentRegionStorage storage, long chunk_key) {
+        return isPendingDeletion(new RegionChunk(storage, chunk_key));
+    }
+
+    /**
+     * Is the given target waiting to be deleted?
+     *
+     * @since    0.2.0
+     */
+    private static boolean isPendingDeletion(Object target) {
+
+        Snapshot snapshot = PENDING.get(target);
+
+        return snapshot != null && snapshot.nbt() == null;
+    }
+
+    /**
+     * Get the pending NBT of the given target
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    private static NbtCompound getPendingNbt(Object target) {
+
+        Snapshot snapshot = PENDING.get(target);
+
+        if (snapshot == null) {
+            return null;
+        }
+
+        return snapshot.nbt();
+    }
+
+    /**
+     * Get the amount of files that are waiting to be written
+     *
+     * @since    0.2.0
+     */
+    public static int getPendingCount() {
+        return PENDING.size();
+    }
+
+    /**
+     * Get the amount of files that have been written
+     *
+     * @since    0.2.0
+     */
+    public static long getWrittenCount() {
+        return WRITTEN_COUNT.get();
+    }
+
+    /**
+     * Get the amount of targets whose last write failed
+     * and that are waiting to be retried
+     *
+     * @since    0.2.0
+     */
+    public static int getFailingCount() {
+        return FAILING.size();
+    }
+
+    /**
+     * Get the amount of writes that failed
+     *
+     * @since    0.2.0
+     */
+    public static long getFailedCount() {
+        return FAILED_COUNT.get();
+    }
+
+    /**
+     * Get the amount of saves that were replaced by a newer one
+     * before they were written
+     *
+     * @since    0.2.0
+     */
+    public static long getCoalescedCount() {
+        return COALESCED_COUNT.get();
+    }
+
+    /**
+     * Wait for all the currently queued writes to finish.
+     * Failed writes are retried right away instead of waiting for their delay.
+     * This blocks the calling thread, so it should only be used
+     * for explicit flushes & when shutting down.
+     *
+     * @since    0.2.0
+     *
+     * @return   True if everything was written in time
+     */
+    public static boolean flush(long timeout_in_ms) {
+
+        Future<?> barrier;
+
+        try {
+            // The executor is single-threaded: once this runs, all earlier writes are done
+            barrier = IO_EXECUTOR.submit(() -> {
+                for (Object target : FAILING.toArray()) {
+                    writePending(target);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return PENDING.isEmpty();
+        }
+
+        try {
+            barrier.get(timeout_in_ms, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            BibServer.registerThrowable(e, "Failed to flush the augment save queue");
+            return false;
+        }
+
+        return FAILING.isEmpty();
+    }
+
+    /**
+     * Write the pending snapshot of the given target (on the I/O thread)
+     *
+     * @since    0.2.0
+     */
+    private static void writePending(Object target) {
+
+        Snapshot snapshot = PENDING.get(target);
+
+        while (snapshot != null) {
+
+            try {
+                snapshot.writer().write(snapshot.nbt());
+                WRITTEN_COUNT.incrementAndGet();
+                FAILING.remove(target);
+            } catch (Throwable t) {
+                FAILED_COUNT.incrementAndGet();
+                BibServer.registerThrowable(t, "Could not save augment data to " + target);
+
+                Snapshot newest = PENDING.get(target);
+
+                // Only retry this snapshot if nothing newer has been queued in the meantime
+                if (newest == snapshot) {
+                    scheduleRetry(target, snapshot);
+                    return;
+                }
+
+                snapshot = newest;
+                continue;
+            }
+
+            // If a newer snapshot arrived while writing, it was coalesced into this task
+            if (PENDING.remove(target, snapshot)) {
+                return;
+            }
+
+            snapshot = PENDING.get(target);
+        }
+    }
+
+    /**
+     * Keep the failed snapshot pending & try writing it again later.
+     * The owner already considers it saved, so dropping it would lose data.
+     *
+     * @since    0.2.0
+     */
+    private static void scheduleRetry(Object target, Snapshot snapshot) {
+
+        FAILING.add(target);
+
+        snapshot.attempts++;
+        long delay = Math.min(MAX_RETRY_DELAY_MS, MIN_RETRY_DELAY_MS << Math.min(snapshot.attempts - 1, 6));
+
+        try {
+            IO_EXECUTOR.schedule(() -> writePending(target), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The executor is gone, nothing left to do
+        }
+    }
+
+    /**
+     * Write the given NBT to a temporary file and move it in place
+     *
+     * @since    0.2.0
+     */
+    private static void writeAtomically(Path path, NbtCompound nbt) throws IOException {
+
+        Path parent = path.getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        Path temp_path = path.resolveSibling(path.getFileName() + ".tmp");
+
+        NbtIo.writeCompressed(nbt, temp_path);
+
+        try {
+            Files.move(temp_path, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp_path, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Something that writes a snapshot somewhere
+     *
+     * @since    0.2.0
+     */
+    @FunctionalInterface
+    private interface Writer {
+        void write(NbtCompound nbt) throws IOException;
+    }
+
+    /**
+     * A queued snapshot.
+     * (Compared by identity, so a newer but equal snapshot is never lost)
+     *
+     * @since    0.2.0
+     */
+    private static final class Snapshot {
+
+        private final NbtCompound nbt;
+        private final Writer writer;
+
+        // How many times writing this snapshot failed (only used on the I/O thread)
+        private int attempts = 0;
+
+        private Snapshot(NbtCompound nbt, Writer writer) {
+            this.nbt = nbt;
+            this.writer = writer;
+        }
+
+        private NbtCompound nbt() {
+            return this.nbt;
+        }
+
+        private Writer writer() {
+            return this.writer;
+        }
+    }
+
+    /**
+     * The target key of a chunk inside a region storage
+     *
+     * @since    0.2.0
+     */
+    private record RegionChunk(AugmentRegionStorage storage, long chunk_key) {
+        @Override
+        public String toString() {
+            return storage.getDirectory() + " chunk " + ChunkPos.getPackedX(chunk_key) + "x" + ChunkPos.getPackedZ(chunk_key);
+        }
+    }
+}
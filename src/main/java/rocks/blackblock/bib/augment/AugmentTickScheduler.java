@@ -0,0 +1,411 @@
+package rocks.blackblock.bib.augment;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.chunk.Chunk;
+import org.jetbrains.annotations.ApiStatus;
+import rocks.blackblock.bib.util.BibChunk;
+import rocks.blackblock.bib.util.BibPerf;
+import rocks.blackblock.bib.util.BibServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Decides which augment instances tick on which server tick.
+ * <p>
+ * Every instance is put in one of `interval` round-robin buckets,
+ * so instances with an interval of 4 are spread over 4 consecutive ticks.
+ * When the world is busy, intervals are stretched depending on the instance's priority.
+ * All the augment ticking of a world shares a per-tick time budget:
+ * instances that do not fit in it are deferred to the start of the next tick.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public class AugmentTickScheduler {
+
+    // The scheduler of each world.
+    // Each scheduler references its world, so they have to be removed when the world unloads
+    private static final Map<ServerWorld, AugmentTickScheduler> SCHEDULERS = new WeakHashMap<>();
+
+    // How many milliseconds the augments of a single world can use per tick
+    private static double BUDGET_MS = 10.0;
+
+    // The world this schedules for
+    private final ServerWorld world;
+
+    // The server tick we're currently in
+    private int current_tick = Integer.MIN_VALUE;
+
+    // How long the augments have been ticking during the current tick
+    private long spent_ns = 0;
+
+    // The interval multiplier of the current tick (based on the world's state)
+    private int stretch = 1;
+
+    // Is the random disabler active for the current tick?
+    private boolean randomly_disabled = false;
+
+    // Instances that did not fit in the previous tick's budget
+    private List<Deferred<?, ?>> deferred = new ArrayList<>();
+
+    // Instances that are being deferred during this tick
+    private List<Deferred<?, ?>> next_deferred = new ArrayList<>();
+
+    // Instances that already ticked during this tick because they were deferred
+    private final ReferenceOpenHashSet<Object> ticked_deferred = new ReferenceOpenHashSet<>();
+
+    // Instances that are waiting in one of the deferred lists
+    private final ReferenceOpenHashSet<Object> deferred_instances = new ReferenceOpenHashSet<>();
+
+    // Statistics of the previous tick
+    private long last_spent_ns = 0;
+    private int last_deferred_count = 0;
+
+    /**
+     * Create a scheduler for the given world
+     *
+     * @since    0.2.0
+     */
+    private AugmentTickScheduler(ServerWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * Get the scheduler of the given world.
+     * Only call this from the server thread.
+     *
+     * @since    0.2.0
+     */
+    public static AugmentTickScheduler get(ServerWorld world) {
+        return SCHEDULERS.computeIfAbsent(world, AugmentTickScheduler::new);
+    }
+
+    /**
+     * Forget the scheduler of the given (unloaded) world,
+     * including the instances it still had deferred
+     *
+     * @since    0.2.0
+     */
+    @ApiStatus.Internal
+    public static void remove(ServerWorld world) {
+        SCHEDULERS.remove(world);
+    }
+
+    /**
+     * Set the per-world tick budget (in milliseconds)
+     *
+     * @since    0.2.0
+     */
+    public static void setBudget(double budget_ms) {
+        BUDGET_MS = Math.max(0.1, budget_ms);
+    }
+
+    /**
+     * Get the per-world tick budget (in milliseconds)
+     *
+     * @since    0.2.0
+     */
+    public static double getBudget() {
+        return BUDGET_MS;
+    }
+
+    /**
+     * Get the interval multiplier for the given state
+     *
+     * @since    0.2.0
+     */
+    private static int getStretch(BibPerf.State state) {
+        return switch (state) {
+            case CRITICAL -> 8;
+            case OVERLOADED -> 4;
+            case VERY_BUSY -> 3;
+            case BUSY -> 2;
+            default -> 1;
+        };
+    }
+
+    /**
+     * Start a new tick if the server has moved on.
+     * This also runs the instances deferred during the previous tick.
+     *
+     * @since    0.2.0
+     */
+    void prepareTick() {
+
+        int tick = this.world.getServer().getTicks();
+
+        if (tick == this.current_tick) {
+            return;
+        }
+
+        this.current_tick = tick;
+        this.last_spent_ns = this.spent_ns;
+        this.spent_ns = 0;
+        this.ticked_deferred.clear();
+
+        BibPerf.Info info = BibPerf.getWorldInfo(this.world);
+
+        if (info == null) {
+            this.stretch = 1;
+            this.randomly_disabled = false;
+        } else {
+            this.stretch = getStretch(info.getCurrentState());
+            this.randomly_disabled = info.isRandomlyDisabled();
+        }
+
+        // Swap the lists so deferring during this tick doesn't allocate
+        List<Deferred<?, ?>> to_run = this.next_deferred;
+        this.next_deferred = this.deferred;
+        this.deferred = to_run;
+        this.last_deferred_count = to_run.size();
+
+        if (to_run.isEmpty()) {
+            return;
+        }
+
+        // Deferred instances get to go first
+        for (Deferred<?, ?> entry : to_run) {
+
+            // Still over budget: it stays deferred (and in `deferred_instances`)
+            if (entry.priority != Priority.CRITICAL && this.isOverBudget()) {
+
+                if (this.isStillLoaded(entry)) {
+                    this.next_deferred.add(entry);
+                } else {
+                    this.deferred_instances.remove(entry.instance);
+                }
+
+                continue;
+            }
+
+            this.deferred_instances.remove(entry.instance);
+
+            // Its chunk or player unloaded while it was waiting
+            if (!this.isStillLoaded(entry)) {
+                continue;
+            }
+
+            this.ticked_deferred.add(entry.instance);
+            this.runDeferred(entry);
+        }
+
+        to_run.clear();
+    }
+
+    /**
+     * Is whatever the given deferred entry belongs to still loaded?
+     *
+     * @since    0.2.0
+     */
+    private boolean isStillLoaded(Deferred<?, ?> entry) {
+
+        if (entry.argument instanceof Chunk chunk) {
+            return BibChunk.isChunkLoaded(this.world, chunk);
+        }
+
+        if (entry.instance instanceof Augment.PerPlayer augment) {
+            ServerPlayerEntity player = augment.getPlayer();
+            return player != null && !player.isRemoved() && player.getServerWorld() == this.world;
+        }
+
+        if (entry.instance instanceof Augment.PerChunk augment) {
+            Chunk chunk = augment.getChunk();
+            return chunk != null && BibChunk.isChunkLoaded(this.world, chunk);
+        }
+
+        if (entry.instance instanceof Augment.InternalPerBlock augment) {
+            return BibChunk.isChunkLoaded(this.world, augment.getOrigin());
+        }
+
+        return true;
+    }
+
+    /**
+     * Has the budget of this tick been used up?
+     *
+     * @since    0.2.0
+     */
+    private boolean isOverBudget() {
+        return this.spent_ns >= (long) (BUDGET_MS * 1_000_000);
+    }
+
+    /**
+     * Get the effective interval of something with the given priority & interval
+     *
+     * @since    0.2.0
+     */
+    private int getEffectiveInterval(Priority priority, int interval) {
+
+        interval = Math.max(1, interval);
+
+        if (this.stretch == 1 || priority == Priority.CRITICAL) {
+            return interval;
+        }
+
+        return switch (priority) {
+            case HIGH -> interval * Math.max(1, this.stretch / 2);
+            case LOW -> interval * this.stretch * 2;
+            default -> interval * this.stretch;
+        };
+    }
+
+    /**
+     * Is the given instance due to tick during the current tick?
+     *
+     * @since    0.2.0
+     */
+    private boolean isDue(Object instance, int interval) {
+
+        if (interval == 1) {
+            return true;
+        }
+
+        int bucket = Math.floorMod(HashCommon.mix(System.identityHashCode(instance)), interval);
+
+        return Math.floorMod(this.current_tick, interval) == bucket;
+    }
+
+    /**
+     * Tick the given augment if it is due
+     *
+     * @since    0.2.0
+     */
+    public <T extends Augment> void tick(T augment, Consumer<T> action) {
+        this.tick(augment, augment.getTickPriority(), augment.getTickInterval(), action, (instance, consumer) -> consumer.accept(instance));
+    }
+
+    /**
+     * Tick the given instance if it is due.
+     * The action receives the instance and the given argument,
+     * so callers can pass non-capturing lambdas.
+     *
+     * @since    0.2.0
+     */
+    public <T, A> void tick(T instance, Priority priority, int interval, A argument, BiConsumer<T, A> action) {
+
+        this.prepareTick();
+
+        // It already ticked this tick, or it is still waiting to tick
+        if (!this.ticked_deferred.isEmpty() && this.ticked_deferred.contains(instance)) {
+            return;
+        }
+
+        if (!this.deferred_instances.isEmpty() && this.deferred_instances.contains(instance)) {
+            return;
+        }
+
+        if (!this.isDue(instance, this.getEffectiveInterval(priority, interval))) {
+            return;
+        }
+
+        if (priority == Priority.LOW && this.randomly_disabled) {
+            return;
+        }
+
+        if (priority != Priority.CRITICAL && this.isOverBudget()) {
+            this.deferred_instances.add(instance);
+            this.next_deferred.add(new Deferred<>(instance, priority, argument, action));
+            return;
+        }
+
+        this.run(instance, argument, action);
+    }
+
+    /**
+     * Run a deferred entry
+     *
+     * @since    0.2.0
+     */
+    private <T, A> void runDeferred(Deferred<T, A> entry) {
+        this.run(entry.instance, entry.argument, entry.action);
+    }
+
+    /**
+     * Actually tick the given instance
+     *
+     * @since    0.2.0
+     */
+    private <T, A> void run(T instance, A argument, BiConsumer<T, A> action) {
+
+        long start = System.nanoTime();
+
+        try {
+            action.accept(instance, argument);
+        } catch (Throwable t) {
+            BibServer.registerThrowable(t, "Failed to tick " + instance);
+        }
+
+        this.spent_ns += System.nanoTime() - start;
+    }
+
+    /**
+     * How long did the augments tick during the previous tick (in nanoseconds)?
+     *
+     * @since    0.2.0
+     */
+    public long getLastTickDuration() {
+        return this.last_spent_ns;
+    }
+
+    /**
+     * How many instances are currently waiting to tick?
+     *
+     * @since    0.2.0
+     */
+    public int getDeferredCount() {
+        return this.deferred_instances.size();
+    }
+
+    /**
+     * How many instances were deferred to the current tick?
+     *
+     * @since    0.2.0
+     */
+    public int getLastDeferredCount() {
+        return this.last_deferred_count;
+    }
+
+    /**
+     * Get the current interval multiplier
+     *
+     * @since    0.2.0
+     */
+    public int getStretch() {
+        return this.stretch;
+    }
+
+    /**
+     * The tick priority of an augment
+     *
+     * @since    0.2.0
+     */
+    public enum Priority {
+        // Ticks every interval, even when the world is overloaded, and ignores the budget
+        CRITICAL,
+
+        // Only gets stretched when the world is very busy
+        HIGH,
+
+        // Gets stretched along with the world's state
+        NORMAL,
+
+        // Gets stretched twice as much, and skipped by the random disabler
+        LOW
+    }
+
+    /**
+     * Something that has to tick
+     *
+     * @since    0.2.0
+     */
+    private record Deferred<T, A>(T instance, Priority priority, A argument, BiConsumer<T, A> action) {}
+}
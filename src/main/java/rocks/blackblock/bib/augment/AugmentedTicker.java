@@ -1,10 +1,20 @@
 package rocks.blackblock.bib.augment;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.WorldChunk;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * Ad-hoc things that tick with something.
@@ -16,6 +26,24 @@ import java.util.*;
 @SuppressWarnings("unused")
 public interface AugmentedTicker {
 
+    /**
+     * Get the tick priority of this ticker
+     *
+     * @since    0.2.0
+     */
+    default AugmentTickScheduler.Priority getTickPriority() {
+        return AugmentTickScheduler.Priority.NORMAL;
+    }
+
+    /**
+     * Get the desired tick interval of this ticker (in ticks)
+     *
+     * @since    0.2.0
+     */
+    default int getTickInterval() {
+        return 1;
+    }
+
     /**
      * Ticks with a chunk
      *
@@ -25,30 +53,42 @@ public interface AugmentedTicker {
     interface WithChunk extends AugmentedTicker {
 
         /**
-         * Tick the chunks for the given world
+         * Tick the chunks for the given world.
+         * Only the buckets of loaded chunks are visited.
          *
          * @since    0.1.0
          */
         static void tickWorld(ServerWorld world) {
 
-            Map<ChunkPos, Set<WithChunk>> sets_per_chunk_pos = WithChunkAttachments.PER_WORLD.get(world);
+            WorldAttachments attachments = WithChunkAttachments.PER_WORLD.get(world);
 
-            if (sets_per_chunk_pos == null) {
+            if (attachments == null || attachments.loaded_buckets.isEmpty()) {
                 return;
             }
 
-            sets_per_chunk_pos.forEach((chunkPos, withChunks) -> {
+            AugmentTickScheduler scheduler = AugmentTickScheduler.get(world);
+            BiConsumer<WithChunk, Chunk> action = (with_chunk, chunk) -> with_chunk.tickWithChunk(world, chunk);
 
-                if (!world.isChunkLoaded(chunkPos.x, chunkPos.z)) {
-                    return;
-                }
+            // Attaching & detaching during the loop is postponed until it's done
+            attachments.ticking = true;
+
+            try {
+                for (ChunkBucket bucket : attachments.loaded_buckets.values()) {
 
-                Chunk chunk = world.getChunk(chunkPos.x, chunkPos.z);
+                    WorldChunk chunk = bucket.chunk;
 
-                for (WithChunk withChunk : withChunks) {
-                    withChunk.tickWithChunk(world, chunk);
+                    if (chunk == null) {
+                        continue;
+                    }
+
+                    for (WithChunk withChunk : bucket.tickers) {
+                        scheduler.tick(withChunk, withChunk.getTickPriority(), withChunk.getTickInterval(), chunk, action);
+                    }
                 }
-            });
+            } finally {
+                attachments.ticking = false;
+                attachments.applyPendingChanges();
+            }
         }
 
         /**
@@ -57,8 +97,17 @@ public interface AugmentedTicker {
          * @since    0.1.0
          */
         default void attachToChunk(ServerWorld world, ChunkPos chunk_pos) {
+            this.attachToChunk(world, chunk_pos.toLong());
+        }
+
+        /**
+         * Attach to a chunk by its packed position
+         *
+         * @since    0.2.0
+         */
+        default void attachToChunk(ServerWorld world, long chunk_key) {
             WithChunkAttachments attachments = WithChunkAttachments.getFor(this);
-            attachments.attachTo(world, chunk_pos);
+            attachments.attachTo(world, chunk_key);
         }
 
         /**
@@ -67,8 +116,17 @@ public interface AugmentedTicker {
          * @since    0.1.0
          */
         default void detachFromChunk(ServerWorld world, ChunkPos chunk_pos) {
+            this.detachFromChunk(world, chunk_pos.toLong());
+        }
+
+        /**
+         * Detach from a chunk by its packed position
+         *
+         * @since    0.2.0
+         */
+        default void detachFromChunk(ServerWorld world, long chunk_key) {
             WithChunkAttachments attachments = WithChunkAttachments.getFor(this);
-            attachments.detachFrom(world, chunk_pos);
+            attachments.detachFrom(world, chunk_key);
         }
 
         /**
@@ -90,6 +148,187 @@ public interface AugmentedTicker {
         void tickWithChunk(ServerWorld world, Chunk chunk);
     }
 
+    /**
+     * All the WithChunk instances attached to a single chunk
+     *
+     * @since    0.2.0
+     */
+    class ChunkBucket {
+
+        // The packed position of the chunk
+        protected final long chunk_key;
+
+        // The attached instances
+        protected final Set<WithChunk> tickers = new LinkedHashSet<>();
+
+        // The chunk itself, if it is loaded
+        @Nullable
+        protected WorldChunk chunk = null;
+
+        /**
+         * Create a new bucket
+         *
+         * @since    0.2.0
+         */
+        protected ChunkBucket(long chunk_key) {
+            this.chunk_key = chunk_key;
+        }
+    }
+
+    /**
+     * All the WithChunk attachments of a single world.
+     * Only touch this on the server thread.
+     *
+     * @since    0.2.0
+     */
+    class WorldAttachments {
+
+        // The world
+        protected final ServerWorld world;
+
+        // All the buckets, loaded or not
+        protected final Long2ObjectMap<ChunkBucket> buckets = new Long2ObjectOpenHashMap<>();
+
+        // Only the buckets of loaded chunks
+        protected final Long2ObjectMap<ChunkBucket> loaded_buckets = new Long2ObjectOpenHashMap<>();
+
+        // Changes made while ticking
+        protected final List<Runnable> pending_changes = new ObjectArrayList<>();
+
+        // Are the buckets being iterated?
+        protected boolean ticking = false;
+
+        /**
+         * Create a new instance
+         *
+         * @since    0.2.0
+         */
+        protected WorldAttachments(ServerWorld world) {
+            this.world = world;
+        }
+
+        /**
+         * Add the given instance to the given chunk
+         *
+         * @since    0.2.0
+         */
+        protected void add(long chunk_key, WithChunk with_chunk) {
+
+            if (this.ticking) {
+                this.pending_changes.add(() -> this.add(chunk_key, with_chunk));
+                return;
+            }
+
+            ChunkBucket bucket = this.buckets.get(chunk_key);
+
+            if (bucket == null) {
+                bucket = new ChunkBucket(chunk_key);
+                this.buckets.put(chunk_key, bucket);
+
+                int x = ChunkPos.getPackedX(chunk_key);
+                int z = ChunkPos.getPackedZ(chunk_key);
+
+                if (this.world.getChunkManager().isChunkLoaded(x, z)) {
+                    bucket.chunk = this.world.getChunk(x, z);
+                    this.loaded_buckets.put(chunk_key, bucket);
+                }
+            }
+
+            bucket.tickers.add(with_chunk);
+        }
+
+        /**
+         * Remove the given instance from the given chunk
+         *
+         * @since    0.2.0
+         */
+        protected void remove(long chunk_key, WithChunk with_chunk) {
+
+            if (this.ticking) {
+                this.pending_changes.add(() -> this.remove(chunk_key, with_chunk));
+                return;
+            }
+
+            ChunkBucket bucket = this.buckets.get(chunk_key);
+
+            if (bucket == null) {
+                return;
+            }
+
+            bucket.tickers.remove(with_chunk);
+
+            // Prune empty buckets
+            if (bucket.tickers.isEmpty()) {
+                this.buckets.remove(chunk_key);
+                this.loaded_buckets.remove(chunk_key);
+            }
+        }
+
+        /**
+         * Apply the changes made while ticking
+         *
+         * @since    0.2.0
+         */
+        protected void applyPendingChanges() {
+
+            if (this.pending_changes.isEmpty()) {
+                return;
+            }
+
+            List<Runnable> changes = new ArrayList<>(this.pending_changes);
+            this.pending_changes.clear();
+
+            for (Runnable change : changes) {
+                change.run();
+            }
+        }
+
+        /**
+         * The given chunk has been loaded
+         *
+         * @since    0.2.0
+         */
+        protected void onChunkLoad(WorldChunk chunk) {
+
+            long chunk_key = chunk.getPos().toLong();
+            ChunkBucket bucket = this.buckets.get(chunk_key);
+
+            if (bucket == null) {
+                return;
+            }
+
+            bucket.chunk = chunk;
+
+            if (this.ticking) {
+                this.pending_changes.add(() -> this.loaded_buckets.put(chunk_key, bucket));
+            } else {
+                this.loaded_buckets.put(chunk_key, bucket);
+            }
+        }
+
+        /**
+         * The given chunk has been unloaded
+         *
+         * @since    0.2.0
+         */
+        protected void onChunkUnload(long chunk_key) {
+
+            ChunkBucket bucket = this.buckets.get(chunk_key);
+
+            if (bucket == null) {
+                return;
+            }
+
+            bucket.chunk = null;
+
+            if (this.ticking) {
+                this.pending_changes.add(() -> this.loaded_buckets.remove(chunk_key));
+            } else {
+                this.loaded_buckets.remove(chunk_key);
+            }
+        }
+    }
+
     /**
      * Class to keep track of where a WithChunk is attached to
      *
@@ -97,14 +336,14 @@ public interface AugmentedTicker {
      */
     class WithChunkAttachments {
 
-        protected static final Map<ServerWorld, Map<ChunkPos, Set<WithChunk>>> PER_WORLD = new HashMap<>();
+        protected static final Map<ServerWorld, WorldAttachments> PER_WORLD = new HashMap<>();
         protected static final Map<WithChunk, WithChunkAttachments> ATTACHMENTS = new WeakHashMap<>();
 
         // The WithChunk instance this belongs to
         private final WithChunk with_chunk;
 
         // All the chunks this is attached to
-        private final Map<ServerWorld, Set<ChunkPos>> attached_chunks = new HashMap<>();
+        private final Map<ServerWorld, LongSet> attached_chunks = new HashMap<>();
 
         /**
          * Initialize the new instance
@@ -124,18 +363,69 @@ public interface AugmentedTicker {
             return ATTACHMENTS.computeIfAbsent(with_chunk, k -> new WithChunkAttachments(with_chunk));
         }
 
+        /**
+         * A chunk has been loaded
+         *
+         * @since    0.2.0
+         */
+        @ApiStatus.Internal
+        public static void onChunkLoad(ServerWorld world, WorldChunk chunk) {
+
+            WorldAttachments attachments = PER_WORLD.get(world);
+
+            if (attachments != null) {
+                attachments.onChunkLoad(chunk);
+            }
+        }
+
+        /**
+         * A chunk has been unloaded
+         *
+         * @since    0.2.0
+         */
+        @ApiStatus.Internal
+        public static void onChunkUnload(ServerWorld world, Chunk chunk) {
+
+            WorldAttachments attachments = PER_WORLD.get(world);
+
+            if (attachments != null) {
+                attachments.onChunkUnload(chunk.getPos().toLong());
+            }
+        }
+
+        /**
+         * A world has been unloaded
+         *
+         * @since    0.2.0
+         */
+        @ApiStatus.Internal
+        public static void onWorldUnload(World world) {
+            PER_WORLD.remove(world);
+        }
+
         /**
          * Attach this instance to the given world/chunk
          *
          * @since    0.1.0
          */
         public void attachTo(ServerWorld world, ChunkPos chunk_pos) {
-            Map<ChunkPos, Set<WithChunk>> map = PER_WORLD.computeIfAbsent(world, k -> new HashMap<>());
-            Set<WithChunk> set = map.computeIfAbsent(chunk_pos, k -> new HashSet<>());
-            set.add(this.with_chunk);
+            this.attachTo(world, chunk_pos.toLong());
+        }
+
+        /**
+         * Attach this instance to the given world/chunk
+         *
+         * @since    0.2.0
+         */
+        public void attachTo(ServerWorld world, long chunk_key) {
+
+            LongSet our_set = this.attached_chunks.computeIfAbsent(world, k -> new LongOpenHashSet());
+
+            if (!our_set.add(chunk_key)) {
+                return;
+            }
 
-            Set<ChunkPos> our_set = attached_chunks.computeIfAbsent(world, k -> new HashSet<>());
-            our_set.add(chunk_pos);
+            PER_WORLD.computeIfAbsent(world, WorldAttachments::new).add(chunk_key, this.with_chunk);
         }
 
         /**
@@ -144,19 +434,31 @@ public interface AugmentedTicker {
          * @since    0.1.0
          */
         public void detachFrom(ServerWorld world, ChunkPos chunk_pos) {
-            Map<ChunkPos, Set<WithChunk>> map = PER_WORLD.get(world);
+            this.detachFrom(world, chunk_pos.toLong());
+        }
 
-            if (map == null) {
-                return;
-            }
+        /**
+         * Detach this instance from the given world/chunk
+         *
+         * @since    0.2.0
+         */
+        public void detachFrom(ServerWorld world, long chunk_key) {
 
-            Set<WithChunk> set = map.get(chunk_pos);
+            LongSet our_set = this.attached_chunks.get(world);
 
-            if (set == null) {
+            if (our_set == null || !our_set.remove(chunk_key)) {
                 return;
             }
 
-            set.remove(this.with_chunk);
+            if (our_set.isEmpty()) {
+                this.attached_chunks.remove(world);
+            }
+
+            WorldAttachments attachments = PER_WORLD.get(world);
+
+            if (attachments != null) {
+                attachments.remove(chunk_key, this.with_chunk);
+            }
         }
 
         /**
@@ -167,27 +469,20 @@ public interface AugmentedTicker {
          */
         public void destroy() {
 
-            attached_chunks.forEach((serverWorld, chunkPosSet) -> {
+            this.attached_chunks.forEach((server_world, chunk_keys) -> {
 
-                Map<ChunkPos, Set<WithChunk>> map = PER_WORLD.get(serverWorld);
+                WorldAttachments attachments = PER_WORLD.get(server_world);
 
-                if (map == null) {
+                if (attachments == null) {
                     return;
                 }
 
-                chunkPosSet.forEach(chunkPos -> {
-
-                    Set<WithChunk> set = map.get(chunkPos);
-
-                    if (set == null) {
-                        return;
-                    }
-
-                    set.remove(this.with_chunk);
-                });
+                for (long chunk_key : chunk_keys) {
+                    attachments.remove(chunk_key, this.with_chunk);
+                }
             });
 
-            attached_chunks.clear();
+            this.attached_chunks.clear();
         }
     }
 
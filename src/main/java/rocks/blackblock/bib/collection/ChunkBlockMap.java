@@ -0,0 +1,353 @@
+package rocks.blackblock.bib.collection;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Map block positions inside a single chunk to a value.
+ * <p>
+ * Positions are stored as a packed int of the local x & z coordinates
+ * and the y coordinate, so lookups & iteration don't need any BlockPos.
+ * {@link #asMap()} exposes a read-only {@link Map} view without copying.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public class ChunkBlockMap<V> {
+
+    private final int chunk_x;
+    private final int chunk_z;
+    private final Int2ObjectOpenHashMap<V> values = new Int2ObjectOpenHashMap<>(4);
+    private Map<BlockPos, V> view = null;
+
+    /**
+     * Create a new map for the given chunk
+     *
+     * @since    0.2.0
+     */
+    public ChunkBlockMap(int chunk_x, int chunk_z) {
+        this.chunk_x = chunk_x;
+        this.chunk_z = chunk_z;
+    }
+
+    /**
+     * Create a new map for the given packed chunk position
+     *
+     * @since    0.2.0
+     */
+    public ChunkBlockMap(long chunk_key) {
+        this(ChunkPos.getPackedX(chunk_key), ChunkPos.getPackedZ(chunk_key));
+    }
+
+    /**
+     * Pack the given block position into a local key
+     *
+     * @since    0.2.0
+     */
+    public static int toLocalKey(int x, int y, int z) {
+        return (x & 15) | ((z & 15) << 4) | (y << 8);
+    }
+
+    /**
+     * Pack the given block position into a local key
+     *
+     * @since    0.2.0
+     */
+    public static int toLocalKey(BlockPos pos) {
+        return toLocalKey(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Get the chunk position this map is for
+     *
+     * @since    0.2.0
+     */
+    public ChunkPos getChunkPos() {
+        return new ChunkPos(this.chunk_x, this.chunk_z);
+    }
+
+    /**
+     * Get the world block position of the given local key
+     *
+     * @since    0.2.0
+     */
+    public BlockPos toBlockPos(int local_key) {
+        return new BlockPos(
+                (this.chunk_x << 4) | (local_key & 15),
+                local_key >> 8,
+                (this.chunk_z << 4) | ((local_key >> 4) & 15)
+        );
+    }
+
+    /**
+     * Does the given position belong to this chunk?
+     *
+     * @since    0.2.0
+     */
+    public boolean isInChunk(BlockPos pos) {
+        return (pos.getX() >> 4) == this.chunk_x && (pos.getZ() >> 4) == this.chunk_z;
+    }
+
+    /**
+     * Get the amount of values
+     *
+     * @since    0.2.0
+     */
+    public int size() {
+        return this.values.size();
+    }
+
+    /**
+     * Is this map empty?
+     *
+     * @since    0.2.0
+     */
+    public boolean isEmpty() {
+        return this.values.isEmpty();
+    }
+
+    /**
+     * Get the value at the given position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V get(BlockPos pos) {
+
+        if (!this.isInChunk(pos)) {
+            return null;
+        }
+
+        return this.values.get(toLocalKey(pos));
+    }
+
+    /**
+     * Get the value of the given local key
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V get(int local_key) {
+        return this.values.get(local_key);
+    }
+
+    /**
+     * Put the value at the given position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V put(BlockPos pos, V value) {
+
+        if (!this.isInChunk(pos)) {
+            throw new IllegalArgumentException("Position " + pos + " is not inside chunk " + this.chunk_x + ", " + this.chunk_z);
+        }
+
+        return this.values.put(toLocalKey(pos), value);
+    }
+
+    /**
+     * Remove the value at the given position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V remove(BlockPos pos) {
+
+        if (!this.isInChunk(pos)) {
+            return null;
+        }
+
+        return this.values.remove(toLocalKey(pos));
+    }
+
+    /**
+     * Does this map contain the given value?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsValue(Object value) {
+        return this.values.containsValue(value);
+    }
+
+    /**
+     * Remove the given value
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V removeValue(Object value) {
+
+        ObjectIterator<Int2ObjectMap.Entry<V>> iterator = this.values.int2ObjectEntrySet().fastIterator();
+
+        while (iterator.hasNext()) {
+            V entry_value = iterator.next().getValue();
+
+            if (Objects.equals(entry_value, value)) {
+                iterator.remove();
+                return entry_value;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get a read-only collection of all the values
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public Collection<V> values() {
+        return Collections.unmodifiableCollection(this.values.values());
+    }
+
+    /**
+     * Iterate over all the values.
+     * This does not allocate any positions.
+     *
+     * @since    0.2.0
+     */
+    public void forEachValue(Consumer<V> consumer) {
+
+        ObjectIterator<V> iterator = this.values.values().iterator();
+
+        while (iterator.hasNext()) {
+            consumer.accept(iterator.next());
+        }
+    }
+
+    /**
+     * Iterate over all the values with their local key
+     *
+     * @since    0.2.0
+     */
+    public void forEachPacked(LocalValueRunner<V> runner) {
+
+        ObjectIterator<Int2ObjectMap.Entry<V>> iterator = this.values.int2ObjectEntrySet().fastIterator();
+
+        while (iterator.hasNext()) {
+            Int2ObjectMap.Entry<V> entry = iterator.next();
+            runner.run(entry.getIntKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Iterate over all the values with their block position
+     *
+     * @since    0.2.0
+     */
+    public void forEach(BlockValueRunner<V> runner) {
+        this.forEachPacked((local_key, value) -> runner.run(this.toBlockPos(local_key), value));
+    }
+
+    /**
+     * Get a read-only Map view of this chunk.
+     * Changes to this chunk map are visible in the view.
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public Map<BlockPos, V> asMap() {
+
+        if (this.view == null) {
+            this.view = new View();
+        }
+
+        return this.view;
+    }
+
+    @FunctionalInterface
+    public interface LocalValueRunner<V> {
+        void run(int local_key, V value);
+    }
+
+    @FunctionalInterface
+    public interface BlockValueRunner<V> {
+        void run(BlockPos block_pos, V value);
+    }
+
+    /**
+     * The read-only Map view
+     *
+     * @since    0.2.0
+     */
+    private class View extends AbstractMap<BlockPos, V> {
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof BlockPos pos && isInChunk(pos) && values.containsKey(toLocalKey(pos));
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return values.containsValue(value);
+        }
+
+        @Override
+        public V get(Object key) {
+
+            if (key instanceof BlockPos pos) {
+                return ChunkBlockMap.this.get(pos);
+            }
+
+            return null;
+        }
+
+        @NotNull
+        @Override
+        public Collection<V> values() {
+            return ChunkBlockMap.this.values();
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<BlockPos, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return values.size();
+                }
+
+                @NotNull
+                @Override
+                public Iterator<Entry<BlockPos, V>> iterator() {
+
+                    ObjectIterator<Int2ObjectMap.Entry<V>> iterator = values.int2ObjectEntrySet().iterator();
+
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<BlockPos, V> next() {
+                            Int2ObjectMap.Entry<V> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(toBlockPos(entry.getIntKey()), entry.getValue());
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
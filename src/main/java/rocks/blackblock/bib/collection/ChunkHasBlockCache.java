@@ -1,22 +1,42 @@
 package rocks.blackblock.bib.collection;
 
+import it.unimi.dsi.fastutil.longs.Long2BooleanLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
+import net.fabricmc.fabric.api.util.TriState;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.collection.EmptyPaletteStorage;
+import net.minecraft.util.collection.PackedIntegerArray;
+import net.minecraft.util.collection.PaletteStorage;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.Chunk;
-import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.*;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
+import rocks.blackblock.bib.runnable.Pledge;
+import rocks.blackblock.bib.util.BibFlow;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
 
 /**
  * Class to see if a chunk contains a certain block
+ * <p>
+ * Sections are scanned by resolving their palette into the matching palette ids once,
+ * and then walking the packed block state data directly.
+ * Positions are stored as packed longs (see {@link BlockPos#asLong()})
+ * and are kept up-to-date as blocks change in loaded chunks.
+ * <p>
+ * In async mode (see {@link #setAsync(boolean)}) chunks are snapshotted on load,
+ * scanned on the shared worker pool and published on the server thread.
+ * The non-blocking queries then never stall the tick.
  *
  * @author   Jelle De Loecker <jelle@elevenways.be>
  * @since    0.2.0
@@ -24,23 +44,49 @@ import java.util.*;
 @SuppressWarnings("unused")
 public class ChunkHasBlockCache {
 
-    public final HashMap<RegistryKey<World>, Long2ObjectMap<ObjectOpenHashSet<BlockPos>>> dimension_map = new HashMap<>();
+    // All the live caches, so block changes can be forwarded (copy-on-write)
+    private static volatile WeakReference<ChunkHasBlockCache>[] INSTANCES = newReferenceArray(0);
+
+    // The cached entries of each chunk, per dimension
+    private final HashMap<RegistryKey<World>, Long2ObjectMap<ChunkEntry>> entry_map = new HashMap<>();
+
+    // The blocks to look for, in the order they were added
+    private final List<Block> block_list = new ArrayList<>();
     private final Set<Block> blocks = new HashSet<>();
 
-    public ChunkHasBlockCache() {
+    // Which raw block state ids match (for sections using the global palette)
+    private boolean[] global_matches = null;
+
+    // Should chunks be scanned off-thread when they load?
+    private boolean async = false;
+
+    // The scans that are still running, per dimension
+    private final HashMap<RegistryKey<World>, Long2ObjectMap<PendingScan>> pending_map = new HashMap<>();
 
+    // Have the chunk event listeners been registered?
+    private static boolean listeners_registered = false;
+
+    public ChunkHasBlockCache() {
+        register(this);
     }
 
     public ChunkHasBlockCache(@NotNull Block block) {
-        this.blocks.add(block);
+        this();
+        this.addBlock(block);
     }
 
     public ChunkHasBlockCache(Block[] blocks) {
-        this.blocks.addAll(Arrays.asList(blocks));
+        this();
+
+        for (Block block : blocks) {
+            this.addBlock(block);
+        }
     }
 
     /**
-     * Add a block to look for
+     * Add a block to look for.
+     * Already scanned chunks are only scanned for the new block
+     * the next time they are requested.
      * @since    0.2.0
      */
     public void addBlock(@NotNull Block block) {
@@ -50,23 +96,76 @@ public class ChunkHasBlockCache {
         }
 
         this.blocks.add(block);
-        this.dimension_map.clear();
+        this.block_list.add(block);
+        this.global_matches = null;
     }
 
     /**
-     * Get the chunk map for the given world
+     * Enable or disable async mode:
+     * chunks will be snapshotted on load & scanned on a worker thread,
+     * and forgotten again when they unload.
      * @since    0.2.0
      */
+    public void setAsync(boolean async) {
+        this.async = async;
+
+        if (async) {
+            registerChunkListeners();
+        }
+    }
+
+    /**
+     * Is async mode enabled?
+     * @since    0.2.0
+     */
+    public boolean isAsync() {
+        return this.async;
+    }
+
+    /**
+     * Get a copy of the block positions of each scanned chunk in the given world.
+     * Changes to the copy are not reflected in the cache.
+     * @since    0.2.0
+     * @deprecated Use {@link #getEntryMap(World)}
+     */
+    @Deprecated
     public Long2ObjectMap<ObjectOpenHashSet<BlockPos>> getChunkMap(World world) {
         return this.getChunkMap(world.getRegistryKey());
     }
 
     /**
-     * Get the chunk map for the given dimension
+     * Get a copy of the block positions of each scanned chunk in the given dimension.
+     * Changes to the copy are not reflected in the cache.
      * @since    0.2.0
+     * @deprecated Use {@link #getEntryMap(RegistryKey)}
      */
+    @Deprecated
     public Long2ObjectMap<ObjectOpenHashSet<BlockPos>> getChunkMap(RegistryKey<World> world_key) {
-        return dimension_map.computeIfAbsent(world_key, k -> new Long2ObjectOpenHashMap<>(100));
+
+        Long2ObjectMap<ChunkEntry> entries = this.getEntryMap(world_key);
+        Long2ObjectMap<ObjectOpenHashSet<BlockPos>> result = new Long2ObjectOpenHashMap<>(entries.size());
+
+        for (Long2ObjectMap.Entry<ChunkEntry> entry : entries.long2ObjectEntrySet()) {
+            result.put(entry.getLongKey(), new ObjectOpenHashSet<>(entry.getValue().toBlockPosList()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the chunk entries of the given world
+     * @since    0.2.0
+     */
+    public Long2ObjectMap<ChunkEntry> getEntryMap(World world) {
+        return this.getEntryMap(world.getRegistryKey());
+    }
+
+    /**
+     * Get the chunk entries of the given dimension
+     * @since    0.2.0
+     */
+    public Long2ObjectMap<ChunkEntry> getEntryMap(RegistryKey<World> world_key) {
+        return this.entry_map.computeIfAbsent(world_key, k -> new Long2ObjectOpenHashMap<>(100));
     }
 
     /**
@@ -82,14 +181,16 @@ public class ChunkHasBlockCache {
      * @since    0.2.0
      */
     public List<BlockPos> getChunkBlocks(RegistryKey<World> world_key, Chunk chunk) {
-        Long2ObjectMap<ObjectOpenHashSet<BlockPos>> map = getChunkMap(world_key);
-        long pos = chunk.getPos().toLong();
-
-        if (!map.containsKey(pos)) {
-            recalculateChunk(world_key, chunk);
-        }
+        return this.getEntry(world_key, chunk).toBlockPosList();
+    }
 
-        return new ArrayList<>(map.get(pos));
+    /**
+     * Get or calculate the packed positions of the given chunk.
+     * The returned set should not be modified.
+     * @since    0.2.0
+     */
+    public LongOpenHashSet getPackedPositions(RegistryKey<World> world_key, Chunk chunk) {
+        return this.getEntry(world_key, chunk).positions;
     }
 
     /**
@@ -105,14 +206,146 @@ public class ChunkHasBlockCache {
      * @since    0.2.0
      */
     public boolean chunkContainsBlock(RegistryKey<World> world_key, Chunk chunk) {
-        Long2ObjectMap<ObjectOpenHashSet<BlockPos>> map = getChunkMap(world_key);
-        long pos = chunk.getPos().toLong();
+        return !this.getEntry(world_key, chunk).positions.isEmpty();
+    }
+
+    /**
+     * Does the given chunk contain any of the blocks in this cache?
+     * This never scans the chunk on the calling thread:
+     * if the result is not known yet, a scan is started and DEFAULT is returned.
+     * @since    0.2.0
+     */
+    public TriState chunkContainsBlockIfKnown(RegistryKey<World> world_key, Chunk chunk) {
+
+        ChunkEntry entry = this.getKnownEntry(world_key, chunk);
+
+        if (entry == null) {
+            this.scanAsync(world_key, chunk);
+            return TriState.DEFAULT;
+        }
+
+        return TriState.of(!entry.positions.isEmpty());
+    }
+
+    /**
+     * Get the block positions of the given chunk once they are known.
+     * If they already are, the pledge is resolved immediately.
+     * Must be called on the server thread.
+     * @since    0.2.0
+     */
+    public Pledge<List<BlockPos>> requestChunkBlocks(RegistryKey<World> world_key, Chunk chunk) {
+
+        ChunkEntry entry = this.getKnownEntry(world_key, chunk);
+
+        if (entry != null) {
+            return Pledge.resolved(entry.toBlockPosList());
+        }
+
+        return this.scanAsync(world_key, chunk).thenApply(ChunkEntry::toBlockPosList);
+    }
+
+    /**
+     * Get the entry of the given chunk if it is fully scanned
+     * @since    0.2.0
+     */
+    private ChunkEntry getKnownEntry(RegistryKey<World> world_key, Chunk chunk) {
+
+        Long2ObjectMap<ChunkEntry> chunk_map = this.entry_map.get(world_key);
+
+        if (chunk_map == null) {
+            return null;
+        }
+
+        ChunkEntry entry = chunk_map.get(chunk.getPos().toLong());
+
+        if (entry == null || entry.scanned_block_count < this.block_list.size()) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Snapshot the given chunk and scan it on the worker pool.
+     * The result is published on the server thread.
+     * Must be called on the server thread.
+     * @since    0.2.0
+     */
+    public Pledge<ChunkEntry> scanAsync(RegistryKey<World> world_key, Chunk chunk) {
 
-        if (!map.containsKey(pos)) {
-            recalculateChunk(world_key, chunk);
+        long chunk_pos = chunk.getPos().toLong();
+        Long2ObjectMap<PendingScan> pending = this.pending_map.computeIfAbsent(world_key, k -> new Long2ObjectOpenHashMap<>());
+        PendingScan scan = pending.get(chunk_pos);
+
+        if (scan != null) {
+            return scan.pledge;
         }
 
-        return !map.get(pos).isEmpty();
+        scan = new PendingScan(this.block_list.size());
+        pending.put(chunk_pos, scan);
+
+        // Everything the worker needs is copied here, on the server thread
+        List<SectionSnapshot> sections = snapshotSections(chunk);
+        Set<Block> targets = new HashSet<>(this.blocks);
+        int base_x = chunk.getPos().getStartX();
+        int base_z = chunk.getPos().getStartZ();
+        PendingScan final_scan = scan;
+
+        BibFlow.getWorkerExecutor().execute(() -> {
+            LongOpenHashSet positions = new LongOpenHashSet();
+            Throwable error = null;
+
+            try {
+                for (SectionSnapshot section : sections) {
+                    this.scanSection(section.states(), targets, base_x, section.base_y(), base_z, positions);
+                }
+            } catch (Throwable t) {
+                error = t;
+            }
+
+            Throwable final_error = error;
+            BibFlow.onServerThread(() -> this.publishScan(world_key, chunk_pos, final_scan, positions, final_error));
+        });
+
+        return scan.pledge;
+    }
+
+    /**
+     * Publish the result of an async scan (on the server thread)
+     * @since    0.2.0
+     */
+    private void publishScan(RegistryKey<World> world_key, long chunk_pos, PendingScan scan, LongOpenHashSet positions, Throwable error) {
+
+        Long2ObjectMap<PendingScan> pending = this.pending_map.get(world_key);
+
+        // The chunk was unloaded (or the scan replaced) in the meantime.
+        // That's routine, so cancel instead of rejecting (which registers an error)
+        if (pending == null || pending.get(chunk_pos) != scan) {
+            scan.pledge.cancel(false);
+            return;
+        }
+
+        pending.remove(chunk_pos);
+
+        if (error != null) {
+            scan.pledge.reject(error);
+            return;
+        }
+
+        ChunkEntry entry = new ChunkEntry(scan.scanned_block_count);
+        entry.positions.addAll(positions);
+
+        // Replay the block changes that happened while scanning
+        for (var change : scan.changes.long2BooleanEntrySet()) {
+            if (change.getBooleanValue()) {
+                entry.positions.add(change.getLongKey());
+            } else {
+                entry.positions.remove(change.getLongKey());
+            }
+        }
+
+        this.getEntryMap(world_key).put(chunk_pos, entry);
+        scan.pledge.resolve(entry);
     }
 
     /**
@@ -128,11 +361,17 @@ public class ChunkHasBlockCache {
      * @since    0.2.0
      */
     public void addBlockPos(RegistryKey<World> world_key, Chunk chunk, BlockPos block_pos) {
-        Long2ObjectMap<ObjectOpenHashSet<BlockPos>> chunk_map = getChunkMap(world_key);
+        Long2ObjectMap<ChunkEntry> chunk_map = getEntryMap(world_key);
         long chunk_pos = chunk.getPos().toLong();
 
-        ObjectOpenHashSet<BlockPos> positions = chunk_map.computeIfAbsent(chunk_pos, k -> new ObjectOpenHashSet<>());
-        positions.add(block_pos);
+        ChunkEntry entry = chunk_map.get(chunk_pos);
+
+        if (entry == null) {
+            entry = new ChunkEntry(this.block_list.size());
+            chunk_map.put(chunk_pos, entry);
+        }
+
+        entry.positions.add(block_pos.asLong());
     }
 
     /**
@@ -164,15 +403,179 @@ public class ChunkHasBlockCache {
      * @since    0.2.0
      */
     public void removeBlockPos(RegistryKey<World> world_key, Chunk chunk, BlockPos block_pos) {
-        Long2ObjectMap<ObjectOpenHashSet<BlockPos>> chunk_map = getChunkMap(world_key);
+        Long2ObjectMap<ChunkEntry> chunk_map = getEntryMap(world_key);
+        long chunk_pos = chunk.getPos().toLong();
+
+        ChunkEntry entry = chunk_map.get(chunk_pos);
+
+        if (entry != null) {
+            entry.positions.remove(block_pos.asLong());
+        }
+    }
+
+    /**
+     * Forget the given chunk (when it unloads, for example)
+     * @since    0.2.0
+     */
+    public void forgetChunk(RegistryKey<World> world_key, long chunk_pos) {
+
+        Long2ObjectMap<ChunkEntry> chunk_map = this.entry_map.get(world_key);
+
+        if (chunk_map != null) {
+            chunk_map.remove(chunk_pos);
+        }
+
+        Long2ObjectMap<PendingScan> pending = this.pending_map.get(world_key);
+
+        if (pending != null) {
+            pending.remove(chunk_pos);
+        }
+    }
+
+    /**
+     * A block changed in an already-scanned chunk:
+     * update the positions without rescanning
+     * @since    0.2.0
+     */
+    public void onBlockStateChanged(RegistryKey<World> world_key, long chunk_pos, BlockPos block_pos, BlockState state) {
+
+        Long2ObjectMap<PendingScan> pending = this.pending_map.get(world_key);
+
+        if (pending != null) {
+            PendingScan scan = pending.get(chunk_pos);
+
+            if (scan != null) {
+                scan.changes.put(block_pos.asLong(), this.blocks.contains(state.getBlock()));
+            }
+        }
+
+        Long2ObjectMap<ChunkEntry> chunk_map = this.entry_map.get(world_key);
+
+        if (chunk_map == null) {
+            return;
+        }
+
+        ChunkEntry entry = chunk_map.get(chunk_pos);
+
+        if (entry == null) {
+            return;
+        }
+
+        if (this.blocks.contains(state.getBlock())) {
+            entry.positions.add(block_pos.asLong());
+        } else {
+            entry.positions.remove(block_pos.asLong());
+        }
+    }
+
+    /**
+     * Forward a block change of a server world to all the caches
+     * @since    0.2.0
+     */
+    @ApiStatus.Internal
+    public static void notifyBlockStateChanged(ServerWorld world, Chunk chunk, BlockPos block_pos, BlockState state) {
+
+        WeakReference<ChunkHasBlockCache>[] caches = INSTANCES;
+
+        if (caches.length == 0) {
+            return;
+        }
+
+        RegistryKey<World> world_key = world.getRegistryKey();
         long chunk_pos = chunk.getPos().toLong();
 
-        ObjectOpenHashSet<BlockPos> positions = chunk_map.get(chunk_pos);
-        if (positions != null) {
-            positions.remove(block_pos);
+        for (WeakReference<ChunkHasBlockCache> reference : caches) {
+            ChunkHasBlockCache cache = reference.get();
+
+            if (cache != null) {
+                cache.onBlockStateChanged(world_key, chunk_pos, block_pos, state);
+            }
         }
     }
 
+    /**
+     * Register the chunk load & unload listeners used by the async caches
+     * @since    0.2.0
+     */
+    private static synchronized void registerChunkListeners() {
+
+        if (listeners_registered) {
+            return;
+        }
+
+        listeners_registered = true;
+
+        ServerChunkEvents.CHUNK_LOAD.register((world, chunk) -> {
+            for (WeakReference<ChunkHasBlockCache> reference : INSTANCES) {
+                ChunkHasBlockCache cache = reference.get();
+
+                if (cache != null && cache.async) {
+                    cache.scanAsync(world.getRegistryKey(), chunk);
+                }
+            }
+        });
+
+        ServerChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> {
+            long chunk_pos = chunk.getPos().toLong();
+
+            for (WeakReference<ChunkHasBlockCache> reference : INSTANCES) {
+                ChunkHasBlockCache cache = reference.get();
+
+                if (cache != null && cache.async) {
+                    cache.forgetChunk(world.getRegistryKey(), chunk_pos);
+                }
+            }
+        });
+    }
+
+    /**
+     * Copy the block states of all the non-empty sections
+     * @since    0.2.0
+     */
+    private static List<SectionSnapshot> snapshotSections(Chunk chunk) {
+
+        ChunkSection[] sections = chunk.getSectionArray();
+        List<SectionSnapshot> result = new ArrayList<>(sections.length);
+        int section_y = chunk.getBottomSectionCoord();
+
+        for (ChunkSection section : sections) {
+            int base_y = section_y << 4;
+            section_y++;
+
+            if (section == null || section.isEmpty()) {
+                continue;
+            }
+
+            result.add(new SectionSnapshot(base_y, section.getBlockStateContainer().copy()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Register a new cache (and drop the collected ones)
+     * @since    0.2.0
+     */
+    private static synchronized void register(ChunkHasBlockCache cache) {
+
+        List<WeakReference<ChunkHasBlockCache>> live = new ArrayList<>(INSTANCES.length + 1);
+
+        for (WeakReference<ChunkHasBlockCache> reference : INSTANCES) {
+            if (reference.get() != null) {
+                live.add(reference);
+            }
+        }
+
+        live.add(new WeakReference<>(cache));
+
+        INSTANCES = live.toArray(newReferenceArray(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WeakReference<ChunkHasBlockCache>[] newReferenceArray(int size) {
+        return (WeakReference<ChunkHasBlockCache>[]) new WeakReference[size];
+    }
+
     /**
      * Recalculate the given chunk
      * @since    0.2.0
@@ -186,80 +589,261 @@ public class ChunkHasBlockCache {
      * @since    0.2.0
      */
     public List<BlockPos> recalculateChunk(RegistryKey<World> world_key, Chunk chunk) {
-        ObjectOpenHashSet<BlockPos> positions = new ObjectOpenHashSet<>();
-        Long2ObjectMap<ObjectOpenHashSet<BlockPos>> chunk_map = getChunkMap(world_key);
 
-        ChunkPos chunk_pos = chunk.getPos();
-        long chunk_pos_long = chunk_pos.toLong();
+        ChunkEntry entry = new ChunkEntry(this.block_list.size());
+        this.scanChunk(chunk, this.blocks, entry.positions);
+
+        this.getEntryMap(world_key).put(chunk.getPos().toLong(), entry);
+
+        return entry.toBlockPosList();
+    }
+
+    /**
+     * Get a list of all block positions in the given chunk
+     * @since   0.2.0
+     */
+    public List<BlockPos> getBlockPositions(World world, Chunk chunk) {
+        return this.getBlockPositions(world.getRegistryKey(), chunk);
+    }
+
+    /**
+     * Get a list of all block positions in the given chunk
+     */
+    public List<BlockPos> getBlockPositions(RegistryKey<World> world_key, Chunk chunk) {
+        return this.getEntry(world_key, chunk).toBlockPosList();
+    }
+
+    /**
+     * Get the up-to-date entry of the given chunk,
+     * scanning it (or only the blocks added since the last scan) if needed
+     * @since    0.2.0
+     */
+    private ChunkEntry getEntry(RegistryKey<World> world_key, Chunk chunk) {
+
+        Long2ObjectMap<ChunkEntry> chunk_map = getEntryMap(world_key);
+        long chunk_pos = chunk.getPos().toLong();
+        ChunkEntry entry = chunk_map.get(chunk_pos);
+
+        if (entry == null) {
+            entry = new ChunkEntry(this.block_list.size());
+            this.scanChunk(chunk, this.blocks, entry.positions);
+            chunk_map.put(chunk_pos, entry);
+            return entry;
+        }
+
+        int block_count = this.block_list.size();
+
+        if (entry.scanned_block_count < block_count) {
+            Set<Block> new_blocks = new HashSet<>(this.block_list.subList(entry.scanned_block_count, block_count));
+            this.scanChunk(chunk, new_blocks, entry.positions);
+            entry.scanned_block_count = block_count;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Add the positions of the given blocks in the given chunk to the result
+     * @since    0.2.0
+     */
+    private void scanChunk(Chunk chunk, Set<Block> targets, LongOpenHashSet result) {
+
+        if (targets.isEmpty()) {
+            return;
+        }
 
         ChunkSection[] sections = chunk.getSectionArray();
-        int y_section_index = (chunk.getBottomY() >> 4) - 1;
+        int base_x = chunk.getPos().getStartX();
+        int base_z = chunk.getPos().getStartZ();
+        int section_y = chunk.getBottomSectionCoord();
 
         for (ChunkSection section : sections) {
-            y_section_index++;
+            int base_y = section_y << 4;
+            section_y++;
 
             if (section == null || section.isEmpty()) {
                 continue;
             }
 
-            int y_offset = y_section_index * 16;
+            this.scanSection(section.getBlockStateContainer(), targets, base_x, base_y, base_z, result);
+        }
+    }
+
+    /**
+     * Scan a single section
+     * @since    0.2.0
+     */
+    private void scanSection(PalettedContainer<BlockState> container, Set<Block> targets, int base_x, int base_y, int base_z, LongOpenHashSet result) {
 
-            if (!sectionContainsTargetBlocks(section)) {
-                continue;
+        PalettedContainer.Data<BlockState> data = container.data;
+        Palette<BlockState> palette = data.palette();
+        PaletteStorage storage = data.storage();
+
+        boolean[] matches;
+
+        if (palette instanceof IdListPalette) {
+            matches = this.getGlobalMatches(targets);
+        } else {
+            int palette_size = palette.getSize();
+            matches = new boolean[palette_size];
+            boolean any = false;
+
+            for (int id = 0; id < palette_size; id++) {
+                if (targets.contains(palette.get(id).getBlock())) {
+                    matches[id] = true;
+                    any = true;
+                }
             }
 
-            for (int x = 0; x < 16; x++) {
-                for (int y = 0; y < 16; y++) {
-                    for (int z = 0; z < 16; z++) {
-                        BlockState state = section.getBlockState(x, y, z);
-                        Block block = state.getBlock();
-
-                        for (Block block_to_check : this.blocks) {
-                            if (block == block_to_check) {
-                                BlockPos block_pos_in_world = chunk_pos.getBlockPos(x, y + y_offset, z);
-                                positions.add(block_pos_in_world);
-                            }
-                        }
+            // Nothing in this section's palette matches, so skip it entirely
+            if (!any) {
+                return;
+            }
+        }
+
+        int size = storage.getSize();
+        int bits = storage.getElementBits();
+
+        if (storage instanceof EmptyPaletteStorage || bits == 0) {
+            // Every block in the section uses palette id 0
+            if (matches.length > 0 && matches[0]) {
+                for (int index = 0; index < size; index++) {
+                    result.add(toPackedPos(index, base_x, base_y, base_z));
+                }
+            }
+
+            return;
+        }
+
+        if (storage instanceof PackedIntegerArray) {
+            // Values never span multiple longs: unpack them directly
+            long[] words = storage.getData();
+            int per_word = 64 / bits;
+            long mask = (1L << bits) - 1L;
+            int index = 0;
+
+            for (long word : words) {
+                for (int j = 0; j < per_word && index < size; j++, index++) {
+                    int id = (int) (word & mask);
+                    word >>>= bits;
+
+                    if (id < matches.length && matches[id]) {
+                        result.add(toPackedPos(index, base_x, base_y, base_z));
                     }
                 }
             }
+
+            return;
         }
 
-        chunk_map.put(chunk_pos_long, positions);
+        for (int index = 0; index < size; index++) {
+            int id = storage.get(index);
 
-        return new ArrayList<>(positions);
+            if (id < matches.length && matches[id]) {
+                result.add(toPackedPos(index, base_x, base_y, base_z));
+            }
+        }
     }
 
-    private boolean sectionContainsTargetBlocks(ChunkSection section) {
-        return section.getBlockStateContainer().hasAny(blockState -> {
-            for (Block block_to_check : this.blocks) {
-                if (blockState.getBlock() == block_to_check) {
-                    return true;
+    /**
+     * Get the matching raw state ids for sections using the global palette
+     * @since    0.2.0
+     */
+    private boolean[] getGlobalMatches(Set<Block> targets) {
+
+        // Only the full set of blocks is cached
+        if (targets == this.blocks && this.global_matches != null) {
+            return this.global_matches;
+        }
+
+        boolean[] matches = new boolean[Block.STATE_IDS.size()];
+
+        for (Block block : targets) {
+            for (BlockState state : block.getStateManager().getStates()) {
+                int raw_id = Block.STATE_IDS.getRawId(state);
+
+                if (raw_id >= 0 && raw_id < matches.length) {
+                    matches[raw_id] = true;
                 }
             }
-            return false;
-        });
+        }
+
+        if (targets == this.blocks) {
+            this.global_matches = matches;
+        }
+
+        return matches;
     }
 
     /**
-     * Get a list of all block positions in the given chunk
-     * @since   0.2.0
+     * Turn a section storage index into a packed world position
+     * (block state storage indexes are y, then z, then x)
+     * @since    0.2.0
      */
-    public List<BlockPos> getBlockPositions(World world, Chunk chunk) {
-        return this.getBlockPositions(world.getRegistryKey(), chunk);
+    private static long toPackedPos(int index, int base_x, int base_y, int base_z) {
+        return BlockPos.asLong(
+                base_x + (index & 15),
+                base_y + (index >> 8),
+                base_z + ((index >> 4) & 15)
+        );
     }
 
     /**
-     * Get a list of all block positions in the given chunk
+     * A copy of a section's block states
+     * @since    0.2.0
      */
-    public List<BlockPos> getBlockPositions(RegistryKey<World> world_key, Chunk chunk) {
-        Long2ObjectMap<ObjectOpenHashSet<BlockPos>> chunk_map = getChunkMap(world_key);
-        ObjectOpenHashSet<BlockPos> blocks = chunk_map.get(chunk.getPos().toLong());
+    private record SectionSnapshot(int base_y, PalettedContainer<BlockState> states) {}
+
+    /**
+     * A scan that is running on a worker thread
+     * @since    0.2.0
+     */
+    private static class PendingScan {
+
+        // The pledge that resolves once the result is published
+        private final Pledge<ChunkEntry> pledge = new Pledge<>();
+
+        // The block changes that happened during the scan (packed pos -> is a match)
+        private final Long2BooleanLinkedOpenHashMap changes = new Long2BooleanLinkedOpenHashMap();
+
+        // How many of the blocks are being scanned for
+        private final int scanned_block_count;
 
-        if (blocks == null) {
-            return recalculateChunk(world_key, chunk);
+        private PendingScan(int scanned_block_count) {
+            this.scanned_block_count = scanned_block_count;
         }
+    }
+
+    /**
+     * The cached positions of a single chunk
+     * @since    0.2.0
+     */
+    public static class ChunkEntry {
 
-        return new ArrayList<>(blocks);
+        // The packed positions of the matching blocks
+        public final LongOpenHashSet positions = new LongOpenHashSet();
+
+        // How many of the blocks this chunk has been scanned for
+        private int scanned_block_count;
+
+        private ChunkEntry(int scanned_block_count) {
+            this.scanned_block_count = scanned_block_count;
+        }
+
+        /**
+         * Convert the positions to a new list of BlockPos instances
+         * @since    0.2.0
+         */
+        public List<BlockPos> toBlockPosList() {
+
+            List<BlockPos> result = new ArrayList<>(this.positions.size());
+            LongIterator iterator = this.positions.iterator();
+
+            while (iterator.hasNext()) {
+                result.add(BlockPos.fromLong(iterator.nextLong()));
+            }
+
+            return result;
+        }
     }
 }
@@ -0,0 +1,218 @@
+package rocks.blackblock.bib.collection;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * A per-world spatial index of values spanning multiple chunks.
+ * Every value is bucketed under each chunk it covers,
+ * so looking up a chunk only costs the values overlapping it.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public class ChunkZoneIndex<V> {
+
+    // The index per world
+    private final Map<World, WorldIndex<V>> worlds = new WeakHashMap<>(6);
+
+    /**
+     * (Re)index the given value in the given world:
+     * it will only be present in the given chunks afterward
+     *
+     * @since    0.2.0
+     */
+    public void update(World world, V value, Collection<ChunkPos> chunks) {
+
+        if (world == null || value == null) {
+            return;
+        }
+
+        WorldIndex<V> index = this.worlds.computeIfAbsent(world, w -> new WorldIndex<>());
+        index.remove(value);
+
+        if (chunks == null || chunks.isEmpty()) {
+            return;
+        }
+
+        long[] keys = new long[chunks.size()];
+        int i = 0;
+
+        for (ChunkPos chunk_pos : chunks) {
+            keys[i++] = chunk_pos.toLong();
+        }
+
+        index.add(value, keys);
+    }
+
+    /**
+     * Remove the given value from the index of the given world
+     *
+     * @since    0.2.0
+     */
+    public void remove(World world, V value) {
+
+        WorldIndex<V> index = this.worlds.get(world);
+
+        if (index != null) {
+            index.remove(value);
+        }
+    }
+
+    /**
+     * Get all the values covering the given chunk
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public List<V> get(World world, ChunkPos chunk_pos) {
+        return this.get(world, chunk_pos.toLong());
+    }
+
+    /**
+     * Get all the values covering the chunk of the given block position
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public List<V> get(World world, BlockPos block_pos) {
+        return this.get(world, ChunkPos.toLong(block_pos.getX() >> 4, block_pos.getZ() >> 4));
+    }
+
+    /**
+     * Get all the values covering the given packed chunk position.
+     * The returned list is a read-only view.
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public List<V> get(World world, long chunk_key) {
+
+        WorldIndex<V> index = this.worlds.get(world);
+
+        if (index == null) {
+            return Collections.emptyList();
+        }
+
+        List<V> bucket = index.buckets.get(chunk_key);
+
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(bucket);
+    }
+
+    /**
+     * Is any value covering the given chunk?
+     *
+     * @since    0.2.0
+     */
+    public boolean contains(World world, ChunkPos chunk_pos) {
+
+        WorldIndex<V> index = this.worlds.get(world);
+
+        if (index == null) {
+            return false;
+        }
+
+        return index.buckets.containsKey(chunk_pos.toLong());
+    }
+
+    /**
+     * Forget everything about the given world
+     *
+     * @since    0.2.0
+     */
+    public void clear(World world) {
+        this.worlds.remove(world);
+    }
+
+    /**
+     * Forget everything
+     *
+     * @since    0.2.0
+     */
+    public void clear() {
+        this.worlds.clear();
+    }
+
+    /**
+     * The index of a single world
+     *
+     * @since    0.2.0
+     */
+    private static class WorldIndex<V> {
+
+        // The values per packed chunk position
+        private final Long2ObjectMap<ObjectArrayList<V>> buckets = new Long2ObjectOpenHashMap<>();
+
+        // The chunks each value is currently indexed under
+        private final Map<V, long[]> indexed_chunks = new IdentityHashMap<>();
+
+        /**
+         * Add the value to the given chunk buckets
+         *
+         * @since    0.2.0
+         */
+        private void add(V value, long[] keys) {
+
+            this.indexed_chunks.put(value, keys);
+
+            for (long key : keys) {
+                ObjectArrayList<V> bucket = this.buckets.get(key);
+
+                if (bucket == null) {
+                    bucket = new ObjectArrayList<>(2);
+                    this.buckets.put(key, bucket);
+                }
+
+                bucket.add(value);
+            }
+        }
+
+        /**
+         * Remove the value from all the buckets it is in,
+         * and drop the buckets that become empty
+         *
+         * @since    0.2.0
+         */
+        private void remove(V value) {
+
+            long[] keys = this.indexed_chunks.remove(value);
+
+            if (keys == null) {
+                return;
+            }
+
+            for (long key : keys) {
+                ObjectArrayList<V> bucket = this.buckets.get(key);
+
+                if (bucket == null) {
+                    continue;
+                }
+
+                for (int i = bucket.size() - 1; i >= 0; i--) {
+                    if (bucket.get(i) == value) {
+                        bucket.remove(i);
+                        break;
+                    }
+                }
+
+                if (bucket.isEmpty()) {
+                    this.buckets.remove(key);
+                }
+            }
+        }
+    }
+}
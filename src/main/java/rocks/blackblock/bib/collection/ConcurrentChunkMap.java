@@ -0,0 +1,236 @@
+package rocks.blackblock.bib.collection;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Map packed chunk positions to a value, safe to use from multiple threads.
+ * <p>
+ * The keys are spread over a few lock stripes,
+ * so threads working on different chunks rarely wait on each other,
+ * and lookups never allocate anything.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings({"unused", "unchecked"})
+public class ConcurrentChunkMap<V> {
+
+    // The amount of stripes (has to be a power of 2)
+    private static final int STRIPE_COUNT = 16;
+
+    // How far to shift the mixed hash to get the stripe from its highest bits
+    private static final int STRIPE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(STRIPE_COUNT);
+
+    // The actual maps, each guarded by its own monitor
+    private final Long2ObjectOpenHashMap<V>[] stripes = new Long2ObjectOpenHashMap[STRIPE_COUNT];
+
+    /**
+     * Create a new map
+     *
+     * @since    0.2.0
+     */
+    public ConcurrentChunkMap() {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            this.stripes[i] = new Long2ObjectOpenHashMap<>();
+        }
+    }
+
+    /**
+     * Get the stripe of the given key.
+     * The stripe is picked from the high bits of the mixed hash:
+     * the maps themselves use the low bits to place their keys,
+     * so using those would only leave 1/16th of each table's slots usable.
+     *
+     * @since    0.2.0
+     */
+    private Long2ObjectOpenHashMap<V> getStripe(long chunk_key) {
+        return this.stripes[(int) (HashCommon.mix(chunk_key) >>> STRIPE_SHIFT)];
+    }
+
+    /**
+     * Get the value of the given packed chunk position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V get(long chunk_key) {
+
+        Long2ObjectOpenHashMap<V> stripe = this.getStripe(chunk_key);
+
+        synchronized (stripe) {
+            return stripe.get(chunk_key);
+        }
+    }
+
+    /**
+     * Get the value of the given chunk position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V get(ChunkPos chunk_pos) {
+        return this.get(chunk_pos.toLong());
+    }
+
+    /**
+     * Put the value of the given packed chunk position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V put(long chunk_key, V value) {
+
+        Long2ObjectOpenHashMap<V> stripe = this.getStripe(chunk_key);
+
+        synchronized (stripe) {
+            return stripe.put(chunk_key, value);
+        }
+    }
+
+    /**
+     * Put the value if there is none yet.
+     * Returns the value that is in the map afterward.
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public V putIfAbsent(long chunk_key, @NotNull V value) {
+
+        Long2ObjectOpenHashMap<V> stripe = this.getStripe(chunk_key);
+
+        synchronized (stripe) {
+            V existing = stripe.get(chunk_key);
+
+            if (existing != null) {
+                return existing;
+            }
+
+            stripe.put(chunk_key, value);
+            return value;
+        }
+    }
+
+    /**
+     * Get the value of the given packed chunk position,
+     * or create it while holding the stripe's lock
+     *
+     * @since    0.2.0
+     */
+    public V computeIfAbsent(long chunk_key, LongFunction<V> creator) {
+
+        Long2ObjectOpenHashMap<V> stripe = this.getStripe(chunk_key);
+
+        synchronized (stripe) {
+            V result = stripe.get(chunk_key);
+
+            if (result == null) {
+                result = creator.apply(chunk_key);
+                stripe.put(chunk_key, result);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Remove the value of the given packed chunk position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V remove(long chunk_key) {
+
+        Long2ObjectOpenHashMap<V> stripe = this.getStripe(chunk_key);
+
+        synchronized (stripe) {
+            return stripe.remove(chunk_key);
+        }
+    }
+
+    /**
+     * Remove the value of the given packed chunk position,
+     * but only if it is the given value
+     *
+     * @since    0.2.0
+     */
+    public boolean remove(long chunk_key, V value) {
+
+        Long2ObjectOpenHashMap<V> stripe = this.getStripe(chunk_key);
+
+        synchronized (stripe) {
+            if (stripe.get(chunk_key) != value) {
+                return false;
+            }
+
+            stripe.remove(chunk_key);
+            return true;
+        }
+    }
+
+    /**
+     * Get the amount of entries
+     *
+     * @since    0.2.0
+     */
+    public int size() {
+
+        int size = 0;
+
+        for (Long2ObjectOpenHashMap<V> stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Is this map empty?
+     *
+     * @since    0.2.0
+     */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * Get a snapshot of all the values
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public List<V> values() {
+
+        List<V> result = new ArrayList<>();
+
+        for (Long2ObjectOpenHashMap<V> stripe : this.stripes) {
+            synchronized (stripe) {
+                result.addAll(stripe.values());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Remove all the values
+     *
+     * @since    0.2.0
+     */
+    public void clear() {
+        for (Long2ObjectOpenHashMap<V> stripe : this.stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package rocks.blackblock.bib.collection;
+
+/**
+ * A rolling average of double values backed by a primitive ring buffer,
+ * so adding a value never allocates.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public class DoubleRollingAverage extends PrimitiveRollingAverage {
+
+    private double[] buffer;
+
+    /**
+     * Create a new DoubleRollingAverage with a default buffer size of 20
+     *
+     * @since 0.2.0
+     */
+    public DoubleRollingAverage() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new DoubleRollingAverage with the given buffer size
+     *
+     * @since 0.2.0
+     */
+    public DoubleRollingAverage(int buffer_size) {
+        super(buffer_size);
+    }
+
+    /**
+     * Add a new value to the average
+     *
+     * @since 0.2.0
+     */
+    public void addValue(double value) {
+        this.add(value);
+    }
+
+    /**
+     * Get the smallest value in the buffer
+     *
+     * @since 0.2.0
+     */
+    public double getMin() {
+        return this.minAsDouble();
+    }
+
+    /**
+     * Get the largest value in the buffer
+     *
+     * @since 0.2.0
+     */
+    public double getMax() {
+        return this.maxAsDouble();
+    }
+
+    @Override
+    protected void allocateBuffer(int buffer_size) {
+        this.buffer = new double[buffer_size];
+    }
+
+    @Override
+    protected double valueAt(int index) {
+        return this.buffer[index];
+    }
+
+    @Override
+    protected void storeAt(int index, double value) {
+        this.buffer[index] = value;
+    }
+}
@@ -0,0 +1,74 @@
+package rocks.blackblock.bib.collection;
+
+/**
+ * A rolling average of float values backed by a primitive ring buffer,
+ * so adding a value never allocates.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public class FloatRollingAverage extends PrimitiveRollingAverage {
+
+    private float[] buffer;
+
+    /**
+     * Create a new FloatRollingAverage with a default buffer size of 20
+     *
+     * @since 0.2.0
+     */
+    public FloatRollingAverage() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new FloatRollingAverage with the given buffer size
+     *
+     * @since 0.2.0
+     */
+    public FloatRollingAverage(int buffer_size) {
+        super(buffer_size);
+    }
+
+    /**
+     * Add a new value to the average
+     *
+     * @since 0.2.0
+     */
+    public void addValue(float value) {
+        this.add(value);
+    }
+
+    /**
+     * Get the smallest value in the buffer
+     *
+     * @since 0.2.0
+     */
+    public float getMin() {
+        return (float) this.minAsDouble();
+    }
+
+    /**
+     * Get the largest value in the buffer
+     *
+     * @since 0.2.0
+     */
+    public float getMax() {
+        return (float) this.maxAsDouble();
+    }
+
+    @Override
+    protected void allocateBuffer(int buffer_size) {
+        this.buffer = new float[buffer_size];
+    }
+
+    @Override
+    protected double valueAt(int index) {
+        return this.buffer[index];
+    }
+
+    @Override
+    protected void storeAt(int index, double value) {
+        this.buffer[index] = (float) value;
+    }
+}
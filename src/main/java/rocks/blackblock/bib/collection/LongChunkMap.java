@@ -0,0 +1,164 @@
+package rocks.blackblock.bib.collection;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.function.BiConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Map Chunk positions to a value, keyed by packed longs.
+ * This does not take worlds into account,
+ * use {@link LongWorldChunkMap} for that.
+ * <p>
+ * Chunk positions are stored as packed longs (see {@link ChunkPos#toLong()}),
+ * so lookups by coordinates or packed key do not allocate anything.
+ * Use {@link ChunkMap} if you need a regular {@code Map<ChunkPos, V>}.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings({
+        // Ignore unused warnings: this is a library after all
+        "unused",
+
+        // Ignore warnings of using raw types
+        "rawtypes",
+
+        // Ignore unchecked typecast warnings
+        "unchecked"
+})
+public class LongChunkMap<V> extends Long2ObjectOpenHashMap<V> {
+
+    /**
+     * Create a new LongChunkMap without a specific capacity
+     *
+     * @since    0.2.0
+     */
+    public LongChunkMap() {
+        super();
+    }
+
+    /**
+     * Create a new LongChunkMap with the given capacity
+     *
+     * @since    0.2.0
+     */
+    public LongChunkMap(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    /**
+     * Get the packed key of the given chunk coordinates
+     *
+     * @since    0.2.0
+     */
+    public static long toKey(int chunk_x, int chunk_z) {
+        return ChunkPos.toLong(chunk_x, chunk_z);
+    }
+
+    /**
+     * Get the packed chunk key of the given block position
+     *
+     * @since    0.2.0
+     */
+    public static long toKey(BlockPos pos) {
+        return ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4);
+    }
+
+    /**
+     * Get the value of the given chunk position
+     *
+     * @since    0.2.0
+     */
+    public V get(ChunkPos chunk_pos) {
+        return this.get(chunk_pos.toLong());
+    }
+
+    /**
+     * Get the value of the given chunk coordinates
+     *
+     * @since    0.2.0
+     */
+    public V get(int chunk_x, int chunk_z) {
+        return this.get(ChunkPos.toLong(chunk_x, chunk_z));
+    }
+
+    /**
+     * Do we have a value for the given chunk position?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsKey(ChunkPos chunk_pos) {
+        return this.containsKey(chunk_pos.toLong());
+    }
+
+    /**
+     * Put the value of the given chunk position
+     *
+     * @since    0.2.0
+     */
+    public V put(ChunkPos chunk_pos, V value) {
+        return this.put(chunk_pos.toLong(), value);
+    }
+
+    /**
+     * Remove the value of the given chunk position
+     *
+     * @since    0.2.0
+     */
+    public V remove(ChunkPos chunk_pos) {
+        return this.remove(chunk_pos.toLong());
+    }
+
+    /**
+     * Get the value of the given packed chunk position,
+     * or create it using the given function
+     *
+     * @since    0.2.0
+     */
+    public V getOrCreate(long chunk_key, LongFunction<V> creator) {
+
+        V result = this.get(chunk_key);
+
+        if (result == null) {
+            result = creator.apply(chunk_key);
+            this.put(chunk_key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Iterate over each entry with its packed chunk position
+     * without allocating any ChunkPos instances
+     *
+     * @since    0.2.0
+     */
+    public void forEachPacked(PackedIterator<V> iterator) {
+
+        ObjectIterator<Long2ObjectMap.Entry<V>> entries = this.long2ObjectEntrySet().fastIterator();
+
+        while (entries.hasNext()) {
+            Long2ObjectMap.Entry<V> entry = entries.next();
+            iterator.iterate(entry.getLongKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Iterate over each entry with its ChunkPos
+     *
+     * @since    0.2.0
+     */
+    public void forEachChunk(BiConsumer<ChunkPos, V> iterator) {
+        this.forEachPacked((chunk_key, value) -> iterator.accept(new ChunkPos(chunk_key), value));
+    }
+
+    @FunctionalInterface
+    public interface PackedIterator<V> {
+        void iterate(long chunk_key, V value);
+    }
+}
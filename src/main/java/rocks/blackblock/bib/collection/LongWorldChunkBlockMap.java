@@ -0,0 +1,556 @@
+package rocks.blackblock.bib.collection;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Map World, Chunk & Block data to a value.
+ * The values of each chunk are kept in a {@link ChunkBlockMap},
+ * keyed by packed chunk longs, so lookups don't need any ChunkPos.
+ * Use {@link WorldChunkBlockMap} if you need the {@link ChunkMap} backing.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings({
+        // Ignore unused warnings: this is a library after all
+        "unused",
+
+        // Ignore warnings of using raw types
+        "rawtypes",
+
+        // Ignore unchecked typecast warnings
+        "unchecked"
+})
+public class LongWorldChunkBlockMap<V> implements Iterable<V>  {
+
+    protected final Map<World, LongChunkMap<ChunkBlockMap<V>>> worldMap;
+    protected Integer initialCapacity = null;
+
+    /**
+     * Create a new LongWorldChunkBlockMap with default settings
+     *
+     * @since    0.2.0
+     */
+    public LongWorldChunkBlockMap() {
+        this.worldMap = new HashMap<>(6);
+    }
+
+    /**
+     * Create a new LongWorldChunkBlockMap with the given backing for World values
+     *
+     * @since    0.2.0
+     */
+    public LongWorldChunkBlockMap(Map worldMap) {
+        this.worldMap = worldMap;
+    }
+
+    /**
+     * Create a new LongWorldChunkBlockMap and use the given capacity
+     * for the inner LongChunkMap
+     *
+     * @since    0.2.0
+     */
+    public LongWorldChunkBlockMap(int initialCapacity) {
+        this();
+        this.initialCapacity = initialCapacity;
+    }
+
+    /**
+     * Create a new LongChunkMap
+     *
+     * @since    0.2.0
+     */
+    protected LongChunkMap<ChunkBlockMap<V>> createChunkMap() {
+
+        if (this.initialCapacity != null) {
+            return new LongChunkMap<>(this.initialCapacity);
+        }
+
+        return new LongChunkMap<>();
+    }
+
+    /**
+     * Get the total amount of values in this map
+     *
+     * @since    0.2.0
+     */
+    public int size() {
+
+        int result = 0;
+        for (var chunkMap : this.worldMap.values()) {
+            for (var blockMap : chunkMap.values()) {
+                result += blockMap.size();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Is this map empty?
+     *
+     * @since    0.2.0
+     */
+    public boolean isEmpty() {
+
+        if (this.worldMap.isEmpty()) {
+            return true;
+        }
+
+        for (var chunkMap : this.worldMap.values()) {
+            for (var blockMap : chunkMap.values()) {
+                if (!blockMap.isEmpty()) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Do we have values for the given world & chunk?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsKey(World world, Chunk chunk) {
+        return this.containsKey(world, chunk.getPos());
+    }
+
+    /**
+     * Do we have any values for the given world & chunk?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsKey(World world, ChunkPos chunk_pos) {
+        return this.containsKey(world, chunk_pos.toLong());
+    }
+
+    /**
+     * Do we have any values for the given world & packed chunk position?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsKey(World world, long chunk_key) {
+
+        var blockMap = this.getChunkBlockMap(world, chunk_key);
+
+        if (blockMap == null) {
+            return false;
+        }
+
+        return !blockMap.isEmpty();
+    }
+
+    /**
+     * Do we have the given value anywhere?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsValue(Object o) {
+
+        for (var chunkMap : this.worldMap.values()) {
+            for (var blockMap : chunkMap.values()) {
+                if (blockMap.containsValue(o)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the values of the given world & chunk
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public Map<BlockPos, V> get(World world, Chunk chunk) {
+
+        if (world == null || chunk == null) {
+            return null;
+        }
+
+        return this.get(world, chunk.getPos());
+    }
+
+    /**
+     * Get a read-only view of the values of the given world & chunk pos.
+     * The view is not a copy: it reflects later changes.
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public Map<BlockPos, V> get(World world, ChunkPos chunk_pos) {
+
+        if (world == null || chunk_pos == null) {
+            return null;
+        }
+
+        var blockMap = this.getChunkBlockMap(world, chunk_pos.toLong());
+
+        if (blockMap == null || blockMap.isEmpty()) {
+            return null;
+        }
+
+        return blockMap.asMap();
+    }
+
+    /**
+     * Get the ChunkBlockMap of the given world & packed chunk position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public ChunkBlockMap<V> getChunkBlockMap(World world, long chunk_key) {
+
+        if (world == null) {
+            return null;
+        }
+
+        var chunkMap = this.worldMap.get(world);
+
+        if (chunkMap == null) {
+            return null;
+        }
+
+        return chunkMap.get(chunk_key);
+    }
+
+    /**
+     * Get the value of the given world, chunk pos & block pos
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V get(World world, ChunkPos chunk_pos, BlockPos pos) {
+
+        if (world == null || pos == null) {
+            return null;
+        }
+
+        long chunk_key = chunk_pos == null ? LongChunkMap.toKey(pos) : chunk_pos.toLong();
+
+        var blockMap = this.getChunkBlockMap(world, chunk_key);
+
+        if (blockMap == null) {
+            return null;
+        }
+
+        return blockMap.get(pos);
+    }
+
+    /**
+     * Get the value of the given world, chunk pos & block pos
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V get(World world, BlockPos pos) {
+
+        if (world == null || pos == null) {
+            return null;
+        }
+
+        var blockMap = this.getChunkBlockMap(world, LongChunkMap.toKey(pos));
+
+        if (blockMap == null) {
+            return null;
+        }
+
+        return blockMap.get(pos);
+    }
+
+    /**
+     * Put the given world & blockpos value
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V put(World world, BlockPos pos, V value) {
+
+        if (world == null || pos == null) {
+            return null;
+        }
+
+        return this.put(world, null, pos, value);
+    }
+
+    /**
+     * Put the given world & chunk value
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V put(World world, ChunkPos chunk_pos, BlockPos pos, V value) {
+
+        if (world == null || pos == null) {
+            return null;
+        }
+
+        // The position itself decides the chunk
+        long chunk_key = LongChunkMap.toKey(pos);
+
+        var chunkMap = this.worldMap.computeIfAbsent(world, world1 -> this.createChunkMap());
+        var blockMap = chunkMap.getOrCreate(chunk_key, ChunkBlockMap::new);
+
+        return blockMap.put(pos, value);
+    }
+
+    /**
+     * Remove the given value
+     *
+     * @since    0.2.0
+     */
+    public V remove(Object o) {
+        V result;
+
+        for (var chunkMap : this.worldMap.values()) {
+            for (var blockMap : chunkMap.values()) {
+                result = blockMap.removeValue(o);
+
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove the value at the given world & block pos
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V remove(World world, BlockPos pos) {
+
+        var chunkMap = this.worldMap.get(world);
+
+        if (chunkMap == null) {
+            return null;
+        }
+
+        long chunk_key = LongChunkMap.toKey(pos);
+        var blockMap = chunkMap.get(chunk_key);
+
+        if (blockMap == null) {
+            return null;
+        }
+
+        V result = blockMap.remove(pos);
+
+        if (blockMap.isEmpty()) {
+            chunkMap.remove(chunk_key);
+        }
+
+        return result;
+    }
+
+    /**
+     * Remove all the values of the given world & packed chunk position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public ChunkBlockMap<V> removeChunk(World world, long chunk_key) {
+
+        var chunkMap = this.worldMap.get(world);
+
+        if (chunkMap == null) {
+            return null;
+        }
+
+        return chunkMap.remove(chunk_key);
+    }
+
+    /**
+     * Clear all the values
+     *
+     * @since    0.2.0
+     */
+    public void clear() {
+        this.worldMap.clear();
+    }
+
+    /**
+     * Iterate over all the values
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    @Override
+    public Iterator<V> iterator() {
+        return new WorldChunkBlockIterator();
+    }
+
+    /**
+     * Iterate over each entry with world, chunk & block pos info
+     *
+     * @since    0.2.0
+     */
+    public void forEach(WorldChunkBlockMap.WorldChunkBlockValueRunner<V> iterator) {
+        this.worldMap.forEach((world, vChunkMap) -> {
+            this.forEach(world, vChunkMap, iterator);
+        });
+    }
+
+    /**
+     * Iterate over each value, without any position info.
+     * This does not allocate any positions.
+     *
+     * @since    0.2.0
+     */
+    public void forEachValue(Consumer<V> consumer) {
+        for (var chunkMap : this.worldMap.values()) {
+            for (var blockMap : chunkMap.values()) {
+                blockMap.forEachValue(consumer);
+            }
+        }
+    }
+
+    /**
+     * Iterate over each value in the given world, without any position info.
+     * This does not allocate any positions.
+     *
+     * @since    0.2.0
+     */
+    public void forEachValue(World world, Consumer<V> consumer) {
+
+        var chunks = this.worldMap.get(world);
+
+        if (chunks == null) {
+            return;
+        }
+
+        for (var blockMap : chunks.values()) {
+            blockMap.forEachValue(consumer);
+        }
+    }
+
+    /**
+     * Iterate over each entry with world & chunk pos info.
+     * The given maps are read-only views.
+     *
+     * @since    0.2.0
+     */
+    public void forEachChunk(WorldChunkMap.TripleIterator<Map<BlockPos, V>> iterator) {
+        this.worldMap.forEach((world, vChunkMap) -> {
+            vChunkMap.forEachChunk((chunkPos, blockMap) -> {
+                iterator.iterate(world, chunkPos, blockMap.asMap());
+            });
+        });
+    }
+
+    /**
+     * Get all the values of the given world
+     *
+     * @since    0.2.0
+     */
+    public Collection<V> valuesPerWorld(World world) {
+        var chunks = this.worldMap.get(world);
+
+        if (chunks == null) {
+            return null;
+        }
+
+        List<V> result = new ArrayList<>();
+
+        for (var blockMap : chunks.values()) {
+            result.addAll(blockMap.values());
+        }
+
+        return result;
+    }
+
+    /**
+     * Iterate over each entry in the given world, chunk & block info
+     *
+     * @since    0.2.0
+     */
+    public void forEach(World world, WorldChunkBlockMap.WorldChunkBlockValueRunner<V> iterator) {
+
+        var chunks = this.worldMap.get(world);
+
+        if (chunks == null) {
+            return;
+        }
+
+        this.forEach(world, chunks, iterator);
+    }
+
+    /**
+     * Iterate over each entry in the given chunks
+     *
+     * @since    0.2.0
+     */
+    private void forEach(World world, LongChunkMap<ChunkBlockMap<V>> chunks, WorldChunkBlockMap.WorldChunkBlockValueRunner<V> iterator) {
+        chunks.forEachChunk((chunkPos, blockMap) -> {
+            blockMap.forEach((blockPos, v) -> {
+                iterator.run(world, chunkPos, blockPos, v);
+            });
+        });
+    }
+
+    /**
+     * Our own iterator class
+     *
+     * @since    0.2.0
+     */
+    private class WorldChunkBlockIterator implements Iterator<V> {
+        private final Iterator<LongChunkMap<ChunkBlockMap<V>>> worldIterator;
+        private Iterator<ChunkBlockMap<V>> chunkIterator;
+        private Iterator<V> blockIterator;
+
+        public WorldChunkBlockIterator() {
+            this.worldIterator = worldMap.values().iterator();
+            this.chunkIterator = null;
+            this.blockIterator = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            while (true) {
+
+                // If there is a block iterator, and it has a next value,
+                // we're good to go
+                if (this.blockIterator != null && this.blockIterator.hasNext()) {
+                    return true;
+                }
+
+                // Move on to the next chunk of the current world
+                if (this.chunkIterator != null && this.chunkIterator.hasNext()) {
+                    this.blockIterator = this.chunkIterator.next().values().iterator();
+                    continue;
+                }
+
+                // Current chunk iterator is finished, get the next world
+                if (this.worldIterator.hasNext()) {
+                    this.chunkIterator = this.worldIterator.next().values().iterator();
+                    continue;
+                }
+
+                return false;
+            }
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.blockIterator.next();
+        }
+    }
+}
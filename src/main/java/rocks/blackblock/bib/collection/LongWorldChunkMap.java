@@ -0,0 +1,442 @@
+package rocks.blackblock.bib.collection;
+
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Map World & Chunk data to a value, keyed by packed chunk longs.
+ * Each world's chunks are kept in a {@link LongChunkMap},
+ * so lookups by coordinates or packed key do not allocate anything.
+ * Use {@link WorldChunkMap} if you need the {@link ChunkMap} backing.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings({
+        // Ignore unused warnings: this is a library after all
+        "unused",
+
+        // Ignore warnings of using raw types
+        "rawtypes",
+
+        // Ignore unchecked typecast warnings
+        "unchecked"
+})
+public class LongWorldChunkMap<V> implements Iterable<V> {
+
+    protected final Map<World, LongChunkMap<V>> worldMap;
+    protected Integer initialCapacity = null;
+
+    /**
+     * Create a new LongWorldChunkMap with default settings
+     *
+     * @since    0.2.0
+     */
+    public LongWorldChunkMap() {
+        this.worldMap = new HashMap<>(6);
+    }
+
+    /**
+     * Create a new LongWorldChunkMap with the given backing for World values
+     *
+     * @since    0.2.0
+     */
+    public LongWorldChunkMap(Map worldMap) {
+        this.worldMap = worldMap;
+    }
+
+    /**
+     * Create a new LongWorldChunkMap and use the given capacity
+     * for the inner LongChunkMap
+     *
+     * @since    0.2.0
+     */
+    public LongWorldChunkMap(int initialCapacity) {
+        this();
+        this.initialCapacity = initialCapacity;
+    }
+
+    /**
+     * Create a new LongChunkMap
+     *
+     * @since    0.2.0
+     */
+    protected LongChunkMap<V> createChunkMap() {
+
+        if (this.initialCapacity != null) {
+            return new LongChunkMap<>(this.initialCapacity);
+        }
+
+        return new LongChunkMap<>();
+    }
+
+    /**
+     * Get the total amount of values in this map
+     *
+     * @since    0.2.0
+     */
+    public int size() {
+
+        int result = 0;
+        for (var chunkMap : this.worldMap.values()) {
+            result += chunkMap.size();
+        }
+
+        return result;
+    }
+
+    /**
+     * Is this map empty?
+     *
+     * @since    0.2.0
+     */
+    public boolean isEmpty() {
+
+        if (this.worldMap.isEmpty()) {
+            return true;
+        }
+
+        for (var chunkMap : this.worldMap.values()) {
+            if (!chunkMap.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Do we have a value for the given world & chunk?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsKey(World world, Chunk chunk) {
+        return this.containsKey(world, chunk.getPos());
+    }
+
+    /**
+     * Do we have a value for the given world & chunk?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsKey(World world, ChunkPos chunk_pos) {
+
+        var chunkMap = this.worldMap.get(world);
+
+        if (chunkMap == null) {
+            return false;
+        }
+
+        return chunkMap.containsKey(chunk_pos);
+    }
+
+    /**
+     * Do we have a value for the given world & packed chunk position?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsKey(World world, long chunk_key) {
+
+        var chunkMap = this.worldMap.get(world);
+
+        if (chunkMap == null) {
+            return false;
+        }
+
+        return chunkMap.containsKey(chunk_key);
+    }
+
+    /**
+     * Do we have the given value anywhere?
+     *
+     * @since    0.2.0
+     */
+    public boolean containsValue(Object o) {
+
+        for (var chunkMap : this.worldMap.values()) {
+            if (chunkMap.containsValue(o)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the value of the given world & chunk
+     *
+     * @since    0.2.0
+     */
+    public V get(World world, Chunk chunk) {
+        return this.get(world, chunk.getPos());
+    }
+
+    /**
+     * Get the value of the given world & chunk
+     *
+     * @since    0.2.0
+     */
+    public V get(World world, ChunkPos chunk_pos) {
+
+        var chunkMap = this.worldMap.get(world);
+
+        if (chunkMap == null) {
+            return null;
+        }
+
+        return chunkMap.get(chunk_pos);
+    }
+
+    /**
+     * Get the value of the given world & chunk coordinates
+     *
+     * @since    0.2.0
+     */
+    public V get(World world, int chunk_x, int chunk_z) {
+        return this.get(world, ChunkPos.toLong(chunk_x, chunk_z));
+    }
+
+    /**
+     * Get the value of the given world & packed chunk position
+     *
+     * @since    0.2.0
+     */
+    public V get(World world, long chunk_key) {
+
+        var chunkMap = this.worldMap.get(world);
+
+        if (chunkMap == null) {
+            return null;
+        }
+
+        return chunkMap.get(chunk_key);
+    }
+
+    /**
+     * Put the given world & chunk value
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V put(World world, Chunk chunk, V value) {
+        return this.put(world, chunk.getPos(), value);
+    }
+
+    /**
+     * Put the given world & chunk value
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V put(World world, ChunkPos chunk_pos, V value) {
+        return this.put(world, chunk_pos.toLong(), value);
+    }
+
+    /**
+     * Put the given world & packed chunk position value
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V put(World world, long chunk_key, V value) {
+        var chunkMap = this.worldMap.computeIfAbsent(world, world1 -> this.createChunkMap());
+        return chunkMap.put(chunk_key, value);
+    }
+
+    /**
+     * Remove the value of the given world & packed chunk position
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public V remove(World world, long chunk_key) {
+
+        var chunkMap = this.worldMap.get(world);
+
+        if (chunkMap == null) {
+            return null;
+        }
+
+        return chunkMap.remove(chunk_key);
+    }
+
+    /**
+     * Remove the given value
+     *
+     * @since    0.2.0
+     */
+    public V remove(Object o) {
+        V result;
+        long chunk_key;
+
+        if (o instanceof ChunkPos chunk_pos) {
+            chunk_key = chunk_pos.toLong();
+        } else if (o instanceof Long key) {
+            chunk_key = key;
+        } else {
+            return null;
+        }
+
+        for (var chunkMap : this.worldMap.values()) {
+            result = chunkMap.remove(chunk_key);
+
+            if (result != null) {
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Clear all the values
+     *
+     * @since    0.2.0
+     */
+    public void clear() {
+        this.worldMap.clear();
+    }
+
+    /**
+     * Iterate over all the values
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    @Override
+    public Iterator<V> iterator() {
+        return new WorldChunkIterator();
+    }
+
+    /**
+     * Iterate over each entry with world & chunk info
+     *
+     * @since    0.2.0
+     */
+    public void forEach(WorldChunkMap.TripleIterator<V> iterator) {
+        this.worldMap.forEach((world, vChunkMap) -> {
+            vChunkMap.forEachPacked((chunk_key, v) -> {
+                iterator.iterate(world, new ChunkPos(chunk_key), v);
+            });
+        });
+    }
+
+    /**
+     * Iterate over each entry with world & packed chunk position info.
+     * This does not allocate any ChunkPos instances.
+     *
+     * @since    0.2.0
+     */
+    public void forEachPacked(PackedTripleIterator<V> iterator) {
+        this.worldMap.forEach((world, vChunkMap) -> {
+            vChunkMap.forEachPacked((chunk_key, v) -> {
+                iterator.iterate(world, chunk_key, v);
+            });
+        });
+    }
+
+    /**
+     * Iterate over each entry in the given world & chunk info
+     *
+     * @since    0.2.0
+     */
+    public void forEach(World world, WorldChunkMap.TripleIterator<V> iterator) {
+
+        var chunks = this.worldMap.get(world);
+
+        if (chunks == null) {
+            return;
+        }
+
+        chunks.forEachPacked((chunk_key, v) -> {
+            iterator.iterate(world, new ChunkPos(chunk_key), v);
+        });
+    }
+
+    /**
+     * Iterate over each entry in the given world with packed chunk position info
+     *
+     * @since    0.2.0
+     */
+    public void forEachPacked(World world, PackedTripleIterator<V> iterator) {
+
+        var chunks = this.worldMap.get(world);
+
+        if (chunks == null) {
+            return;
+        }
+
+        chunks.forEachPacked((chunk_key, v) -> {
+            iterator.iterate(world, chunk_key, v);
+        });
+    }
+
+    /**
+     * Get an iterator for the given world
+     *
+     * @since    0.2.0
+     */
+    public Collection<V> valuesPerWorld(World world) {
+        var chunks = this.worldMap.get(world);
+
+        if (chunks == null) {
+            return null;
+        }
+
+        return chunks.values();
+    }
+
+    @FunctionalInterface
+    public interface PackedTripleIterator<V> {
+        void iterate(World world, long chunk_key, V value);
+    }
+
+    /**
+     * Our own iterator class
+     *
+     * @since    0.2.0
+     */
+    private class WorldChunkIterator implements Iterator<V> {
+        private final Iterator<Map.Entry<World, LongChunkMap<V>>> worldIterator;
+        private Iterator<V> chunkIterator;
+
+        public WorldChunkIterator() {
+            this.worldIterator = worldMap.entrySet().iterator();
+            this.chunkIterator = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            // If we have a chunk iterator, and it has a next value,
+            // we're good to go
+            if (chunkIterator != null && chunkIterator.hasNext()) {
+                return true;
+            }
+
+            // Current chunk iterator is finished, get the next one
+            while (worldIterator.hasNext()) {
+                Map.Entry<World, LongChunkMap<V>> worldEntry = worldIterator.next();
+                chunkIterator = worldEntry.getValue().values().iterator();
+                if (chunkIterator.hasNext()) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunkIterator.next();
+        }
+    }
+}
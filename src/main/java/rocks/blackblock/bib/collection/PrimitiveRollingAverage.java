@@ -0,0 +1,339 @@
+package rocks.blackblock.bib.collection;
+
+/**
+ * Base class for the primitive-backed rolling averages.
+ * <p>
+ * Subclasses only own the typed ring buffer: the mean, variance,
+ * min/max and exponentially-weighted average are all kept up-to-date
+ * here in O(1) (amortized for min/max) without boxing anything.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public abstract class PrimitiveRollingAverage {
+
+    // The default buffer size
+    public static final int DEFAULT_BUFFER_SIZE = 20;
+
+    // The size of the ring buffer
+    protected int buffer_size;
+
+    // Where the next value will be written
+    protected int current_index;
+
+    // The amount of values currently in the buffer
+    protected int count;
+
+    // The total amount of values ever added (the sequence number of the next value)
+    private long added;
+
+    // The running mean & sum of squared differences (Welford)
+    private double mean;
+    private double m2;
+
+    // The exponentially-weighted moving average
+    private double ewma;
+    private double ewma_alpha = -1;
+
+    // Monotonic deques of sequence numbers for the window min & max
+    private long[] min_deque;
+    private int min_head;
+    private int min_size;
+    private long[] max_deque;
+    private int max_head;
+    private int max_size;
+
+    /**
+     * Initialize the shared state
+     *
+     * @since 0.2.0
+     */
+    protected PrimitiveRollingAverage(int buffer_size) {
+        this.resetState(buffer_size);
+    }
+
+    /**
+     * Allocate the typed buffer
+     *
+     * @since 0.2.0
+     */
+    protected abstract void allocateBuffer(int buffer_size);
+
+    /**
+     * Get the value at the given buffer index as a double
+     *
+     * @since 0.2.0
+     */
+    protected abstract double valueAt(int index);
+
+    /**
+     * Write the given value (which is already cast to the correct type)
+     * to the given buffer index
+     *
+     * @since 0.2.0
+     */
+    protected abstract void storeAt(int index, double value);
+
+    /**
+     * Set the buffer size.
+     * The most recent values that still fit in the new buffer are kept.
+     *
+     * @since 0.2.0
+     */
+    public void setBufferSize(int buffer_size) {
+
+        if (buffer_size < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1");
+        }
+
+        if (buffer_size == this.buffer_size) {
+            return;
+        }
+
+        // Collect the most recent values, oldest first
+        int keep = Math.min(this.count, buffer_size);
+        double[] recent = new double[keep];
+
+        for (int i = 0; i < keep; i++) {
+            int index = Math.floorMod(this.current_index - keep + i, this.buffer_size);
+            recent[i] = this.valueAt(index);
+        }
+
+        double ewma = this.ewma;
+        this.resetState(buffer_size);
+
+        for (double value : recent) {
+            this.add(value);
+        }
+
+        // Resizing should not reset the long-term EWMA
+        if (keep > 0) {
+            this.ewma = ewma;
+        }
+    }
+
+    /**
+     * Get the buffer size
+     *
+     * @since 0.2.0
+     */
+    public int getBufferSize() {
+        return this.buffer_size;
+    }
+
+    /**
+     * Set the smoothing factor of the exponentially-weighted average (0 - 1).
+     * By default this is 2 / (buffer_size + 1)
+     *
+     * @since 0.2.0
+     */
+    public void setEwmaAlpha(double alpha) {
+
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("The EWMA alpha should be between 0 and 1");
+        }
+
+        this.ewma_alpha = alpha;
+    }
+
+    /**
+     * Forget all the values
+     *
+     * @since 0.2.0
+     */
+    public void clear() {
+        this.resetState(this.buffer_size);
+    }
+
+    /**
+     * Add a value that has already been cast to the buffer's type
+     *
+     * @since 0.2.0
+     */
+    protected void add(double value) {
+
+        long sequence = this.added++;
+        int index = this.current_index;
+
+        if (this.count < this.buffer_size) {
+            // Buffer not full yet
+            this.count++;
+            double delta = value - this.mean;
+            this.mean += delta / this.count;
+            this.m2 += delta * (value - this.mean);
+        } else {
+            // Buffer full, replace the oldest value
+            double old_value = this.valueAt(index);
+            double old_mean = this.mean;
+            this.mean += (value - old_value) / this.count;
+            this.m2 += (value - old_value) * (value - this.mean + old_value - old_mean);
+
+            // Rounding errors should never make this negative
+            if (this.m2 < 0) {
+                this.m2 = 0;
+            }
+        }
+
+        // Expire the sequence number that is about to be overwritten
+        long expired = sequence - this.buffer_size;
+
+        if (this.min_size > 0 && this.min_deque[this.min_head] <= expired) {
+            this.min_head = (this.min_head + 1) % this.buffer_size;
+            this.min_size--;
+        }
+
+        if (this.max_size > 0 && this.max_deque[this.max_head] <= expired) {
+            this.max_head = (this.max_head + 1) % this.buffer_size;
+            this.max_size--;
+        }
+
+        // Drop every value that can never be the minimum/maximum again
+        while (this.min_size > 0 && this.valueAtSequence(this.min_deque[(this.min_head + this.min_size - 1) % this.buffer_size]) >= value) {
+            this.min_size--;
+        }
+
+        while (this.max_size > 0 && this.valueAtSequence(this.max_deque[(this.max_head + this.max_size - 1) % this.buffer_size]) <= value) {
+            this.max_size--;
+        }
+
+        this.storeAt(index, value);
+
+        this.min_deque[(this.min_head + this.min_size) % this.buffer_size] = sequence;
+        this.min_size++;
+        this.max_deque[(this.max_head + this.max_size) % this.buffer_size] = sequence;
+        this.max_size++;
+
+        if (sequence == 0) {
+            this.ewma = value;
+        } else {
+            double alpha = this.ewma_alpha > 0 ? this.ewma_alpha : 2.0 / (this.buffer_size + 1);
+            this.ewma += alpha * (value - this.ewma);
+        }
+
+        this.current_index = (index + 1) % this.buffer_size;
+    }
+
+    /**
+     * Get the average value
+     *
+     * @since 0.2.0
+     */
+    public double getAverage() {
+        return this.count > 0 ? this.mean : 0;
+    }
+
+    /**
+     * Get the sum of all the values in the buffer
+     *
+     * @since 0.2.0
+     */
+    public double getSum() {
+        return this.mean * this.count;
+    }
+
+    /**
+     * Get the (population) variance of the values in the buffer
+     *
+     * @since 0.2.0
+     */
+    public double getVariance() {
+        return this.count > 0 ? this.m2 / this.count : 0;
+    }
+
+    /**
+     * Get the standard deviation of the values in the buffer
+     *
+     * @since 0.2.0
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(this.getVariance());
+    }
+
+    /**
+     * Get the exponentially-weighted moving average
+     *
+     * @since 0.2.0
+     */
+    public double getExponentialAverage() {
+        return this.added > 0 ? this.ewma : 0;
+    }
+
+    /**
+     * Get the amount of values in the buffer
+     *
+     * @since 0.2.0
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the current index
+     *
+     * @since 0.2.0
+     */
+    public int getCurrentIndex() {
+        return this.current_index;
+    }
+
+    /**
+     * Get the smallest value in the buffer as a double
+     *
+     * @since 0.2.0
+     */
+    protected double minAsDouble() {
+        return this.min_size > 0 ? this.valueAtSequence(this.min_deque[this.min_head]) : 0;
+    }
+
+    /**
+     * Get the largest value in the buffer as a double
+     *
+     * @since 0.2.0
+     */
+    protected double maxAsDouble() {
+        return this.max_size > 0 ? this.valueAtSequence(this.max_deque[this.max_head]) : 0;
+    }
+
+    /**
+     * Get the buffer index of the given sequence number
+     *
+     * @since 0.2.0
+     */
+    protected int indexOfSequence(long sequence) {
+        return (int) (sequence % this.buffer_size);
+    }
+
+    /**
+     * Get the value of the given sequence number
+     *
+     * @since 0.2.0
+     */
+    private double valueAtSequence(long sequence) {
+        return this.valueAt(this.indexOfSequence(sequence));
+    }
+
+    /**
+     * Reset all the state and allocate new buffers
+     *
+     * @since 0.2.0
+     */
+    private void resetState(int buffer_size) {
+        this.buffer_size = buffer_size;
+        this.allocateBuffer(buffer_size);
+        this.current_index = 0;
+        this.count = 0;
+        this.added = 0;
+        this.mean = 0;
+        this.m2 = 0;
+        this.ewma = 0;
+        this.min_deque = new long[buffer_size];
+        this.max_deque = new long[buffer_size];
+        this.min_head = 0;
+        this.min_size = 0;
+        this.max_head = 0;
+        this.max_size = 0;
+    }
+}
@@ -1,7 +1,9 @@
 package rocks.blackblock.bib.collection;
 
 /**
- * Class to calculate the average value of numbers
+ * Class to calculate the average value of numbers.
+ * Every value is boxed: use {@link FloatRollingAverage}, {@link DoubleRollingAverage}
+ * or {@link LongRollingAverage} on hot paths.
  *
  * @since    0.2.0
  */
@@ -0,0 +1,363 @@
+package rocks.blackblock.bib.collection;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-bucket (HDR-style, log-linear) histogram of durations,
+ * with rolling windows of 10 seconds, 1 minute & 5 minutes.
+ * <p>
+ * Values are recorded in microseconds with a precision of about 6%.
+ * Histograms that don't need all the windows can be limited to a shorter one,
+ * which only allocates the slots that window needs.
+ * Recording a value does not allocate anything: all the buckets are
+ * preallocated primitive arrays.
+ * <p>
+ * This class is not thread-safe: it is meant to be fed by a single
+ * thread (like the main server thread).
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public class RollingHistogram {
+
+    // The amount of sub-buckets per power of two (2^4 = 16)
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    // The highest trackable value in microseconds (about 16.7 seconds)
+    private static final long HIGHEST_TRACKABLE_VALUE = (1L << 24) - 1;
+
+    // The total amount of buckets
+    private static final int BUCKET_COUNT = getBucketIndex(HIGHEST_TRACKABLE_VALUE) + 1;
+
+    // The duration of a single slot
+    private static final long SLOT_DURATION_NS = 5_000_000_000L;
+
+    // The longest window this histogram keeps track of
+    private final Window longest_window;
+
+    // The amount of slots (as many as the longest window needs)
+    private final int slot_count;
+
+    // The bucket counts per slot
+    private final long[][] slot_counts;
+
+    // The highest value per slot
+    private final long[] slot_max;
+
+    // The bucket counts per window
+    private final long[][] window_counts;
+
+    // The total amount of values per window
+    private final long[] window_totals;
+
+    // The slot that is currently being recorded into
+    private int current_slot = 0;
+
+    // The absolute slot number of the current slot
+    private long current_slot_number = -1;
+
+    // The reference time
+    private final long origin_ns = System.nanoTime();
+
+    /**
+     * Create a histogram with all the windows
+     *
+     * @since    0.2.0
+     */
+    public RollingHistogram() {
+        this(Window.FIVE_MINUTES);
+    }
+
+    /**
+     * Create a histogram that keeps track of the windows
+     * up to (and including) the given one.
+     * Asking for a longer window returns the values of this one.
+     *
+     * @since    0.2.0
+     */
+    public RollingHistogram(Window longest_window) {
+        int window_count = longest_window.ordinal() + 1;
+
+        this.longest_window = longest_window;
+        this.slot_count = longest_window.slots;
+        this.slot_counts = new long[this.slot_count][BUCKET_COUNT];
+        this.slot_max = new long[this.slot_count];
+        this.window_counts = new long[window_count][BUCKET_COUNT];
+        this.window_totals = new long[window_count];
+    }
+
+    /**
+     * Get the window that is actually used when asking for the given one
+     *
+     * @since    0.2.0
+     */
+    private Window clampWindow(Window window) {
+
+        if (window.ordinal() > this.longest_window.ordinal()) {
+            return this.longest_window;
+        }
+
+        return window;
+    }
+
+    /**
+     * Record the given duration in nanoseconds
+     *
+     * @since    0.2.0
+     */
+    public void recordNanos(long duration_in_ns) {
+        this.recordMicros(duration_in_ns / 1000, System.nanoTime());
+    }
+
+    /**
+     * Record the given duration in microseconds
+     *
+     * @since    0.2.0
+     */
+    public void recordMicros(long duration_in_us) {
+        this.recordMicros(duration_in_us, System.nanoTime());
+    }
+
+    /**
+     * Record the given duration in microseconds at the given time
+     *
+     * @since    0.2.0
+     */
+    public void recordMicros(long duration_in_us, long now_ns) {
+
+        this.advanceTo(now_ns);
+
+        if (duration_in_us < 0) {
+            duration_in_us = 0;
+        } else if (duration_in_us > HIGHEST_TRACKABLE_VALUE) {
+            duration_in_us = HIGHEST_TRACKABLE_VALUE;
+        }
+
+        int index = getBucketIndex(duration_in_us);
+
+        this.slot_counts[this.current_slot][index]++;
+
+        if (duration_in_us > this.slot_max[this.current_slot]) {
+            this.slot_max[this.current_slot] = duration_in_us;
+        }
+
+        for (int i = 0; i < this.window_counts.length; i++) {
+            this.window_counts[i][index]++;
+            this.window_totals[i]++;
+        }
+    }
+
+    /**
+     * Get the amount of recorded values in the given window
+     *
+     * @since    0.2.0
+     */
+    public long getCount(Window window) {
+        window = this.clampWindow(window);
+        this.advanceTo(System.nanoTime());
+        return this.window_totals[window.ordinal()];
+    }
+
+    /**
+     * Get the given percentile (0 - 100) of the given window in microseconds.
+     * Returns 0 if nothing was recorded in that window.
+     *
+     * @since    0.2.0
+     */
+    public long getPercentile(Window window, double percentile) {
+
+        window = this.clampWindow(window);
+        this.advanceTo(System.nanoTime());
+
+        long total = this.window_totals[window.ordinal()];
+
+        if (total == 0) {
+            return 0;
+        }
+
+        if (percentile >= 100) {
+            return this.getMax(window);
+        }
+
+        long[] counts = this.window_counts[window.ordinal()];
+        long wanted = Math.max(1, (long) Math.ceil((percentile / 100.0) * total));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+
+            if (seen >= wanted) {
+                // Never report more than what was actually seen
+                return Math.min(getHighestEquivalentValue(i), this.getMax(window));
+            }
+        }
+
+        return this.getMax(window);
+    }
+
+    /**
+     * Get the highest recorded value of the given window in microseconds
+     *
+     * @since    0.2.0
+     */
+    public long getMax(Window window) {
+
+        window = this.clampWindow(window);
+        this.advanceTo(System.nanoTime());
+
+        long result = 0;
+
+        for (int i = 0; i < window.slots; i++) {
+            int slot = Math.floorMod(this.current_slot - i, this.slot_count);
+
+            if (this.slot_max[slot] > result) {
+                result = this.slot_max[slot];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Forget everything
+     *
+     * @since    0.2.0
+     */
+    public void clear() {
+
+        for (int i = 0; i < this.slot_count; i++) {
+            Arrays.fill(this.slot_counts[i], 0);
+            this.slot_max[i] = 0;
+        }
+
+        for (int i = 0; i < this.window_counts.length; i++) {
+            Arrays.fill(this.window_counts[i], 0);
+            this.window_totals[i] = 0;
+        }
+    }
+
+    /**
+     * Move the current slot forward to the given time,
+     * expiring the slots that fall out of each window
+     *
+     * @since    0.2.0
+     */
+    private void advanceTo(long now_ns) {
+
+        long slot_number = (now_ns - this.origin_ns) / SLOT_DURATION_NS;
+
+        if (this.current_slot_number < 0) {
+            this.current_slot_number = slot_number;
+            return;
+        }
+
+        long steps = slot_number - this.current_slot_number;
+
+        if (steps <= 0) {
+            return;
+        }
+
+        if (steps >= this.slot_count) {
+            this.clear();
+            this.current_slot_number = slot_number;
+            return;
+        }
+
+        for (long step = 0; step < steps; step++) {
+            this.current_slot = (this.current_slot + 1) % this.slot_count;
+
+            // Every window loses the slot that just fell out of it
+            for (int i = 0; i < this.window_counts.length; i++) {
+                Window window = Window.VALUES[i];
+                int expired_slot = Math.floorMod(this.current_slot - window.slots, this.slot_count);
+                this.subtractSlot(window, expired_slot);
+            }
+
+            // The slot we're about to reuse is now empty
+            Arrays.fill(this.slot_counts[this.current_slot], 0);
+            this.slot_max[this.current_slot] = 0;
+        }
+
+        this.current_slot_number = slot_number;
+    }
+
+    /**
+     * Subtract the counts of the given slot from the given window
+     *
+     * @since    0.2.0
+     */
+    private void subtractSlot(Window window, int slot) {
+
+        long[] counts = this.slot_counts[slot];
+        long[] target = this.window_counts[window.ordinal()];
+        long removed = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            long count = counts[i];
+
+            if (count != 0) {
+                target[i] -= count;
+                removed += count;
+            }
+        }
+
+        this.window_totals[window.ordinal()] -= removed;
+    }
+
+    /**
+     * Get the bucket index of the given value
+     *
+     * @since    0.2.0
+     */
+    private static int getBucketIndex(long value) {
+
+        // The first 2 sub-bucket ranges are linear
+        if (value < (SUB_BUCKET_COUNT << 1)) {
+            return (int) value;
+        }
+
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Get the highest value that ends up in the given bucket
+     *
+     * @since    0.2.0
+     */
+    private static long getHighestEquivalentValue(int index) {
+
+        if (index < (SUB_BUCKET_COUNT << 1)) {
+            return index;
+        }
+
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long sub_bucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+
+        return ((sub_bucket + 1) << shift) - 1;
+    }
+
+    /**
+     * The available rolling windows
+     *
+     * @since    0.2.0
+     */
+    public enum Window {
+        TEN_SECONDS(2),
+        ONE_MINUTE(12),
+        FIVE_MINUTES(60);
+
+        private static final Window[] VALUES = values();
+
+        // The amount of slots in this window
+        private final int slots;
+
+        Window(int slots) {
+            this.slots = slots;
+        }
+    }
+}
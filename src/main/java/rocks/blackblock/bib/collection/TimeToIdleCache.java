@@ -1,6 +1,8 @@
 package rocks.blackblock.bib.collection;
 
-import java.lang.ref.WeakReference;
+import rocks.blackblock.bib.runnable.ScheduledTask;
+import rocks.blackblock.bib.util.BibFlow;
+
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
@@ -16,12 +18,7 @@ public class TimeToIdleCache<K, V> {
 
     private final Map<K, ValueWithTimestamp<V>> map = new ConcurrentHashMap<>();
     private final long timeToIdleInMs;
-    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r);
-        t.setDaemon(true);
-        return t;
-    });
-    private ScheduledFuture<?> cleanupTask;
+    private final ScheduledTask cleanupTask;
 
     /**
      * Initialize the cache
@@ -32,17 +29,9 @@ public class TimeToIdleCache<K, V> {
         // We want a cleanup to happen at most once a minute
         long cleanupIntervalInMs = Math.max(this.timeToIdleInMs / 3, TimeUnit.MINUTES.toMillis(1));
 
-        WeakReference<TimeToIdleCache<K,V>> weakThis = new WeakReference<>(this);
-
-        this.cleanupTask = scheduler.scheduleAtFixedRate(() -> {
-            TimeToIdleCache<K,V> map = weakThis.get();
-            if (map == null) {
-                // The map has been GC'd, cancel the cleanup task
-                cleanupTask.cancel(false);
-            } else {
-                map.expungeExpiredValues();
-            }
-        }, cleanupIntervalInMs, cleanupIntervalInMs, TimeUnit.MILLISECONDS);
+        // The shared scheduler only holds a weak reference to this map,
+        // and cancels the cleanup task once it has been GC'd
+        this.cleanupTask = BibFlow.scheduleWhileReferenced(this, TimeToIdleCache::expungeExpiredValues, cleanupIntervalInMs);
     }
 
     /**
@@ -11,7 +11,8 @@ import org.jetbrains.annotations.Nullable;
 import java.util.*;
 
 /**
- * Map World, Chunk & Block data to a value
+ * Map World, Chunk & Block data to a value.
+ * Use {@link LongWorldChunkBlockMap} for lookups that don't allocate any ChunkPos.
  *
  * @author   Jelle De Loecker <jelle@elevenways.be>
  * @since    0.2.0
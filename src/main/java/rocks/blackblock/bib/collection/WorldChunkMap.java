@@ -9,7 +9,9 @@ import org.jetbrains.annotations.Nullable;
 import java.util.*;
 
 /**
- * Map World & Chunk data to a value
+ * Map World & Chunk data to a value.
+ * Use {@link LongWorldChunkMap} for lookups by packed chunk keys
+ * that don't allocate any ChunkPos.
  *
  * @author   Jelle De Loecker <jelle@elevenways.be>
  * @since    0.2.0
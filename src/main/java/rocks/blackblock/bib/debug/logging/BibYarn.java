@@ -5,10 +5,16 @@ import org.jetbrains.annotations.Nullable;
 import rocks.blackblock.bib.util.BibLog;
 
 import java.io.*;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Work with Yarn mappings, if they are available
@@ -20,13 +26,25 @@ public class BibYarn {
 
     public static BibYarn INSTANCE = null;
 
-    private static final Pattern FQ_CLASS_NAMES = Pattern.compile("net\\.minecraft\\.class_\\d+");
-    private static final Pattern SIMPLE_CLASS_NAMES = Pattern.compile("class_\\d+");
-    private static final Pattern METHOD_NAMES = Pattern.compile("method_\\d+");
+    // The package obfuscated classes live in
+    private static final String OBFUSCATED_PACKAGE = "net.minecraft.";
 
-    private Map<String, ClassInfo> class_mappings = null;
-    private Map<String, FieldInfo> field_mappings = null;
-    private Map<String, MethodInfo> method_mappings = null;
+    // How many translated lines to remember
+    private static final int LINE_CACHE_SIZE = 4096;
+
+    // Longer lines are not worth caching
+    private static final int MAX_CACHED_LINE_LENGTH = 512;
+
+    // The memory-mapped index of the mappings
+    private YarnMappingIndex index = null;
+
+    // Already translated lines (mostly stack frames, which repeat a lot during error storms)
+    private final Map<String, String> line_cache = Collections.synchronizedMap(new LinkedHashMap<>(LINE_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return this.size() > LINE_CACHE_SIZE;
+        }
+    });
 
     /**
      * Instantiate the class with the path to the tiny file
@@ -51,125 +69,121 @@ public class BibYarn {
     }
 
     /**
-     * Load the mappings file
+     * Load the mappings file.
+     * The tiny file is only parsed the first time,
+     * later boots memory-map the binary index stored next to it.
      *
      * @since    0.2.0
      */
     private void loadMappings(@NotNull String mappings_path) {
 
-        this.class_mappings = new HashMap<>(8500);
-        this.field_mappings = new HashMap<>(40000);
-        this.method_mappings = new HashMap<>(42000);
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(mappings_path))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\t");
-                switch (parts[0]) {
-                    case "CLASS":
-                        if (parts.length >= 4) {
-                            this.parseClassLine(parts);
-                        }
-                        break;
-                    case "FIELD":
-                        if (parts.length >= 6) {
-                            this.parseFieldLine(parts);
-                        }
-                        break;
-                    case "METHOD":
-                        if (parts.length >= 6) {
-                            this.parseMethodLine(parts);
-                        }
-                        break;
-                    default:
-                        // Ignore other lines or handle them if needed
-                        break;
-                }
-            }
+        try {
+            this.index = YarnMappingIndex.load(Path.of(mappings_path));
         } catch (Throwable e) {
             throw new RuntimeException(e);
         }
 
-        BibLog.log("Got", this.class_mappings.size(), "class mappings");
-        BibLog.log("Got", this.field_mappings.size(), "field mappings");
-        BibLog.log("Got", this.method_mappings.size(), "method mappings");
+        BibLog.log("Got", this.index.getClassCount(), "class mappings");
+        BibLog.log("Got", this.index.getFieldCount(), "field mappings");
+        BibLog.log("Got", this.index.getMethodCount(), "method mappings");
     }
 
     /**
-     * Parse a class line
+     * Get the simple name of the given path
      *
      * @since    0.2.0
      */
-    private void parseClassLine(String[] parts) {
-        String obfuscated_path = parts[2];
-        String mapped_path = parts[3];
-        ClassInfo info = new ClassInfo(obfuscated_path, mapped_path);
-        this.class_mappings.put(info.getSimpleObfuscatedName(), info);
+    @Nullable
+    private static String getSimpleName(@Nullable String path) {
+
+        if (path == null) {
+            return null;
+        }
+
+        return path.substring(path.lastIndexOf('/') + 1);
     }
 
     /**
-     * Parse a field line
+     * Get the deobfuscated class name
      *
      * @since    0.2.0
      */
-    private void parseFieldLine(String[] parts) {
-        String typeName = parts[2];
-        String obfuscatedName = parts[4];
-        String namedName = parts[5];
-        this.field_mappings.put(obfuscatedName, new FieldInfo(typeName, obfuscatedName, namedName));
+    @Nullable
+    public String deobfuscateSimpleClassName(String obfuscated) {
+
+        if (obfuscated.contains("$$")) {
+            return this.deobfuscateStackTrace(obfuscated);
+        }
+
+        return this.lookupObfuscatedSimpleClassName(obfuscated);
     }
 
     /**
-     * Parse a method line
+     * Get the deobfuscated class name
      *
      * @since    0.2.0
      */
-    private void parseMethodLine(String[] parts) {
-        String signature = parts[2];
-        String obfuscatedName = parts[4];
-        String namedName = parts[5];
-        this.method_mappings.put(obfuscatedName, new MethodInfo(signature, obfuscatedName, namedName));
+    @Nullable
+    public String lookupObfuscatedPath(String obfuscated_path) {
+
+        int id = YarnMappingIndex.parseId(obfuscated_path, "class_");
+
+        if (id < 0) {
+            return null;
+        }
+
+        return this.index.getClassPath(id);
     }
 
     /**
-     * Get the deobfuscated class name
+     * Get the class info of the given obfuscated path
      *
      * @since    0.2.0
      */
     @Nullable
-    public String deobfuscateSimpleClassName(String obfuscated) {
+    public ClassInfo getClassInfo(String obfuscated_path) {
 
-        if (obfuscated.contains("$$")) {
-            return this.deobfuscateStackTrace(obfuscated);
+        String mapped_path = this.lookupObfuscatedPath(obfuscated_path);
+
+        if (mapped_path == null) {
+            return null;
         }
 
-        ClassInfo info = this.class_mappings.get(obfuscated);
+        return new ClassInfo(obfuscated_path, mapped_path);
+    }
+
+    /**
+     * Get the field info of the given obfuscated name
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public FieldInfo getFieldInfo(String obfuscated_name) {
+
+        String mapped_name = this.lookupObfuscatedFieldName(obfuscated_name);
 
-        if (info == null) {
+        if (mapped_name == null) {
             return null;
         }
 
-        return info.simple_mapped_name;
+        return new FieldInfo(null, obfuscated_name, mapped_name);
     }
 
     /**
-     * Get the deobfuscated class name
+     * Get the method info of the given obfuscated name
      *
      * @since    0.2.0
      */
     @Nullable
-    public String lookupObfuscatedPath(String obfuscated_path) {
+    public MethodInfo getMethodInfo(String obfuscated_name) {
 
-        int last_slash_index = obfuscated_path.lastIndexOf('/');
-        String simple_obfuscated_name = last_slash_index != -1 ? obfuscated_path.substring(last_slash_index + 1) : obfuscated_path;
+        String mapped_name = this.lookupObfuscatedMethodName(obfuscated_name);
 
-        ClassInfo info = this.class_mappings.get(simple_obfuscated_name);
-
-        if (info == null) {
+        if (mapped_name == null) {
             return null;
         }
 
-        return info.getMappedPath();
+        return new MethodInfo(null, obfuscated_name, mapped_name);
     }
 
     /**
@@ -179,122 +193,335 @@ public class BibYarn {
      */
     @Nullable
     public String lookupObfuscatedSimpleClassName(String simple_obfuscated_name) {
+        return getSimpleName(this.lookupObfuscatedPath(simple_obfuscated_name));
+    }
 
-        ClassInfo info = this.class_mappings.get(simple_obfuscated_name);
+    /**
+     * Get the deobfuscated class name
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public String lookupObfuscatedMethodName(String obfuscated_method) {
+
+        int id = YarnMappingIndex.parseId(obfuscated_method, "method_");
 
-        if (info == null) {
+        if (id < 0) {
             return null;
         }
 
-        return info.getSimpleMappedName();
+        return this.index.getMethodName(id);
     }
 
     /**
-     * Get the deobfuscated class name
+     * Get the deobfuscated field name
      *
      * @since    0.2.0
      */
     @Nullable
-    public String lookupObfuscatedMethodName(String obfuscated_method) {
+    public String lookupObfuscatedFieldName(String obfuscated_field) {
 
-        MethodInfo info = this.method_mappings.get(obfuscated_method);
+        int id = YarnMappingIndex.parseId(obfuscated_field, "field_");
 
-        if (info == null) {
+        if (id < 0) {
             return null;
         }
 
-        return info.mapped_name;
+        return this.index.getFieldName(id);
     }
 
     /**
-     * Deobfuscate a stack trace
+     * Does the given part of the input contain anything that looks obfuscated?
+     * (`class_123`, `method_123` or `field_123`)
      *
      * @since    0.2.0
      */
-    @NotNull
-    public String deobfuscateStackTrace(String trace) {
+    public static boolean hasObfuscatedTokens(String input, int from, int to) {
 
-        if (trace == null) {
-            return "";
+        int index = input.indexOf('_', from);
+
+        while (index != -1 && index < to - 1) {
+
+            if (isDigit(input.charAt(index + 1)) && getTokenPrefixLength(input, index) > 0) {
+                return true;
+            }
+
+            index = input.indexOf('_', index + 1);
         }
 
-        // Replace fully qualified class names
-        trace = replaceMatches(trace, FQ_CLASS_NAMES, this::lookupObfuscatedPath);
+        return false;
+    }
 
-        // Replace simple class names
-        trace = replaceMatches(trace, SIMPLE_CLASS_NAMES, this::lookupObfuscatedSimpleClassName);
+    /**
+     * Does the given input contain anything that looks obfuscated?
+     *
+     * @since    0.2.0
+     */
+    public static boolean hasObfuscatedTokens(String input) {
+        return input != null && hasObfuscatedTokens(input, 0, input.length());
+    }
+
+    /**
+     * Does the given part of the (ASCII-compatible) bytes contain anything that looks obfuscated?
+     * This allows checking output without decoding it first.
+     *
+     * @since    0.2.0
+     */
+    public static boolean hasObfuscatedTokens(byte[] input, int from, int to) {
 
-        // Replace method names
-        trace = replaceMatches(trace, METHOD_NAMES, this::lookupObfuscatedMethodName);
+        for (int index = from; index < to - 1; index++) {
 
-        return trace;
+            if (input[index] != '_' || !isDigit((char) input[index + 1])) {
+                continue;
+            }
+
+            if (endsWithAt(input, from, index, "class") || endsWithAt(input, from, index, "method") || endsWithAt(input, from, index, "field")) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     /**
-     * Configure the System output interceptor.
-     * This won't intercept Log4j messages though (which is most calls)
+     * Do the given bytes contain the given ASCII string right before the given index?
      *
      * @since    0.2.0
      */
-    public void setupOutputInterceptor() {
+    private static boolean endsWithAt(byte[] input, int from, int index, String value) {
 
-        // Save the original System.out and System.err
-        PrintStream originalOut = System.out;
-        PrintStream originalErr = System.err;
+        int start = index - value.length();
+
+        if (start < from) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            if (input[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the length of the `class`, `method` or `field` prefix
+     * in front of the underscore at the given index (0 if there is none)
+     *
+     * @since    0.2.0
+     */
+    private static int getTokenPrefixLength(String input, int underscore_index) {
+
+        if (endsWithAt(input, underscore_index, "class")) {
+            return 5;
+        }
+
+        if (endsWithAt(input, underscore_index, "method")) {
+            return 6;
+        }
+
+        if (endsWithAt(input, underscore_index, "field")) {
+            return 5;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Does the given input contain the given string right before the given index?
+     *
+     * @since    0.2.0
+     */
+    private static boolean endsWithAt(String input, int index, String value) {
+        int start = index - value.length();
+        return start >= 0 && input.regionMatches(start, value, 0, value.length());
+    }
+
+    /**
+     * Is the given character an ASCII digit?
+     *
+     * @since    0.2.0
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Deobfuscate a stack trace (or any other message).
+     * Lines without obfuscated names are copied as-is,
+     * the others are translated in a single pass & cached.
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public String deobfuscateStackTrace(String trace) {
+
+        if (trace == null) {
+            return "";
+        }
+
+        int length = trace.length();
+
+        if (!hasObfuscatedTokens(trace, 0, length)) {
+            return trace;
+        }
+
+        StringBuilder result = new StringBuilder(length + 64);
+        int line_start = 0;
+
+        while (line_start < length) {
+            int line_end = trace.indexOf('\n', line_start);
 
-        // Create the intercepting OutputStream and PrintStream for System.out
-        InterceptOutputStream interceptOutStream = new InterceptOutputStream(originalOut, this);
-        PrintStream interceptOutPrintStream = new PrintStream(interceptOutStream);
+            if (line_end == -1) {
+                line_end = length;
+            }
 
-        // Create the intercepting OutputStream and PrintStream for System.err
-        InterceptOutputStream interceptErrStream = new InterceptOutputStream(originalErr, this);
-        PrintStream interceptErrPrintStream = new PrintStream(interceptErrStream);
+            if (hasObfuscatedTokens(trace, line_start, line_end)) {
+                result.append(this.deobfuscateLine(trace.substring(line_start, line_end)));
+            } else {
+                result.append(trace, line_start, line_end);
+            }
+
+            if (line_end < length) {
+                result.append('\n');
+            }
 
-        // Redirect System.out and System.err to the intercepting PrintStreams
-        System.setOut(interceptOutPrintStream);
-        System.setErr(interceptErrPrintStream);
+            line_start = line_end + 1;
+        }
+
+        return result.toString();
     }
 
     /**
-     * Deobfuscate a stack trace
+     * Deobfuscate a single line, using the cache if possible
      *
      * @since    0.2.0
      */
-    private String replaceMatches(String input, String regex, Replacement replacement) {
-        Pattern pattern = Pattern.compile(regex);
-        return replaceMatches(input, pattern, replacement);
+    @NotNull
+    private String deobfuscateLine(String line) {
+
+        if (line.length() > MAX_CACHED_LINE_LENGTH) {
+            return this.translateLine(line);
+        }
+
+        String result = this.line_cache.get(line);
+
+        if (result == null) {
+            result = this.translateLine(line);
+            this.line_cache.put(line, result);
+        }
+
+        return result;
     }
 
     /**
-     * Deobfuscate a stack trace
+     * Replace all the obfuscated names in the given line
      *
      * @since    0.2.0
      */
-    private String replaceMatches(String input, Pattern pattern, Replacement replacement) {
-        Matcher matcher = pattern.matcher(input);
-        StringBuilder result = new StringBuilder();
-
-        while (matcher.find()) {
-            String match = matcher.group();
-            String replacementText = replacement.replace(match);
-            if (replacementText != null) {
-                matcher.appendReplacement(result, replacementText.replaceAll("\\$", "\\\\\\$"));
+    @NotNull
+    private String translateLine(String line) {
+
+        int length = line.length();
+        StringBuilder result = null;
+        int copied = 0;
+        int index = line.indexOf('_');
+
+        while (index != -1 && index < length - 1) {
+
+            if (!isDigit(line.charAt(index + 1))) {
+                index = line.indexOf('_', index + 1);
+                continue;
+            }
+
+            int prefix_length = getTokenPrefixLength(line, index);
+            int end = index + 1;
+
+            while (end < length && isDigit(line.charAt(end))) {
+                end++;
+            }
+
+            if (prefix_length == 0) {
+                index = line.indexOf('_', end);
+                continue;
+            }
+
+            int start = index - prefix_length;
+            int id = YarnMappingIndex.parseId(line, index + 1, end);
+            String replacement = null;
+
+            if (id < 0) {
+                // Too many digits to be a real id
+            } else if (line.charAt(start) == 'c') {
+                String mapped_path = this.index.getClassPath(id);
+
+                if (mapped_path == null) {
+                    // Unknown class
+                } else if (endsWithAt(line, start, OBFUSCATED_PACKAGE)) {
+                    // A fully qualified class name: replace the package too
+                    start -= OBFUSCATED_PACKAGE.length();
+                    replacement = mapped_path.replace('/', '.');
+                } else {
+                    replacement = getSimpleName(mapped_path);
+
+                    // Inner classes: the outer class has already been written
+                    if (start > 0 && line.charAt(start - 1) == '$') {
+                        replacement = replacement.substring(replacement.lastIndexOf('$') + 1);
+                    }
+                }
+            } else if (line.charAt(start) == 'm') {
+                replacement = this.index.getMethodName(id);
             } else {
-                matcher.appendReplacement(result, match.replaceAll("\\$", "\\\\\\$"));
+                replacement = this.index.getFieldName(id);
+            }
+
+            if (replacement != null) {
+                if (result == null) {
+                    result = new StringBuilder(length + 32);
+                }
+
+                result.append(line, copied, start).append(replacement);
+                copied = end;
             }
+
+            index = line.indexOf('_', end);
+        }
+
+        if (result == null) {
+            return line;
         }
-        matcher.appendTail(result);
+
+        result.append(line, copied, length);
+
         return result.toString();
     }
 
-    // Functional interface to replace the matches
-    @FunctionalInterface
-    interface Replacement {
-        String replace(String match);
+    /**
+     * Configure the System output interceptor.
+     * This won't intercept Log4j messages though (which is most calls)
+     *
+     * @since    0.2.0
+     */
+    public void setupOutputInterceptor() {
+
+        // Save the original System.out and System.err
+        PrintStream original_out = System.out;
+        PrintStream original_err = System.err;
+
+        // Create the intercepting OutputStreams, which decode using the same charset
+        InterceptOutputStream intercept_out = new InterceptOutputStream(original_out, this, original_out.charset(), "out");
+        InterceptOutputStream intercept_err = new InterceptOutputStream(original_err, this, original_err.charset(), "err");
+
+        // Redirect System.out and System.err to the intercepting PrintStreams.
+        // These don't auto-flush: that would flush (and thus emit) every partial line
+        System.setOut(new PrintStream(intercept_out, false, original_out.charset()));
+        System.setErr(new PrintStream(intercept_err, false, original_err.charset()));
     }
 
     /**
-     * Class information class
+     * Class information class.
+     * Instances are created on demand from the mapping index.
      *
      * @since    0.2.0
      */
@@ -311,16 +538,13 @@ public class BibYarn {
             int last_slash_index = obfuscated_path.lastIndexOf('/');
             this.simple_obfuscated_name = last_slash_index != -1 ? obfuscated_path.substring(last_slash_index + 1) : obfuscated_path;
 
-            if (this.simple_obfuscated_name.contains("$")) {
-                int dollar_index = this.simple_obfuscated_name.lastIndexOf('$');
+            int dollar_index = this.simple_obfuscated_name.lastIndexOf('$');
 
-                if (dollar_index != 1) {
-                    this.simple_obfuscated_name = this.simple_obfuscated_name.substring(dollar_index + 1);
-                }
+            if (dollar_index != -1) {
+                this.simple_obfuscated_name = this.simple_obfuscated_name.substring(dollar_index + 1);
             }
 
-            last_slash_index = mapped_path.lastIndexOf('/');
-            this.simple_mapped_name = last_slash_index != -1 ? mapped_path.substring(last_slash_index + 1) : mapped_path;
+            this.simple_mapped_name = getSimpleName(mapped_path);
         }
 
         public String getSimpleObfuscatedName() {
@@ -337,7 +561,9 @@ public class BibYarn {
     }
 
     /**
-     * Field information class
+     * Field information class.
+     * The mapping index does not keep field types,
+     * so the type of instances created from it is null.
      *
      * @since    0.2.0
      */
@@ -354,7 +580,9 @@ public class BibYarn {
     }
 
     /**
-     * Method information class
+     * Method information class.
+     * The mapping index does not keep method signatures,
+     * so the signature of instances created from it is null.
      *
      * @since    0.2.0
      */
@@ -371,36 +599,341 @@ public class BibYarn {
     }
 
     /**
-     * Output stream that does deobfuscating
+     * Output stream that does deobfuscating.
      * Only works in the most low-level cases,
-     * since log4j circumvents this
+     * since log4j circumvents this.
+     * <p>
+     * Bytes are collected until a line is complete, so names split over
+     * multiple writes still get translated (an incomplete line is only written
+     * once it is completed or the stream is flushed). Complete lines without obfuscated
+     * names are passed straight through without being decoded,
+     * the others are translated on a background thread.
+     * Once something has been handed to that thread, everything else follows it
+     * until it has caught up, so the order of the output is kept.
      *
      * @since    0.2.0
      */
     public static class InterceptOutputStream extends OutputStream {
+
+        // How many chunks can wait for the background thread
+        private static final int QUEUE_CAPACITY = 1024;
+
+        // Incomplete lines longer than this are written anyway
+        private static final int MAX_LINE_LENGTH = 16 * 1024;
+
+        // How long to wait for the background thread to catch up when closing
+        private static final long DRAIN_TIMEOUT_MS = 2000;
+
         private final OutputStream original;
-        private final BibYarn bibYarn;
+        private final BibYarn bib_yarn;
+        private final Charset charset;
+        private final String name;
+
+        // The bytes of the current, incomplete line
+        private ByteBuffer line_buffer = ByteBuffer.allocate(256);
+
+        // The chunks waiting to be translated & written
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        // How many chunks have been handed off but not written yet
+        private final AtomicInteger in_flight = new AtomicInteger();
 
-        public InterceptOutputStream(OutputStream original, BibYarn bibYarn) {
+        // The thread doing the translating (started on first use)
+        private volatile Thread worker = null;
+
+        public InterceptOutputStream(OutputStream original, BibYarn bib_yarn, Charset charset, String name) {
             this.original = original;
-            this.bibYarn = bibYarn;
+            this.bib_yarn = bib_yarn;
+            this.charset = charset;
+            this.name = name;
+        }
+
+        public InterceptOutputStream(OutputStream original, BibYarn bib_yarn) {
+            this(original, bib_yarn, Charset.defaultCharset(), "out");
         }
 
+        /**
+         * Write a single byte
+         *
+         * @since    0.2.0
+         */
         @Override
-        public void write(int b) throws IOException {
-            // Write to the original OutputStream
-            original.write(b);
+        public synchronized void write(int b) throws IOException {
+
+            if (this.line_buffer.hasRemaining()) {
+                this.line_buffer.put((byte) b);
+            } else {
+                this.appendToLine(new byte[]{(byte) b}, 0, 1);
+            }
+
+            if (b == '\n') {
+                this.emitLineBuffer();
+            }
         }
 
+        /**
+         * Write the given bytes.
+         * Complete lines are emitted, the rest is kept until its line is complete.
+         *
+         * @since    0.2.0
+         */
         @Override
-        public void write(byte[] b, int off, int len) throws IOException {
-            // Interception logic for byte arrays
-            String data = new String(b, off, len);
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
 
-            data = this.bibYarn.deobfuscateStackTrace(data);
+            int end = off + len;
+            int last_newline = -1;
 
-            // Write to the original OutputStream
-            original.write(data.getBytes(), 0, data.length());
+            for (int i = end - 1; i >= off; i--) {
+                if (b[i] == '\n') {
+                    last_newline = i;
+                    break;
+                }
+            }
+
+            if (last_newline == -1) {
+                this.appendToLine(b, off, len);
+                return;
+            }
+
+            int complete_end = last_newline + 1;
+
+            if (this.line_buffer.position() == 0) {
+                // Nothing buffered: the caller's array can be used as-is
+                this.emit(b, off, complete_end);
+            } else {
+                this.appendToLine(b, off, complete_end - off);
+                this.emitLineBuffer();
+            }
+
+            if (complete_end < end) {
+                this.appendToLine(b, complete_end, end - complete_end);
+            }
+        }
+
+        /**
+         * Emit the incomplete line & flush the original stream
+         *
+         * @since    0.2.0
+         */
+        @Override
+        public synchronized void flush() throws IOException {
+
+            this.emitLineBuffer();
+
+            if (this.in_flight.get() == 0) {
+                this.original.flush();
+            }
+        }
+
+        /**
+         * Emit everything & wait for the background thread to catch up
+         *
+         * @since    0.2.0
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            this.flush();
+            this.drain();
+            this.original.flush();
+        }
+
+        /**
+         * Add the given bytes to the current line
+         *
+         * @since    0.2.0
+         */
+        private void appendToLine(byte[] b, int off, int len) throws IOException {
+
+            if (this.line_buffer.remaining() < len) {
+                int required = this.line_buffer.position() + len;
+
+                if (required > MAX_LINE_LENGTH) {
+                    // Don't keep growing because of output without newlines
+                    this.emitLineBuffer();
+                    this.emit(b, off, off + len);
+                    return;
+                }
+
+                ByteBuffer bigger = ByteBuffer.allocate(Math.min(MAX_LINE_LENGTH, Math.max(required, this.line_buffer.capacity() * 2)));
+                this.line_buffer.flip();
+                bigger.put(this.line_buffer);
+                this.line_buffer = bigger;
+            }
+
+            this.line_buffer.put(b, off, len);
+        }
+
+        /**
+         * Emit whatever is in the line buffer
+         *
+         * @since    0.2.0
+         */
+        private void emitLineBuffer() throws IOException {
+
+            int length = this.line_buffer.position();
+
+            if (length == 0) {
+                return;
+            }
+
+            this.emit(this.line_buffer.array(), 0, length);
+            this.line_buffer.clear();
+        }
+
+        /**
+         * Write the given bytes directly if possible,
+         * or hand a copy of them to the background thread
+         *
+         * @since    0.2.0
+         */
+        private void emit(byte[] b, int from, int to) throws IOException {
+
+            if (to <= from) {
+                return;
+            }
+
+            if (this.in_flight.get() == 0 && !hasObfuscatedTokens(b, from, to)) {
+                this.original.write(b, from, to - from);
+                return;
+            }
+
+            byte[] chunk = Arrays.copyOfRange(b, from, to);
+
+            this.in_flight.incrementAndGet();
+            this.ensureWorker();
+
+            if (this.queue.offer(chunk)) {
+                return;
+            }
+
+            // The background thread can't keep up: wait for it,
+            // writing it here instead would mess up the order
+            try {
+                this.queue.put(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.writeTranslated(chunk);
+            }
+        }
+
+        /**
+         * Translate the lines of the given chunk that need it & write it all
+         *
+         * @since    0.2.0
+         */
+        private void writeTranslated(byte[] chunk) throws IOException {
+
+            try {
+                int line_start = 0;
+
+                while (line_start < chunk.length) {
+                    int line_end = line_start;
+
+                    while (line_end < chunk.length && chunk[line_end] != '\n') {
+                        line_end++;
+                    }
+
+                    if (line_end < chunk.length) {
+                        // Include the newline
+                        line_end++;
+                    }
+
+                    if (hasObfuscatedTokens(chunk, line_start, line_end)) {
+                        String line = new String(chunk, line_start, line_end - line_start, this.charset);
+                        byte[] translated = this.bib_yarn.deobfuscateStackTrace(line).getBytes(this.charset);
+                        this.original.write(translated, 0, translated.length);
+                    } else {
+                        this.original.write(chunk, line_start, line_end - line_start);
+                    }
+
+                    line_start = line_end;
+                }
+            } finally {
+                this.in_flight.decrementAndGet();
+            }
+        }
+
+        /**
+         * Make sure the background thread is running
+         *
+         * @since    0.2.0
+         */
+        private void ensureWorker() {
+
+            if (this.worker != null) {
+                return;
+            }
+
+            Thread thread = new Thread(this::work, "Bib-Output-Deobfuscator-" + this.name);
+            thread.setDaemon(true);
+            thread.start();
+            this.worker = thread;
+
+            // Don't lose the last output when the JVM exits
+            Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "Bib-Output-Deobfuscator-Drain-" + this.name));
+        }
+
+        /**
+         * Translate & write queued chunks, forever
+         *
+         * @since    0.2.0
+         */
+        private void work() {
+            while (true) {
+                byte[] chunk;
+
+                try {
+                    chunk = this.queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                try {
+                    this.writeTranslated(chunk);
+
+                    if (this.queue.isEmpty()) {
+                        this.original.flush();
+                    }
+                } catch (Throwable t) {
+                    // Don't print anything from here: it would end up in this queue again
+                }
+            }
+        }
+
+        /**
+         * Wait for the background thread to write everything that is queued.
+         * If it takes too long, the rest is written on the calling thread.
+         *
+         * @since    0.2.0
+         */
+        private void drain() {
+
+            long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+
+            while (this.worker != null && this.worker.isAlive() && this.in_flight.get() > 0 && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            byte[] chunk;
+
+            while ((chunk = this.queue.poll()) != null) {
+                try {
+                    this.writeTranslated(chunk);
+                } catch (Throwable t) {
+                    // Ignore
+                }
+            }
+
+            try {
+                this.original.flush();
+            } catch (IOException e) {
+                // Ignore
+            }
         }
     }
 }
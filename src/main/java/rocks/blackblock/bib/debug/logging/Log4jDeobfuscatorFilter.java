@@ -9,6 +9,10 @@ import org.apache.logging.log4j.core.filter.AbstractFilter;
 import org.apache.logging.log4j.core.impl.Log4jLogEvent;
 import org.apache.logging.log4j.message.SimpleMessage;
 
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.apache.logging.log4j.core.LoggerContext.getContext;
 
 @Plugin(name = "Log4jDeobfuscatorFilter", category = "Core", elementType = "filter", printObject = true)
@@ -16,6 +20,21 @@ public class Log4jDeobfuscatorFilter extends AbstractFilter {
 
     public static final Marker DEOBFUSCATED_MARKER = MarkerManager.getMarker("DEOBFUSCATED");
 
+    // How many events can wait for the deobfuscator thread
+    private static final int QUEUE_CAPACITY = 8192;
+
+    // The events waiting to be deobfuscated & re-appended
+    private static final BlockingQueue<LogEvent> QUEUE = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+    // How many events have been handed off but not appended yet
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+    // The thread doing the actual work (started on first use)
+    private static volatile Thread WORKER = null;
+
+    // How long to wait for the worker to catch up on shutdown
+    private static final long DRAIN_TIMEOUT_MS = 2000;
+
     /**
      * Instantiate the filter
      *
@@ -27,7 +46,8 @@ public class Log4jDeobfuscatorFilter extends AbstractFilter {
 
     /**
      * Apply the filter on the given event.
-     * This will block all original events & re-append a customized one.
+     * Events with obfuscated names are blocked & re-appended in a deobfuscated form
+     * by a separate thread, so the logging thread doesn't have to wait for it.
      *
      * @since    0.2.0
      */
@@ -43,29 +63,129 @@ public class Log4jDeobfuscatorFilter extends AbstractFilter {
             return Result.NEUTRAL;
         }
 
-        this.modifyEventMessageAndReAppend(event);
+        // Let clean messages through directly,
+        // unless older events are still waiting (that would mess up the order)
+        if (IN_FLIGHT.get() == 0 && !BibYarn.hasObfuscatedTokens(event.getMessage().getFormattedMessage())) {
+            return Result.NEUTRAL;
+        }
+
+        // Mutable events get reused by Log4j, so make a copy first
+        LogEvent immutable_event = event.toImmutable();
+
+        IN_FLIGHT.incrementAndGet();
+
+        if (!QUEUE.offer(immutable_event)) {
+            // The worker can't keep up: do it on this thread instead of dropping anything
+            modifyEventMessageAndReAppend(immutable_event);
+            return Result.DENY;
+        }
+
+        ensureWorker();
 
         return Result.DENY;
     }
 
+    /**
+     * Make sure the worker thread is running
+     *
+     * @since    0.2.0
+     */
+    private static void ensureWorker() {
+
+        if (WORKER != null) {
+            return;
+        }
+
+        synchronized (Log4jDeobfuscatorFilter.class) {
+            if (WORKER != null) {
+                return;
+            }
+
+            Thread thread = new Thread(Log4jDeobfuscatorFilter::work, "Bib-Log-Deobfuscator");
+            thread.setDaemon(true);
+            thread.start();
+            WORKER = thread;
+
+            // Don't lose the last messages when the JVM exits
+            Runtime.getRuntime().addShutdownHook(new Thread(Log4jDeobfuscatorFilter::drain, "Bib-Log-Deobfuscator-Drain"));
+        }
+    }
+
+    /**
+     * Deobfuscate & re-append queued events, forever
+     *
+     * @since    0.2.0
+     */
+    private static void work() {
+        while (true) {
+            LogEvent event;
+
+            try {
+                event = QUEUE.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                modifyEventMessageAndReAppend(event);
+            } catch (Throwable t) {
+                // Don't log anything from here: it would end up in this queue again
+            }
+        }
+    }
+
+    /**
+     * Wait for the worker to re-append everything that is queued.
+     * If it takes too long, the rest is re-appended on the calling thread.
+     *
+     * @since    0.2.0
+     */
+    private static void drain() {
+
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+
+        while (WORKER != null && WORKER.isAlive() && IN_FLIGHT.get() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        LogEvent event;
+
+        while ((event = QUEUE.poll()) != null) {
+            try {
+                modifyEventMessageAndReAppend(event);
+            } catch (Throwable t) {
+                // Ignore
+            }
+        }
+    }
+
     /**
      * Modify the message of the given event and re-append it as a new event
      *
      * @since    0.2.0
      */
-    private void modifyEventMessageAndReAppend(LogEvent event) {
+    private static void modifyEventMessageAndReAppend(LogEvent event) {
 
-        String deobfuscated = BibYarn.INSTANCE.deobfuscateStackTrace(event.getMessage().getFormattedMessage());
+        try {
+            String deobfuscated = BibYarn.INSTANCE.deobfuscateStackTrace(event.getMessage().getFormattedMessage());
 
-        // Create a new LogEvent with the modified message
-        LogEvent modifiedEvent = new Log4jLogEvent.Builder(event)
-                .setMessage(new SimpleMessage(deobfuscated))
-                .setMarker(DEOBFUSCATED_MARKER)
-                .build();
+            // Create a new LogEvent with the modified message
+            LogEvent modifiedEvent = new Log4jLogEvent.Builder(event)
+                    .setMessage(new SimpleMessage(deobfuscated))
+                    .setMarker(DEOBFUSCATED_MARKER)
+                    .build();
 
-        // Forward the modified event to the original appenders
-        for (Appender appender : getContext().getConfiguration().getAppenders().values()) {
-            appender.append(modifiedEvent);
+            // Forward the modified event to the original appenders
+            for (Appender appender : getContext().getConfiguration().getAppenders().values()) {
+                appender.append(modifiedEvent);
+            }
+        } finally {
+            IN_FLIGHT.decrementAndGet();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,486 @@
+package rocks.blackblock.bib.debug.logging;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact, read-only index of the intermediary to named mappings.
+ * <p>
+ * The tiny file is parsed once, after which the index is stored next to it
+ * (as `<tiny file>.bibidx`) and memory-mapped on later boots.
+ * Intermediary names are numbered (`class_123`, `method_456`, ...),
+ * so each kind is stored as a sorted array of those numbers
+ * with a parallel array of offsets into a shared string table.
+ * Lookups are binary searches over the mapped buffer.
+ * <p>
+ * File layout:
+ * <pre>
+ * int  magic, int version, long tiny_size, long tiny_modified
+ * int  class_count, int method_count, int field_count
+ * int[class_count]  class ids,  int[class_count]  string offsets
+ * int[method_count] method ids, int[method_count] string offsets
+ * int[field_count]  field ids,  int[field_count]  string offsets
+ * the string table: (unsigned short length, UTF-8 bytes)*
+ * </pre>
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public class YarnMappingIndex {
+
+    // The magic number at the start of the file ("BBYI")
+    private static final int MAGIC = 0x42425949;
+
+    // The version of the file format
+    private static final int VERSION = 1;
+
+    // The size of the header
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 * 3;
+
+    // The extension of the index file
+    private static final String EXTENSION = ".bibidx";
+
+    // The actual data
+    private final ByteBuffer buffer;
+
+    // The amount of entries per kind
+    private final int class_count;
+    private final int method_count;
+    private final int field_count;
+
+    // Where each section starts
+    private final int class_ids_position;
+    private final int method_ids_position;
+    private final int field_ids_position;
+    private final int strings_position;
+
+    /**
+     * Wrap the given index data
+     *
+     * @since    0.2.0
+     */
+    private YarnMappingIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.class_count = buffer.getInt(24);
+        this.method_count = buffer.getInt(28);
+        this.field_count = buffer.getInt(32);
+        this.class_ids_position = HEADER_SIZE;
+        this.method_ids_position = this.class_ids_position + this.class_count * 8;
+        this.field_ids_position = this.method_ids_position + this.method_count * 8;
+        this.strings_position = this.field_ids_position + this.field_count * 8;
+    }
+
+    /**
+     * Load the index of the given tiny file,
+     * building it first if needed
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public static YarnMappingIndex load(@NotNull Path tiny_path) throws IOException {
+
+        long tiny_size = Files.size(tiny_path);
+        long tiny_modified = Files.getLastModifiedTime(tiny_path).toMillis();
+        Path index_path = tiny_path.resolveSibling(tiny_path.getFileName() + EXTENSION);
+
+        if (Files.isRegularFile(index_path)) {
+            try {
+                YarnMappingIndex index = map(index_path, tiny_size, tiny_modified);
+
+                if (index != null) {
+                    return index;
+                }
+            } catch (IOException e) {
+                // Rebuild it
+            }
+        }
+
+        byte[] data = build(tiny_path, tiny_size, tiny_modified);
+
+        try {
+            Path temp_path = index_path.resolveSibling(index_path.getFileName() + ".tmp");
+            Files.write(temp_path, data);
+
+            try {
+                Files.move(temp_path, index_path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp_path, index_path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // The directory might be read-only: just keep it in memory
+        }
+
+        return new YarnMappingIndex(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Memory-map an existing index file.
+     * Returns null if it is outdated.
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    private static YarnMappingIndex map(Path index_path, long tiny_size, long tiny_modified) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(index_path, StandardOpenOption.READ)) {
+
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+
+            if (buffer.getLong(8) != tiny_size || buffer.getLong(16) != tiny_modified) {
+                return null;
+            }
+
+            return new YarnMappingIndex(buffer);
+        }
+    }
+
+    /**
+     * Parse the given tiny file & build the index data
+     *
+     * @since    0.2.0
+     */
+    private static byte[] build(Path tiny_path, long tiny_size, long tiny_modified) throws IOException {
+
+        Map<Integer, Integer> classes = new HashMap<>(8500);
+        Map<Integer, Integer> methods = new HashMap<>(42000);
+        Map<Integer, Integer> fields = new HashMap<>(40000);
+        StringTable strings = new StringTable();
+
+        try (BufferedReader reader = Files.newBufferedReader(tiny_path, StandardCharsets.UTF_8)) {
+            String line;
+            String[] parts = new String[6];
+
+            while ((line = reader.readLine()) != null) {
+                int count = splitTabs(line, parts);
+
+                if (count == 0) {
+                    continue;
+                }
+
+                switch (parts[0]) {
+                    case "CLASS" -> {
+                        if (count >= 4) {
+                            // The simple name is used as the key (inner classes are numbered too)
+                            int id = parseId(parts[2], "class_");
+
+                            if (id >= 0) {
+                                classes.putIfAbsent(id, strings.add(parts[3]));
+                            }
+                        }
+                    }
+                    case "METHOD" -> {
+                        if (count >= 6) {
+                            int id = parseId(parts[4], "method_");
+
+                            if (id >= 0) {
+                                methods.putIfAbsent(id, strings.add(parts[5]));
+                            }
+                        }
+                    }
+                    case "FIELD" -> {
+                        if (count >= 6) {
+                            int id = parseId(parts[4], "field_");
+
+                            if (id >= 0) {
+                                fields.putIfAbsent(id, strings.add(parts[5]));
+                            }
+                        }
+                    }
+                    default -> {
+                        // Ignore other lines
+                    }
+                }
+            }
+        }
+
+        byte[] string_data = strings.toByteArray();
+        int size = HEADER_SIZE + (classes.size() + methods.size() + fields.size()) * 8 + string_data.length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(tiny_size);
+        buffer.putLong(tiny_modified);
+        buffer.putInt(classes.size());
+        buffer.putInt(methods.size());
+        buffer.putInt(fields.size());
+
+        writeSection(buffer, classes);
+        writeSection(buffer, methods);
+        writeSection(buffer, fields);
+
+        buffer.put(string_data);
+
+        return buffer.array();
+    }
+
+    /**
+     * Write the sorted ids & their offsets
+     *
+     * @since    0.2.0
+     */
+    private static void writeSection(ByteBuffer buffer, Map<Integer, Integer> entries) {
+
+        int[] ids = new int[entries.size()];
+        int i = 0;
+
+        for (int id : entries.keySet()) {
+            ids[i++] = id;
+        }
+
+        Arrays.sort(ids);
+
+        for (int id : ids) {
+            buffer.putInt(id);
+        }
+
+        for (int id : ids) {
+            buffer.putInt(entries.get(id));
+        }
+    }
+
+    /**
+     * Split the given line on tabs into the given array (without using regexes).
+     * Returns the amount of parts (up to the array's length)
+     *
+     * @since    0.2.0
+     */
+    private static int splitTabs(String line, String[] parts) {
+
+        if (line.isEmpty()) {
+            return 0;
+        }
+
+        int count = 0;
+        int start = 0;
+
+        while (count < parts.length) {
+            int end = line.indexOf('\t', start);
+
+            if (end == -1) {
+                parts[count++] = line.substring(start);
+                break;
+            }
+
+            parts[count++] = line.substring(start, end);
+            start = end + 1;
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the number of the given intermediary name,
+     * like 123 for `class_123` or `net/minecraft/class_1$class_123`.
+     * Returns -1 if it doesn't look like one.
+     *
+     * @since    0.2.0
+     */
+    public static int parseId(@NotNull String name, @NotNull String prefix) {
+
+        int start = Math.max(name.lastIndexOf('/'), name.lastIndexOf('$')) + 1;
+
+        if (!name.startsWith(prefix, start)) {
+            return -1;
+        }
+
+        return parseId(name, start + prefix.length(), name.length());
+    }
+
+    /**
+     * Parse the digits in the given range of the input.
+     * Returns -1 if there are none, or if there is anything else.
+     *
+     * @since    0.2.0
+     */
+    public static int parseId(@NotNull CharSequence input, int start, int end) {
+
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+
+        int result = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+
+            result = result * 10 + (c - '0');
+        }
+
+        return result;
+    }
+
+    /**
+     * Look for the given id in the given section.
+     * Returns the string offset, or -1 if it was not found
+     *
+     * @since    0.2.0
+     */
+    private int find(int ids_position, int count, int id) {
+
+        int low = 0;
+        int high = count - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = this.buffer.getInt(ids_position + middle * 4);
+
+            if (value < id) {
+                low = middle + 1;
+            } else if (value > id) {
+                high = middle - 1;
+            } else {
+                return this.buffer.getInt(ids_position + count * 4 + middle * 4);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Read the string at the given offset
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    private String readString(int offset) {
+
+        if (offset < 0) {
+            return null;
+        }
+
+        int position = this.strings_position + offset;
+        int length = this.buffer.getShort(position) & 0xFFFF;
+        byte[] bytes = new byte[length];
+
+        this.buffer.get(position + 2, bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the named path of the given class (like `net/minecraft/entity/Entity`)
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public String getClassPath(int id) {
+        return this.readString(this.find(this.class_ids_position, this.class_count, id));
+    }
+
+    /**
+     * Get the named name of the given method
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public String getMethodName(int id) {
+        return this.readString(this.find(this.method_ids_position, this.method_count, id));
+    }
+
+    /**
+     * Get the named name of the given field
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public String getFieldName(int id) {
+        return this.readString(this.find(this.field_ids_position, this.field_count, id));
+    }
+
+    /**
+     * Get the amount of class mappings
+     *
+     * @since    0.2.0
+     */
+    public int getClassCount() {
+        return this.class_count;
+    }
+
+    /**
+     * Get the amount of method mappings
+     *
+     * @since    0.2.0
+     */
+    public int getMethodCount() {
+        return this.method_count;
+    }
+
+    /**
+     * Get the amount of field mappings
+     *
+     * @since    0.2.0
+     */
+    public int getFieldCount() {
+        return this.field_count;
+    }
+
+    /**
+     * Deduplicating string table used while building
+     *
+     * @since    0.2.0
+     */
+    private static class StringTable {
+
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream(1 << 20);
+
+        /**
+         * Add the given string & return its offset
+         *
+         * @since    0.2.0
+         */
+        public int add(String value) {
+
+            Integer existing = this.offsets.get(value);
+
+            if (existing != null) {
+                return existing;
+            }
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(bytes.length, 0xFFFF);
+            int offset = this.data.size();
+
+            this.data.write(length >>> 8);
+            this.data.write(length & 0xFF);
+            this.data.write(bytes, 0, length);
+            this.offsets.put(value, offset);
+
+            return offset;
+        }
+
+        /**
+         * Get all the data
+         *
+         * @since    0.2.0
+         */
+        public byte[] toByteArray() {
+            return this.data.toByteArray();
+        }
+    }
+}
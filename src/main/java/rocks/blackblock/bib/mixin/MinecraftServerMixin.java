@@ -3,11 +3,13 @@ package rocks.blackblock.bib.mixin;
 import net.minecraft.server.MinecraftServer;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import rocks.blackblock.bib.augment.AugmentManager;
+import rocks.blackblock.bib.augment.AugmentRegionStorage;
 import rocks.blackblock.bib.runnable.TickRunnable;
 import rocks.blackblock.bib.util.BibPerf;
 import rocks.blackblock.bib.util.BibServer;
@@ -19,6 +21,10 @@ public class MinecraftServerMixin {
 
     @Shadow private int ticks;
 
+    // When the current server tick started (in nanoseconds)
+    @Unique
+    private long bb$tick_start_ns = 0;
+
     @Inject(method = "<init>", at = @At("RETURN"))
     private void onInit(CallbackInfo ci) {
         BibServer.setServerWhenStarting((MinecraftServer) (Object) this);
@@ -33,6 +39,16 @@ public class MinecraftServerMixin {
         BibServer.setServerWhenStarted((MinecraftServer) (Object) this);
     }
 
+    @Inject(method="tick", at=@At("HEAD"))
+    private void onTickStart(BooleanSupplier shouldKeepTicking, CallbackInfo ci) {
+        this.bb$tick_start_ns = System.nanoTime();
+    }
+
+    @Inject(method="tick", at=@At("RETURN"))
+    private void onTickEnd(BooleanSupplier shouldKeepTicking, CallbackInfo ci) {
+        BibPerf.registerServerTick(System.nanoTime() - this.bb$tick_start_ns);
+    }
+
     @Inject(method="tickWorlds", at=@At("TAIL"))
     private void checkQueuedRunnables(BooleanSupplier shouldKeepTicking, CallbackInfo ci) {
         TickRunnable.checkQueuedRunnables();
@@ -42,11 +58,25 @@ public class MinecraftServerMixin {
     private void onSave(boolean suppressLogs, boolean flush, boolean force, CallbackInfoReturnable<Boolean> cir) {
         try {
             AugmentManager.saveAll();
+
+            // Only wait for the disk when explicitly asked to
+            if (flush) {
+                AugmentManager.flushSaves();
+            }
         } catch (Throwable e) {
             BibServer.registerThrowable(e, "Failed to save Blackblock augments");
         }
     }
 
+    @Inject(method="shutdown", at=@At("TAIL"))
+    private void onShutdown(CallbackInfo ci) {
+        AugmentManager.flushSaves();
+        AugmentRegionStorage.closeAll();
+
+        // An integrated server can be started again, with its ticks starting at 0
+        TickRunnable.reset();
+    }
+
     /**
      * We're about to tick all the worlds
      * @since    0.1.0
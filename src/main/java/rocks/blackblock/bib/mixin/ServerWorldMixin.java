@@ -9,10 +9,12 @@ import net.minecraft.world.dimension.DimensionOptions;
 import net.minecraft.world.level.ServerWorldProperties;
 import net.minecraft.world.level.storage.LevelStorage;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import rocks.blackblock.bib.augment.AugmentManager;
+import rocks.blackblock.bib.util.BibPerf;
 
 import java.util.List;
 import java.util.concurrent.Executor;
@@ -23,6 +25,10 @@ public class ServerWorldMixin {
 
     private final ServerWorld self_server_world = (ServerWorld) (Object) this;
 
+    // When the current tick of this world started (in nanoseconds)
+    @Unique
+    private long bb$tick_start_ns = 0;
+
     @Inject(method = "<init>", at = @At("RETURN"))
     public void afterInit(MinecraftServer server, Executor workerExecutor, LevelStorage.Session session, ServerWorldProperties properties, RegistryKey worldKey, DimensionOptions dimensionOptions, WorldGenerationProgressListener worldGenerationProgressListener, boolean debugWorld, long seed, List spawners, boolean shouldTickTime, RandomSequencesState randomSequencesState, CallbackInfo ci) {
         AugmentManager.createWorldAugments(self_server_world);
@@ -30,6 +36,12 @@ public class ServerWorldMixin {
 
     @Inject(method = "tick", at = @At("HEAD"))
     public void onTick(BooleanSupplier shouldKeepTicking, CallbackInfo ci) {
+        this.bb$tick_start_ns = System.nanoTime();
         AugmentManager.tickWorldAugments(self_server_world);
     }
+
+    @Inject(method = "tick", at = @At("RETURN"))
+    public void afterTick(BooleanSupplier shouldKeepTicking, CallbackInfo ci) {
+        BibPerf.registerWorldTick(self_server_world, System.nanoTime() - this.bb$tick_start_ns);
+    }
 }
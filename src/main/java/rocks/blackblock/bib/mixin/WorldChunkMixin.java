@@ -1,13 +1,17 @@
 package rocks.blackblock.bib.mixin;
 
+import net.minecraft.block.BlockState;
 import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.chunk.ProtoChunk;
 import net.minecraft.world.chunk.WorldChunk;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import rocks.blackblock.bib.augment.AugmentManager;
+import rocks.blackblock.bib.collection.ChunkHasBlockCache;
 
 @Mixin(WorldChunk.class)
 public class WorldChunkMixin {
@@ -16,4 +20,23 @@ public class WorldChunkMixin {
     public void onInit(ServerWorld world, ProtoChunk protoChunk, WorldChunk.EntityLoader entityLoader, CallbackInfo ci) {
         AugmentManager.handleUpgradedProtoChunk(protoChunk, (WorldChunk) (Object) this);
     }
-}
\ No newline at end of file
+
+    @Inject(method = "setBlockState", at = @At("RETURN"))
+    public void onSetBlockState(BlockPos pos, BlockState state, boolean moved, CallbackInfoReturnable<BlockState> cir) {
+
+        // A null return value means nothing changed
+        if (cir.getReturnValue() == null) {
+            return;
+        }
+
+        WorldChunk chunk = (WorldChunk) (Object) this;
+
+        // Client worlds share their registry keys with the server's worlds,
+        // so their changes must never reach the (server-side) caches
+        if (!(chunk.getWorld() instanceof ServerWorld world)) {
+            return;
+        }
+
+        ChunkHasBlockCache.notifyBlockStateChanged(world, chunk, pos, state);
+    }
+}
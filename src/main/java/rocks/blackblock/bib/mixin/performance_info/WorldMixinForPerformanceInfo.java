@@ -2,15 +2,37 @@ package rocks.blackblock.bib.mixin.performance_info;
 
 import net.minecraft.world.World;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import rocks.blackblock.bib.interfaces.HasPerformanceInfo;
+import rocks.blackblock.bib.util.BibPerf;
 
 /**
- * Placeholder mixin which BibPerf should actually implement
+ * Give each world its own performance info,
+ * which is fed by BibPerf after each world tick
  *
  * @author   Jelle De Loecker <jelle@elevenways.be>
  * @since    0.1.0
  */
 @Mixin(value = World.class, priority = 1005)
 public class WorldMixinForPerformanceInfo implements HasPerformanceInfo {
-    // Keep defaults
+
+    // The performance info of this specific world
+    @Unique
+    private BibPerf.Info bb$performance_info = null;
+
+    /**
+     * Get (or create) the performance info of this world
+     *
+     * @since    0.2.0
+     */
+    @Unique
+    @Override
+    public BibPerf.Info bb$getPerformanceInfo() {
+
+        if (this.bb$performance_info == null) {
+            this.bb$performance_info = new BibPerf.Info((World) (Object) this);
+        }
+
+        return this.bb$performance_info;
+    }
 }
@@ -0,0 +1,617 @@
+package rocks.blackblock.bib.monitor;
+
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import rocks.blackblock.bib.command.CommandLeaf;
+import rocks.blackblock.bib.interop.InteropSentry;
+import rocks.blackblock.bib.util.BibLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Groups identical errors, so a single broken thing that throws
+ * every tick doesn't flood the log (and Sentry).
+ * <p>
+ * Throwables are fingerprinted by their class, their message and their top stack frames.
+ * The first occurrence is logged with its full stack trace & sent to Sentry,
+ * later occurrences are only counted and periodically summarized.
+ * Sentry submission happens on a background thread through a bounded queue.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public final class ErrorAggregator {
+
+    // How many stack frames are part of the fingerprint
+    private static final int FINGERPRINT_FRAMES = 5;
+
+    // Messages are cut off after this many characters in the fingerprint
+    private static final int FINGERPRINT_MESSAGE_LENGTH = 200;
+
+    // How often a summary of suppressed occurrences is logged
+    private static final long SUMMARY_INTERVAL_MS = 60_000;
+
+    // Errors that haven't been seen for this long are reported in full again
+    private static final long FORGET_AFTER_MS = 5 * 60_000;
+
+    // When this many different errors are tracked, the stale ones are forgotten right away
+    private static final int MAX_FINGERPRINTS = 1024;
+
+    // If there are no stale ones, at least this many of the least recently seen errors are forgotten
+    private static final int EVICTION_BATCH = MAX_FINGERPRINTS / 8;
+
+    // How many throwables can wait to be sent to Sentry
+    private static final int SENTRY_QUEUE_CAPACITY = 256;
+
+    // How many errors to show in the command output
+    private static final int COMMAND_LIMIT = 10;
+
+    // All the tracked errors
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    // The throwables waiting to be sent to Sentry
+    private static final BlockingQueue<Throwable> SENTRY_QUEUE = new ArrayBlockingQueue<>(SENTRY_QUEUE_CAPACITY);
+
+    // Counters
+    private static final AtomicLong REGISTERED = new AtomicLong();
+    private static final AtomicLong REPORTED = new AtomicLong();
+    private static final AtomicLong SUPPRESSED = new AtomicLong();
+    private static final AtomicLong SENTRY_SUBMITTED = new AtomicLong();
+    private static final AtomicLong SENTRY_DROPPED = new AtomicLong();
+
+    // The thread sending to Sentry & logging summaries (started on first use)
+    private static volatile Thread WORKER = null;
+
+    /**
+     * Don't let anyone instantiate this class
+     *
+     * @since    0.2.0
+     */
+    private ErrorAggregator() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Register a throwable:
+     * log it in full if it's new, or just count it if it isn't
+     *
+     * @since    0.2.0
+     */
+    public static void register(@NotNull Throwable t, @Nullable String message, boolean silent) {
+
+        REGISTERED.incrementAndGet();
+        ensureWorker();
+
+        long now = System.currentTimeMillis();
+        String fingerprint = createFingerprint(t);
+
+        // Silent registrations should not hide the log output of normal ones
+        if (silent) {
+            fingerprint = "silent|" + fingerprint;
+        }
+
+        Entry entry = ENTRIES.get(fingerprint);
+
+        if (entry == null) {
+            if (ENTRIES.size() >= MAX_FINGERPRINTS) {
+                makeRoom(now);
+            }
+
+            entry = ENTRIES.computeIfAbsent(fingerprint, key -> new Entry(key, t, message, silent));
+        }
+
+        if (!entry.record(now)) {
+            SUPPRESSED.incrementAndGet();
+
+            // Don't wait for the worker if it's been a while
+            String summary = silent ? null : entry.takeSummary(now);
+
+            if (summary != null) {
+                BibLog.log(summary);
+            }
+
+            return;
+        }
+
+        REPORTED.incrementAndGet();
+
+        if (!silent) {
+            if (message != null) {
+                BibLog.log(message, t);
+            } else {
+                BibLog.log("Registering throwable", t);
+            }
+
+            t.printStackTrace();
+        }
+
+        if (GlitchGuru.isSentryInitialized()) {
+            if (SENTRY_QUEUE.offer(t)) {
+                SENTRY_SUBMITTED.incrementAndGet();
+            } else {
+                SENTRY_DROPPED.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Create the fingerprint of the given throwable
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public static String createFingerprint(@NotNull Throwable t) {
+
+        StringBuilder builder = new StringBuilder(256);
+        builder.append(t.getClass().getName());
+
+        String message = t.getMessage();
+
+        if (message != null) {
+            builder.append(':');
+
+            if (message.length() > FINGERPRINT_MESSAGE_LENGTH) {
+                builder.append(message, 0, FINGERPRINT_MESSAGE_LENGTH);
+            } else {
+                builder.append(message);
+            }
+        }
+
+        StackTraceElement[] frames = t.getStackTrace();
+        int frame_count = Math.min(frames.length, FINGERPRINT_FRAMES);
+
+        for (int i = 0; i < frame_count; i++) {
+            StackTraceElement frame = frames[i];
+            builder.append('|').append(frame.getClassName()).append('.').append(frame.getMethodName()).append(':').append(frame.getLineNumber());
+        }
+
+        Throwable cause = t.getCause();
+
+        if (cause != null && cause != t) {
+            builder.append("|caused by ").append(cause.getClass().getName());
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Log the summaries that are due
+     *
+     * @since    0.2.0
+     */
+    public static void flushSummaries() {
+
+        long now = System.currentTimeMillis();
+
+        for (Entry entry : ENTRIES.values()) {
+            if (entry.silent) {
+                continue;
+            }
+
+            String summary = entry.takeSummary(now);
+
+            if (summary != null) {
+                BibLog.log(summary);
+            }
+        }
+
+        forgetStaleEntries(now);
+    }
+
+    /**
+     * Remove the errors that haven't been seen in a while
+     *
+     * @since    0.2.0
+     */
+    private static void forgetStaleEntries(long now) {
+        ENTRIES.values().removeIf(entry -> entry.isStale(now));
+    }
+
+    /**
+     * Make room for a new error:
+     * forget the stale ones, and if that isn't enough,
+     * the ones that were seen the longest time ago
+     *
+     * @since    0.2.0
+     */
+    private static synchronized void makeRoom(long now) {
+
+        // Another thread might have made room already
+        if (ENTRIES.size() < MAX_FINGERPRINTS) {
+            return;
+        }
+
+        forgetStaleEntries(now);
+
+        int excess = ENTRIES.size() - (MAX_FINGERPRINTS - EVICTION_BATCH);
+
+        if (excess <= 0) {
+            return;
+        }
+
+        // Capture the times first, they can change while we look at them
+        Entry[] entries = ENTRIES.values().toArray(new Entry[0]);
+        long[] last_seen = new long[entries.length];
+
+        for (int i = 0; i < entries.length; i++) {
+            last_seen[i] = entries[i].getLastSeen();
+        }
+
+        long[] sorted = last_seen.clone();
+        Arrays.sort(sorted);
+
+        long threshold = sorted[Math.min(excess, sorted.length) - 1];
+
+        for (int i = 0; i < entries.length; i++) {
+            if (last_seen[i] <= threshold) {
+                ENTRIES.remove(entries[i].fingerprint, entries[i]);
+            }
+        }
+    }
+
+    /**
+     * Make sure the worker thread is running
+     *
+     * @since    0.2.0
+     */
+    private static void ensureWorker() {
+
+        if (WORKER != null) {
+            return;
+        }
+
+        synchronized (ErrorAggregator.class) {
+            if (WORKER != null) {
+                return;
+            }
+
+            Thread thread = new Thread(ErrorAggregator::work, "Bib-GlitchGuru");
+            thread.setDaemon(true);
+            thread.start();
+            WORKER = thread;
+        }
+    }
+
+    /**
+     * Send queued throwables to Sentry & log summaries, forever
+     *
+     * @since    0.2.0
+     */
+    private static void work() {
+
+        long next_summary_check = System.currentTimeMillis() + 1000;
+
+        while (true) {
+            Throwable t;
+
+            try {
+                t = SENTRY_QUEUE.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                if (t != null) {
+                    InteropSentry.captureException(t);
+                }
+
+                long now = System.currentTimeMillis();
+
+                if (now >= next_summary_check) {
+                    next_summary_check = now + 1000;
+                    flushSummaries();
+                }
+            } catch (Throwable e) {
+                // Don't register anything from here: it would end up in this queue again
+            }
+        }
+    }
+
+    /**
+     * Get the current counters
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public static Counters getCounters() {
+        return new Counters(
+                REGISTERED.get(),
+                REPORTED.get(),
+                SUPPRESSED.get(),
+                SENTRY_SUBMITTED.get(),
+                SENTRY_DROPPED.get(),
+                ENTRIES.size()
+        );
+    }
+
+    /**
+     * Get the tracked errors, the most frequent ones of the last minute first
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public static List<Snapshot> getSnapshot() {
+
+        long now = System.currentTimeMillis();
+        List<Snapshot> result = new ArrayList<>();
+
+        for (Entry entry : ENTRIES.values()) {
+            result.add(entry.snapshot(now));
+        }
+
+        result.sort(Comparator.comparingInt(Snapshot::last_minute).thenComparingLong(Snapshot::total).reversed());
+
+        return result;
+    }
+
+    /**
+     * Forget all the tracked errors & reset the counters
+     *
+     * @since    0.2.0
+     */
+    public static void reset() {
+        ENTRIES.clear();
+        REGISTERED.set(0);
+        REPORTED.set(0);
+        SUPPRESSED.set(0);
+        SENTRY_SUBMITTED.set(0);
+        SENTRY_DROPPED.set(0);
+    }
+
+    /**
+     * Add the `errors` command to the given leaf
+     *
+     * @since    0.2.0
+     */
+    public static CommandLeaf addToCommandLeaf(CommandLeaf parent_leaf) {
+
+        CommandLeaf errors_leaf = parent_leaf.getChild("errors");
+        errors_leaf.onExecute(ErrorAggregator::showErrors);
+
+        errors_leaf.getChild("reset").onExecute(context -> {
+            reset();
+            context.getSource().sendFeedback(() -> Text.literal("Error statistics have been reset"), false);
+            return 1;
+        });
+
+        return errors_leaf;
+    }
+
+    /**
+     * Show the counters & the most frequent errors
+     *
+     * @since    0.2.0
+     */
+    private static int showErrors(CommandContext<ServerCommandSource> context) {
+
+        ServerCommandSource source = context.getSource();
+        Counters counters = getCounters();
+        List<Snapshot> snapshots = getSnapshot();
+
+        MutableText text = Text.literal("Errors:").formatted(Formatting.YELLOW)
+                .append(Text.literal("\n " + counters.registered() + " registered, " + counters.reported() + " reported, " + counters.suppressed() + " suppressed").formatted(Formatting.GRAY))
+                .append(Text.literal("\n Sentry: " + counters.sentry_submitted() + " submitted, " + counters.sentry_dropped() + " dropped").formatted(Formatting.GRAY));
+
+        for (int i = 0; i < snapshots.size() && i < COMMAND_LIMIT; i++) {
+            text.append(Text.literal("\n")).append(snapshots.get(i).toTextLine());
+        }
+
+        if (snapshots.size() > COMMAND_LIMIT) {
+            text.append(Text.literal("\n... and " + (snapshots.size() - COMMAND_LIMIT) + " more").formatted(Formatting.GRAY));
+        }
+
+        source.sendFeedback(() -> text, false);
+
+        return 1;
+    }
+
+    /**
+     * A single tracked error
+     *
+     * @since    0.2.0
+     */
+    private static final class Entry {
+
+        // The amount of one-second buckets in the sliding window
+        private static final int WINDOW_SECONDS = 60;
+
+        private final String fingerprint;
+        private final String description;
+        private final boolean silent;
+
+        // The occurrences per second of the last minute
+        private final int[] window_counts = new int[WINDOW_SECONDS];
+        private final long[] window_seconds = new long[WINDOW_SECONDS];
+
+        private long total = 0;
+        private long last_seen_ms = 0;
+        private long last_summary_ms = 0;
+        private long suppressed_since_summary = 0;
+
+        /**
+         * Create a new entry
+         *
+         * @since    0.2.0
+         */
+        Entry(String fingerprint, Throwable t, @Nullable String message, boolean silent) {
+            this.fingerprint = fingerprint;
+            this.silent = silent;
+
+            String description = t.getClass().getName();
+
+            if (t.getMessage() != null) {
+                description += ": " + t.getMessage();
+            }
+
+            if (message != null) {
+                description = message + " (" + description + ")";
+            }
+
+            this.description = description;
+        }
+
+        /**
+         * Record an occurrence.
+         * Returns true if it should be reported in full.
+         *
+         * @since    0.2.0
+         */
+        synchronized boolean record(long now) {
+
+            boolean forgotten = this.total > 0 && now - this.last_seen_ms >= FORGET_AFTER_MS;
+
+            this.total++;
+            this.last_seen_ms = now;
+            this.addToWindow(now);
+
+            if (this.total == 1 || forgotten) {
+                this.last_summary_ms = now;
+                this.suppressed_since_summary = 0;
+                return true;
+            }
+
+            this.suppressed_since_summary++;
+
+            return false;
+        }
+
+        /**
+         * Count an occurrence in the sliding window
+         *
+         * @since    0.2.0
+         */
+        private void addToWindow(long now) {
+
+            long second = now / 1000;
+            int index = (int) (second % WINDOW_SECONDS);
+
+            if (this.window_seconds[index] != second) {
+                this.window_seconds[index] = second;
+                this.window_counts[index] = 0;
+            }
+
+            this.window_counts[index]++;
+        }
+
+        /**
+         * Count the occurrences of the last minute
+         *
+         * @since    0.2.0
+         */
+        private int countLastMinute(long now) {
+
+            long second = now / 1000;
+            int result = 0;
+
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                if (second - this.window_seconds[i] < WINDOW_SECONDS) {
+                    result += this.window_counts[i];
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Get the summary line if one is due
+         *
+         * @since    0.2.0
+         */
+        @Nullable
+        synchronized String takeSummary(long now) {
+
+            if (this.suppressed_since_summary == 0 || now - this.last_summary_ms < SUMMARY_INTERVAL_MS) {
+                return null;
+            }
+
+            String result = this.description + " occurred ×" + this.countLastMinute(now) + " in the last minute ("
+                    + this.suppressed_since_summary + " suppressed since the last report, " + this.total + " in total)";
+
+            this.last_summary_ms = now;
+            this.suppressed_since_summary = 0;
+
+            return result;
+        }
+
+        /**
+         * When was this error last seen?
+         *
+         * @since    0.2.0
+         */
+        synchronized long getLastSeen() {
+            return this.last_seen_ms;
+        }
+
+        /**
+         * Can this entry be forgotten?
+         *
+         * @since    0.2.0
+         */
+        synchronized boolean isStale(long now) {
+            return (this.silent || this.suppressed_since_summary == 0) && now - this.last_seen_ms >= FORGET_AFTER_MS;
+        }
+
+        /**
+         * Create a snapshot
+         *
+         * @since    0.2.0
+         */
+        synchronized Snapshot snapshot(long now) {
+            return new Snapshot(this.fingerprint, this.description, this.total, this.countLastMinute(now), this.last_seen_ms);
+        }
+    }
+
+    /**
+     * The counters of the aggregator
+     *
+     * @param    registered         How many throwables were registered
+     * @param    reported           How many were logged in full
+     * @param    suppressed         How many were only counted
+     * @param    sentry_submitted   How many were queued for Sentry
+     * @param    sentry_dropped     How many were not sent to Sentry because the queue was full
+     * @param    fingerprints       How many different errors are being tracked
+     *
+     * @since    0.2.0
+     */
+    public record Counters(long registered, long reported, long suppressed, long sentry_submitted, long sentry_dropped, int fingerprints) {}
+
+    /**
+     * A snapshot of a single tracked error
+     *
+     * @param    fingerprint    The fingerprint of the error
+     * @param    description    The message of its first occurrence
+     * @param    total          How many times it occurred
+     * @param    last_minute    How many times it occurred in the last minute
+     * @param    last_seen_ms   When it last occurred
+     *
+     * @since    0.2.0
+     */
+    public record Snapshot(String fingerprint, String description, long total, int last_minute, long last_seen_ms) {
+
+        /**
+         * Create a MutableText representation of this snapshot
+         *
+         * @since    0.2.0
+         */
+        public MutableText toTextLine() {
+            return Text.literal(" - ")
+                    .append(Text.literal(this.description).formatted(Formatting.RED))
+                    .append(Text.literal(" ×" + this.last_minute + " last minute, " + this.total + " total").formatted(Formatting.GRAY));
+        }
+    }
+}
@@ -58,6 +58,15 @@ public class GlitchGuru {
         InteropSentry.captureMessageSilently(message, level);
     }
 
+    /**
+     * Has Sentry been initialized?
+     *
+     * @since    0.2.0
+     */
+    public static boolean isSentryInitialized() {
+        return GlitchGuru.sentry_initialized;
+    }
+
     /**
      * Set the DSN
      *
@@ -108,24 +117,15 @@ public class GlitchGuru {
     }
 
     /**
-     * Register a throwable
+     * Register a throwable.
+     * Repeated occurrences of the same error are only counted & summarized,
+     * see {@link ErrorAggregator}.
      *
      * @author   Jelle De Loecker <jelle@elevenways.be>
      * @since    0.1.0
      */
     public static void registerThrowable(Throwable t, String message) {
-
-        if (message != null) {
-            BibLog.log(message, t);
-            t.printStackTrace();
-        } else {
-            BibLog.log("Registering throwable", t);
-            t.printStackTrace();
-        }
-
-        if (GlitchGuru.sentry_initialized) {
-            InteropSentry.captureException(t);
-        }
+        ErrorAggregator.register(t, message, false);
     }
 
     /**
@@ -135,11 +135,16 @@ public class GlitchGuru {
      * @since    0.1.0
      */
     public static void registerThrowableSilently(Throwable t, String message) {
-        if (GlitchGuru.sentry_initialized) {
-            InteropSentry.captureException(t);
-        }
+        ErrorAggregator.register(t, message, true);
     }
 
+    /**
+     * A transaction: a timed span of work.
+     * It is always traced by the {@link SpanTracer},
+     * and also sent to Sentry when that is configured.
+     *
+     * @since    0.1.0
+     */
     public static class Transaction {
 
         private Transaction parent = null;
@@ -147,10 +152,13 @@ public class GlitchGuru {
         private InteropSentry.Transaction sentry_transaction = null;
         // The current time
         private final long start_time = System.currentTimeMillis();
+        // The in-process span
+        private SpanTracer.Span span;
 
         public Transaction(Transaction parent, @NotNull String name) {
             this.parent = parent;
             this.name = name;
+            this.span = SpanTracer.start(name);
 
             if (GlitchGuru.sentry_initialized) {
                 this.sentry_transaction = new InteropSentry.Transaction(parent, name);
@@ -178,6 +186,16 @@ public class GlitchGuru {
             return null;
         }
 
+        /**
+         * Start a child transaction.
+         * It has to be finished before this one.
+         *
+         * @since    0.2.0
+         */
+        public Transaction startChild(@NotNull String name) {
+            return new Transaction(this, name);
+        }
+
         /**
          * Set some context
          *
@@ -185,6 +203,8 @@ public class GlitchGuru {
          * @since    0.1.0
          */
         public void setData(String key, Object value) {
+            this.span.setData(key, value);
+
             if (this.sentry_transaction != null) {
                 this.sentry_transaction.setData(key, value);
             }
@@ -197,6 +217,8 @@ public class GlitchGuru {
          * @since    0.1.0
          */
         public void addThrowable(Throwable t) {
+            this.span.setThrowable(t);
+
             if (this.sentry_transaction != null) {
                 this.sentry_transaction.addThrowable(t);
             }
@@ -209,6 +231,8 @@ public class GlitchGuru {
          * @since    0.1.0
          */
         public void setThrowable(Throwable t) {
+            this.span.setThrowable(t);
+
             if (this.sentry_transaction != null) {
                 this.sentry_transaction.setThrowable(t);
             }
@@ -250,6 +274,11 @@ public class GlitchGuru {
          * @since    0.1.0
          */
         public void finish() {
+            this.span.finish();
+
+            // The span gets reused once it's finished
+            this.span = SpanTracer.NOOP;
+
             if (this.sentry_transaction != null) {
                 this.sentry_transaction.finish();
             }
@@ -0,0 +1,637 @@
+package rocks.blackblock.bib.monitor;
+
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import rocks.blackblock.bib.command.CommandLeaf;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A small in-process tracer.
+ * <p>
+ * Spans are timed with {@link System#nanoTime()} and nested through a per-thread stack,
+ * so a span started while another one is open becomes its child.
+ * Span objects are pooled per thread, so tracing doesn't allocate once it has warmed up.
+ * When a root span finishes and took longer than the slow threshold,
+ * the whole tree is copied into a ring buffer of recent slow traces.
+ * Spans that are still open after a minute are abandoned,
+ * so a span that is never finished can't adopt every later span of its thread.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public final class SpanTracer {
+
+    // Is tracing enabled?
+    private static volatile boolean ENABLED = true;
+
+    // Root spans that take at least this long are kept
+    private static volatile long SLOW_THRESHOLD_NS = 50_000_000L;
+
+    // How many slow traces are kept
+    private static final int RING_SIZE = 32;
+
+    // Spans nested deeper than this are not tracked
+    private static final int MAX_DEPTH = 64;
+
+    // Spans with more children than this only count the rest
+    private static final int MAX_CHILDREN = 256;
+
+    // How many unused spans each thread keeps
+    private static final int MAX_POOLED_SPANS = 128;
+
+    // Open spans older than this are considered abandoned
+    private static final long MAX_OPEN_NS = 60_000_000_000L;
+
+    // How many traces to show in the command output
+    private static final int COMMAND_LIMIT = 5;
+
+    // The state of each thread
+    private static final ThreadLocal<ThreadState> STATE = ThreadLocal.withInitial(ThreadState::new);
+
+    // The recent slow traces
+    private static final Trace[] RING = new Trace[RING_SIZE];
+
+    // Where the next slow trace goes
+    private static int RING_INDEX = 0;
+
+    // The span returned when nothing is being tracked
+    public static final Span NOOP = new Span(null);
+
+    /**
+     * Don't let anyone instantiate this class
+     *
+     * @since    0.2.0
+     */
+    private SpanTracer() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Is tracing enabled?
+     *
+     * @since    0.2.0
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Enable or disable tracing
+     *
+     * @since    0.2.0
+     */
+    public static void setEnabled(boolean enabled) {
+        ENABLED = enabled;
+    }
+
+    /**
+     * Set the slow threshold (in milliseconds)
+     *
+     * @since    0.2.0
+     */
+    public static void setSlowThreshold(double threshold_ms) {
+        SLOW_THRESHOLD_NS = (long) (Math.max(0, threshold_ms) * 1_000_000);
+    }
+
+    /**
+     * Get the slow threshold (in milliseconds)
+     *
+     * @since    0.2.0
+     */
+    public static double getSlowThreshold() {
+        return SLOW_THRESHOLD_NS / 1_000_000.0;
+    }
+
+    /**
+     * Start a new span.
+     * It becomes a child of the span that is currently open on this thread (if any),
+     * and has to be finished on this thread too.
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public static Span start(@NotNull String name) {
+
+        if (!ENABLED) {
+            return NOOP;
+        }
+
+        return STATE.get().start(name);
+    }
+
+    /**
+     * Get the span that is currently open on this thread
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public static Span getCurrent() {
+        return STATE.get().stack.peek();
+    }
+
+    /**
+     * Add a trace to the ring buffer
+     *
+     * @since    0.2.0
+     */
+    private static synchronized void addTrace(Trace trace) {
+        RING[RING_INDEX] = trace;
+        RING_INDEX = (RING_INDEX + 1) % RING_SIZE;
+    }
+
+    /**
+     * Get the recent slow traces, newest first
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public static synchronized List<Trace> getSlowTraces() {
+
+        List<Trace> result = new ArrayList<>(RING_SIZE);
+
+        for (int i = 1; i <= RING_SIZE; i++) {
+            Trace trace = RING[Math.floorMod(RING_INDEX - i, RING_SIZE)];
+
+            if (trace != null) {
+                result.add(trace);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Forget all the slow traces
+     *
+     * @since    0.2.0
+     */
+    public static synchronized void clear() {
+        for (int i = 0; i < RING_SIZE; i++) {
+            RING[i] = null;
+        }
+
+        RING_INDEX = 0;
+    }
+
+    /**
+     * Dump the recent slow traces as text
+     *
+     * @since    0.2.0
+     */
+    @NotNull
+    public static String dump() {
+
+        StringBuilder builder = new StringBuilder();
+
+        for (Trace trace : getSlowTraces()) {
+            trace.appendTo(builder);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Add the `traces` command to the given leaf
+     *
+     * @since    0.2.0
+     */
+    public static CommandLeaf addToCommandLeaf(CommandLeaf parent_leaf) {
+
+        CommandLeaf traces_leaf = parent_leaf.getChild("traces");
+        traces_leaf.onExecute(SpanTracer::showTraces);
+
+        traces_leaf.getChild("clear").onExecute(context -> {
+            clear();
+            context.getSource().sendFeedback(() -> Text.literal("Slow traces have been cleared"), false);
+            return 1;
+        });
+
+        traces_leaf.getChild("enable").onExecute(context -> {
+            setEnabled(true);
+            context.getSource().sendFeedback(() -> Text.literal("Span tracing enabled"), false);
+            return 1;
+        });
+
+        traces_leaf.getChild("disable").onExecute(context -> {
+            setEnabled(false);
+            context.getSource().sendFeedback(() -> Text.literal("Span tracing disabled"), false);
+            return 1;
+        });
+
+        return traces_leaf;
+    }
+
+    /**
+     * Show the most recent slow traces
+     *
+     * @since    0.2.0
+     */
+    private static int showTraces(CommandContext<ServerCommandSource> context) {
+
+        ServerCommandSource source = context.getSource();
+        List<Trace> traces = getSlowTraces();
+
+        if (traces.isEmpty()) {
+            source.sendFeedback(() -> Text.literal("No traces slower than " + formatMs(SLOW_THRESHOLD_NS) + " recorded yet").formatted(Formatting.GRAY), false);
+            return 1;
+        }
+
+        MutableText text = Text.literal("Slow traces:").formatted(Formatting.YELLOW);
+
+        for (int i = 0; i < traces.size() && i < COMMAND_LIMIT; i++) {
+            for (Line line : traces.get(i).lines()) {
+                text.append(Text.literal("\n")).append(line.toTextLine());
+            }
+        }
+
+        if (traces.size() > COMMAND_LIMIT) {
+            text.append(Text.literal("\n... and " + (traces.size() - COMMAND_LIMIT) + " more").formatted(Formatting.GRAY));
+        }
+
+        source.sendFeedback(() -> text, false);
+
+        return 1;
+    }
+
+    /**
+     * Format the given nanoseconds as milliseconds
+     *
+     * @since    0.2.0
+     */
+    private static String formatMs(long ns) {
+        return String.format("%.3fms", ns / 1_000_000.0);
+    }
+
+    /**
+     * The tracing state of a single thread
+     *
+     * @since    0.2.0
+     */
+    private static final class ThreadState {
+
+        private final Thread thread = Thread.currentThread();
+        private final ArrayDeque<Span> stack = new ArrayDeque<>();
+        private final ArrayDeque<Span> pool = new ArrayDeque<>();
+
+        /**
+         * Start a new span
+         *
+         * @since    0.2.0
+         */
+        Span start(String name) {
+
+            long now = System.nanoTime();
+
+            // The oldest span is at the bottom of the stack
+            Span oldest = this.stack.peekLast();
+
+            if (oldest != null && now - oldest.start_ns > MAX_OPEN_NS) {
+                this.abandon(now);
+            }
+
+            // Spans finished on another thread could not be popped back then
+            while (!this.stack.isEmpty() && this.stack.peek().end_ns != 0) {
+                Span finished = this.stack.pop();
+
+                if (finished.parent == null) {
+                    this.release(finished);
+                }
+            }
+
+            if (this.stack.size() >= MAX_DEPTH) {
+                return NOOP;
+            }
+
+            Span parent = this.stack.peek();
+
+            if (parent != null && parent.children.size() >= MAX_CHILDREN) {
+                parent.dropped_children++;
+                return NOOP;
+            }
+
+            Span span = this.pool.poll();
+
+            if (span == null) {
+                span = new Span(this);
+            }
+
+            span.name = name;
+            span.parent = parent;
+            span.start_ns = now;
+
+            if (parent != null) {
+                parent.children.add(span);
+            }
+
+            this.stack.push(span);
+
+            return span;
+        }
+
+        /**
+         * Finish the given span
+         *
+         * @since    0.2.0
+         */
+        void finish(Span span) {
+
+            span.end_ns = System.nanoTime();
+
+            if (Thread.currentThread() != this.thread || !this.stack.contains(span)) {
+                return;
+            }
+
+            // Also close children that were never finished
+            Span popped;
+
+            do {
+                popped = this.stack.pop();
+
+                if (popped.end_ns == 0) {
+                    popped.end_ns = span.end_ns;
+                }
+            } while (popped != span);
+
+            if (span.parent != null) {
+                return;
+            }
+
+            if (span.end_ns - span.start_ns >= SLOW_THRESHOLD_NS) {
+                addTrace(Trace.from(span));
+            }
+
+            this.release(span);
+        }
+
+        /**
+         * Drop all the open spans of this thread.
+         * They are marked as finished so finishing them later does nothing,
+         * but they are not pooled because their owners might still reference them.
+         *
+         * @since    0.2.0
+         */
+        private void abandon(long now) {
+            while (!this.stack.isEmpty()) {
+                Span span = this.stack.pop();
+
+                if (span.end_ns == 0) {
+                    span.end_ns = now;
+                }
+            }
+        }
+
+        /**
+         * Return the given span & its children to the pool
+         *
+         * @since    0.2.0
+         */
+        private void release(Span span) {
+
+            for (Span child : span.children) {
+                this.release(child);
+            }
+
+            span.reset();
+
+            if (this.pool.size() < MAX_POOLED_SPANS) {
+                this.pool.push(span);
+            }
+        }
+    }
+
+    /**
+     * A single timed span.
+     * Instances are reused once their root span has finished,
+     * so don't hold on to them after finishing.
+     *
+     * @since    0.2.0
+     */
+    public static final class Span implements AutoCloseable {
+
+        private final ThreadState state;
+        private final List<Span> children = new ArrayList<>();
+        private String name = null;
+        private Span parent = null;
+        private long start_ns = 0;
+        private long end_ns = 0;
+        private int dropped_children = 0;
+        private String error = null;
+        private StringBuilder data = null;
+
+        /**
+         * Create a new span for the given thread
+         *
+         * @since    0.2.0
+         */
+        private Span(ThreadState state) {
+            this.state = state;
+        }
+
+        /**
+         * Add some context
+         *
+         * @since    0.2.0
+         */
+        public void setData(String key, Object value) {
+
+            if (this.state == null) {
+                return;
+            }
+
+            if (this.data == null) {
+                this.data = new StringBuilder();
+            } else if (!this.data.isEmpty()) {
+                this.data.append(", ");
+            }
+
+            this.data.append(key).append('=').append(value);
+        }
+
+        /**
+         * Mark this span as failed
+         *
+         * @since    0.2.0
+         */
+        public void setThrowable(Throwable t) {
+
+            if (this.state == null || t == null) {
+                return;
+            }
+
+            this.error = t.getClass().getSimpleName();
+        }
+
+        /**
+         * Finish this span
+         *
+         * @since    0.2.0
+         */
+        public void finish() {
+
+            if (this.state == null || this.end_ns != 0) {
+                return;
+            }
+
+            this.state.finish(this);
+        }
+
+        /**
+         * Finish this span (for try-with-resources)
+         *
+         * @since    0.2.0
+         */
+        @Override
+        public void close() {
+            this.finish();
+        }
+
+        /**
+         * Prepare this span for reuse
+         *
+         * @since    0.2.0
+         */
+        private void reset() {
+            this.children.clear();
+            this.name = null;
+            this.parent = null;
+            this.start_ns = 0;
+            this.end_ns = 0;
+            this.dropped_children = 0;
+            this.error = null;
+
+            if (this.data != null) {
+                this.data.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * A finished slow trace
+     *
+     * @param    name          The name of the root span
+     * @param    time_ms       When it finished (epoch milliseconds)
+     * @param    duration_ns   How long the root span took
+     * @param    lines         All the spans, depth-first
+     *
+     * @since    0.2.0
+     */
+    public record Trace(String name, long time_ms, long duration_ns, List<Line> lines) {
+
+        /**
+         * Copy the given root span
+         *
+         * @since    0.2.0
+         */
+        static Trace from(Span root) {
+
+            List<Line> lines = new ArrayList<>();
+            addLines(lines, root, root.start_ns, 0);
+
+            return new Trace(root.name, System.currentTimeMillis(), root.end_ns - root.start_ns, List.copyOf(lines));
+        }
+
+        /**
+         * Add the lines of the given span & its children
+         *
+         * @since    0.2.0
+         */
+        private static void addLines(List<Line> lines, Span span, long root_start_ns, int depth) {
+
+            String data = span.data == null || span.data.isEmpty() ? null : span.data.toString();
+
+            lines.add(new Line(depth, span.name, span.start_ns - root_start_ns, span.end_ns - span.start_ns, span.error, data, span.dropped_children));
+
+            for (Span child : span.children) {
+                addLines(lines, child, root_start_ns, depth + 1);
+            }
+        }
+
+        /**
+         * Append this trace as text
+         *
+         * @since    0.2.0
+         */
+        public void appendTo(StringBuilder builder) {
+            for (Line line : this.lines) {
+                builder.append(line).append('\n');
+            }
+        }
+    }
+
+    /**
+     * A single span of a finished trace
+     *
+     * @param    depth              How deeply nested it is
+     * @param    name               The name of the span
+     * @param    offset_ns          When it started, relative to the root span
+     * @param    duration_ns        How long it took
+     * @param    error              The simple name of the throwable, if it failed
+     * @param    data               The context that was added
+     * @param    dropped_children   How many children were not tracked
+     *
+     * @since    0.2.0
+     */
+    public record Line(int depth, String name, long offset_ns, long duration_ns, @Nullable String error, @Nullable String data, int dropped_children) {
+
+        /**
+         * Get the text representation
+         *
+         * @since    0.2.0
+         */
+        @Override
+        public String toString() {
+
+            StringBuilder builder = new StringBuilder();
+            builder.append("  ".repeat(this.depth)).append(this.name).append(' ').append(formatMs(this.duration_ns));
+
+            if (this.depth > 0) {
+                builder.append(" @+").append(formatMs(this.offset_ns));
+            }
+
+            if (this.error != null) {
+                builder.append(" failed: ").append(this.error);
+            }
+
+            if (this.data != null) {
+                builder.append(" [").append(this.data).append(']');
+            }
+
+            if (this.dropped_children > 0) {
+                builder.append(" (+").append(this.dropped_children).append(" untracked)");
+            }
+
+            return builder.toString();
+        }
+
+        /**
+         * Create a MutableText representation of this line
+         *
+         * @since    0.2.0
+         */
+        public MutableText toTextLine() {
+
+            MutableText text = Text.literal("  ".repeat(this.depth + 1))
+                    .append(Text.literal(this.name).formatted(this.depth == 0 ? Formatting.AQUA : Formatting.WHITE))
+                    .append(Text.literal(" " + formatMs(this.duration_ns)));
+
+            if (this.error != null) {
+                text.append(Text.literal(" failed: " + this.error).formatted(Formatting.RED));
+            }
+
+            if (this.data != null) {
+                text.append(Text.literal(" [" + this.data + "]").formatted(Formatting.GRAY));
+            }
+
+            return text;
+        }
+    }
+}
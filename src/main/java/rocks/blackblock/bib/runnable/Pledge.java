@@ -4,11 +4,11 @@ import net.minecraft.util.Pair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import rocks.blackblock.bib.monitor.GlitchGuru;
+import rocks.blackblock.bib.util.BibFlow;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -16,13 +16,18 @@ import java.util.function.Function;
 
 /**
  * Future-like class
+ * <p>
+ * Pledges can be completed from any thread. Threads calling {@link #get()}
+ * block on the pledge's monitor until it completes (or times out),
+ * and the "Async" stages are dispatched to the given executor
+ * (or the shared bib worker pool).
  *
  * @since    0.2.0
  */
 @SuppressWarnings({"unused", "unchecked"})
 public class Pledge<T> implements Future<T>, CompletionStage<T> {
 
-    private State state = State.PENDING;
+    private volatile State state = State.PENDING;
     private T result = null;
     private Throwable error = null;
     private List<DoneCallback<T>> done_callbacks = null;
@@ -65,14 +70,25 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
      */
     public static <T> Pledge<T> from(CompletionStage<T> stage) {
         Pledge<T> pledge = new Pledge<>();
-        stage.thenAccept(pledge::resolveWithResult);
-        stage.exceptionally(throwable -> {
-            pledge.reject(throwable);
-            return null;
+        stage.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                pledge.reject(throwable);
+            } else {
+                pledge.resolveWithResult(result);
+            }
         });
         return pledge;
     }
 
+    /**
+     * Get the default executor for the async stages
+     *
+     * @since    0.2.0
+     */
+    public static Executor getDefaultExecutor() {
+        return BibFlow.getWorkerExecutor();
+    }
+
     /**
      * Resolve with null
      *
@@ -97,13 +113,7 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
      * @since    0.2.0
      */
     public void resolveWithResult(T result) {
-        if (this.state != State.PENDING) {
-            return;
-        }
-
-        this.state = State.SUCCESS;
-        this.result = result;
-        this.performAll();
+        this.complete(State.SUCCESS, result, null);
     }
 
     /**
@@ -126,26 +136,13 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
             return;
         }
 
-        if (result.state == State.SUCCESS) {
-            this.state = State.SUCCESS;
-            this.result = result.result;
-        } else if (result.state == State.FAILURE) {
-            this.state = State.FAILURE;
-            this.error = result.error;
-        } else {
-
-            result.done((error1, result1) -> {
-                if (error1 != null) {
-                    this.reject(error1);
-                } else {
-                    this.resolveUnsafe(result1);
-                }
-            });
-
-            return;
-        }
-
-        this.performAll();
+        result.done((error1, result1) -> {
+            if (error1 != null) {
+                this.complete(State.FAILURE, null, error1);
+            } else {
+                this.resolveUnsafe(result1);
+            }
+        });
     }
 
     /**
@@ -174,8 +171,41 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
 
         GlitchGuru.registerThrowable(error, "Rejected Pledge");
 
-        this.state = State.FAILURE;
-        this.error = error;
+        this.complete(State.FAILURE, null, error);
+    }
+
+    /**
+     * Pass an error on from an earlier pledge in the chain.
+     * (It has already been registered there)
+     *
+     * @since    0.2.0
+     */
+    private void propagate(Throwable error) {
+        this.complete(State.FAILURE, null, error);
+    }
+
+    /**
+     * Complete this pledge (only once),
+     * wake up all the waiting threads and call all the callbacks
+     *
+     * @since    0.2.0
+     */
+    private void complete(State state, T result, Throwable error) {
+
+        synchronized (this) {
+            if (this.state != State.PENDING) {
+                return;
+            }
+
+            this.result = result;
+            this.error = error;
+
+            // The state is volatile & set last, so it publishes the result
+            this.state = state;
+
+            this.notifyAll();
+        }
+
         this.performAll();
     }
 
@@ -186,16 +216,20 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
      */
     public void then(Consumer<T> consumer) {
 
-        if (this.state == State.SUCCESS) {
-            this.performConsumer(consumer);
-            return;
-        }
+        synchronized (this) {
+            if (this.state == State.PENDING) {
+                if (this.consumers == null) {
+                    this.consumers = new ArrayList<>();
+                }
 
-        if (this.consumers == null) {
-            this.consumers = new ArrayList<>();
+                this.consumers.add(consumer);
+                return;
+            }
         }
 
-        this.consumers.add(consumer);
+        if (this.state == State.SUCCESS) {
+            this.performConsumer(consumer);
+        }
     }
 
     /**
@@ -205,19 +239,21 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
      */
     public <U> Pledge<U> thenCompose(Composer<T, U> composer) {
 
-        if (this.state == State.SUCCESS) {
-            return composer.compose(null, this.result);
-        }
-
         Pledge<U> intermediate_pledge = new Pledge<>();
+        Pair<Pledge<?>, Composer<T, ?>> pair = new Pair<>(intermediate_pledge, composer);
 
-        if (this.composers == null) {
-            this.composers = new ArrayList<>();
-        }
+        synchronized (this) {
+            if (this.state == State.PENDING) {
+                if (this.composers == null) {
+                    this.composers = new ArrayList<>();
+                }
 
-        Pair<Pledge<?>, Composer<T, ?>> pair = new Pair<>(intermediate_pledge, composer);
+                this.composers.add(pair);
+                return intermediate_pledge;
+            }
+        }
 
-        this.composers.add(pair);
+        this.performComposer(pair);
 
         return intermediate_pledge;
     }
@@ -230,16 +266,18 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
      */
     public void done(DoneCallback<T> callback) {
 
-        if (this.state == State.SUCCESS) {
-            this.performDoneCallback(callback);
-            return;
-        }
+        synchronized (this) {
+            if (this.state == State.PENDING) {
+                if (this.done_callbacks == null) {
+                    this.done_callbacks = new ArrayList<>();
+                }
 
-        if (this.done_callbacks == null) {
-            this.done_callbacks = new ArrayList<>();
+                this.done_callbacks.add(callback);
+                return;
+            }
         }
 
-        this.done_callbacks.add(callback);
+        this.performDoneCallback(callback);
     }
 
     /**
@@ -268,7 +306,7 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
 
             result.done((error1, result1) -> {
                 if (error1 != null) {
-                    pledge.reject(error1);
+                    pledge.propagate(error1);
                 } else {
                     pledge.resolveUnsafe(result1);
                 }
@@ -276,6 +314,7 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
 
         } catch (Throwable t) {
             GlitchGuru.registerThrowable(t, "Failed to perform composer");
+            pledge.propagate(t);
         }
     }
 
@@ -286,20 +325,20 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
      */
     protected void performComposers() {
 
-        if (this.composers == null) {
-            return;
+        List<Pair<Pledge<?>, Composer<T, ?>>> composers;
+
+        synchronized (this) {
+            composers = this.composers;
+            this.composers = null;
         }
 
-        List<Pair<Pledge<?>, Composer<T, ?>>> composers = this.composers;
-        this.composers = null;
+        if (composers == null) {
+            return;
+        }
 
         for (Pair<Pledge<?>, Composer<T, ?>> pair : composers) {
             this.performComposer(pair);
         }
-
-        if (this.composers != null) {
-            this.performComposers();
-        }
     }
 
     /**
@@ -309,20 +348,20 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
      */
     protected void performConsumers() {
 
-        if (this.consumers == null) {
-            return;
+        List<Consumer<T>> consumers;
+
+        synchronized (this) {
+            consumers = this.consumers;
+            this.consumers = null;
         }
 
-        List<Consumer<T>> consumers = this.consumers;
-        this.consumers = null;
+        if (consumers == null || this.state != State.SUCCESS) {
+            return;
+        }
 
         for (Consumer<T> consumer : consumers) {
             this.performConsumer(consumer);
         }
-
-        if (this.consumers != null) {
-            this.performConsumers();
-        }
     }
 
     /**
@@ -332,20 +371,20 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
      */
     protected void performDoneCallbacks() {
 
-        if (this.done_callbacks == null) {
-            return;
+        List<DoneCallback<T>> callbacks;
+
+        synchronized (this) {
+            callbacks = this.done_callbacks;
+            this.done_callbacks = null;
         }
 
-        List<DoneCallback<T>> callbacks = this.done_callbacks;
-        this.done_callbacks = null;
+        if (callbacks == null) {
+            return;
+        }
 
         for (DoneCallback<T> callback : callbacks) {
             this.performDoneCallback(callback);
         }
-
-        if (this.done_callbacks != null) {
-            this.performDoneCallbacks();
-        }
     }
 
     /**
@@ -374,9 +413,108 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
         }
     }
 
+    /**
+     * Create a dependent pledge: when this one succeeds, the given step is performed
+     * (on the given executor, or right away when it is null).
+     * Failures of this pledge or the step reject the dependent pledge.
+     *
+     * @since    0.2.0
+     */
+    private <U> Pledge<U> chain(@Nullable Executor executor, BiConsumer<T, Pledge<U>> step) {
+
+        Pledge<U> pledge = new Pledge<>();
+
+        this.done((error, result) -> {
+
+            if (error != null) {
+                pledge.propagate(error);
+                return;
+            }
+
+            dispatch(executor, pledge, () -> step.accept(result, pledge));
+        });
+
+        return pledge;
+    }
+
+    /**
+     * Run the given task on the given executor (or right away),
+     * rejecting the given pledge if it throws
+     *
+     * @since    0.2.0
+     */
+    private static void dispatch(@Nullable Executor executor, Pledge<?> pledge, Runnable task) {
+
+        Runnable guarded = () -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                pledge.reject(t);
+            }
+        };
+
+        if (executor == null) {
+            guarded.run();
+            return;
+        }
+
+        try {
+            executor.execute(guarded);
+        } catch (Throwable t) {
+            pledge.reject(t);
+        }
+    }
+
+    /**
+     * Wait for this pledge and the given stage,
+     * then perform the given step
+     *
+     * @since    0.2.0
+     */
+    private <U, V> Pledge<V> combine(CompletionStage<? extends U> other, @Nullable Executor executor, TriConsumer<T, U, Pledge<V>> step) {
+
+        Pledge<V> pledge = new Pledge<>();
+
+        this.done((error, result) -> {
+
+            if (error != null) {
+                pledge.propagate(error);
+                return;
+            }
+
+            other.whenComplete((other_result, other_error) -> {
+                if (other_error != null) {
+                    pledge.propagate(other_error);
+                    return;
+                }
+
+                dispatch(executor, pledge, () -> step.accept(result, other_result, pledge));
+            });
+        });
+
+        return pledge;
+    }
+
+    /**
+     * Wait for the first of this pledge or the given stage to complete,
+     * then perform the given step
+     *
+     * @since    0.2.0
+     */
+    private <V> Pledge<V> either(CompletionStage<? extends T> other, @Nullable Executor executor, BiConsumer<T, Pledge<V>> step) {
+        return this.race(this, other).chain(executor, step);
+    }
+
     @Override
     public boolean cancel(boolean b) {
-        return false;
+
+        if (this.state != State.PENDING) {
+            return false;
+        }
+
+        this.complete(State.CANCELLED, null, new CancellationException());
+
+        return this.state == State.CANCELLED;
     }
 
     @Override
@@ -386,340 +524,358 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
 
     @Override
     public boolean isDone() {
-
-        if (this.state == State.SUCCESS) {
-            return true;
-        }
-
-        if (this.state == State.FAILURE) {
-            return true;
-        }
-
-        return false;
+        return this.state != State.PENDING;
     }
 
     @Override
     public T get() throws InterruptedException, ExecutionException {
 
-        while (!this.isDone()) {
-            LockSupport.parkNanos("waiting for result", 100000L);
+        if (this.state == State.PENDING) {
+            synchronized (this) {
+                while (this.state == State.PENDING) {
+                    this.wait();
+                }
+            }
         }
 
-        return this.result;
+        return this.getCompletedResult();
     }
 
     @Override
     public T get(long l, @NotNull TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
-        return this.get();
+
+        if (this.state == State.PENDING) {
+            long deadline = System.nanoTime() + timeUnit.toNanos(l);
+
+            synchronized (this) {
+                while (this.state == State.PENDING) {
+                    long remaining = deadline - System.nanoTime();
+
+                    if (remaining <= 0) {
+                        throw new TimeoutException("Pledge was not completed in time");
+                    }
+
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+        }
+
+        return this.getCompletedResult();
     }
 
-    @Override
-    public <U> Pledge<U> thenApply(Function<? super T, ? extends U> function) {
+    /**
+     * Get the result of the completed pledge,
+     * or throw its error the way Future expects
+     *
+     * @since    0.2.0
+     */
+    private T getCompletedResult() throws ExecutionException {
 
-        Pledge<U> pledge = new Pledge<>();
+        if (this.state == State.CANCELLED) {
+            throw new CancellationException();
+        }
 
-        this.then(t -> {
-            var result = function.apply(t);
-            pledge.resolve(result);
-        });
+        if (this.state == State.FAILURE) {
+            throw new ExecutionException(this.error);
+        }
 
-        return pledge;
+        return this.result;
+    }
+
+    @Override
+    public <U> Pledge<U> thenApply(Function<? super T, ? extends U> function) {
+        return this.thenApplyWith(null, function);
     }
 
     @Override
     public <U> Pledge<U> thenApplyAsync(Function<? super T, ? extends U> function) {
-        return this.thenApply(function);
+        return this.thenApplyWith(getDefaultExecutor(), function);
     }
 
     @Override
     public <U> Pledge<U> thenApplyAsync(Function<? super T, ? extends U> function, Executor executor) {
-        return this.thenApply(function);
+        return this.thenApplyWith(executor, function);
+    }
+
+    private <U> Pledge<U> thenApplyWith(@Nullable Executor executor, Function<? super T, ? extends U> function) {
+        return this.chain(executor, (t, pledge) -> pledge.resolveWithResult(function.apply(t)));
     }
 
     @Override
     public Pledge<Void> thenAccept(Consumer<? super T> consumer) {
-
-        Pledge<Void> pledge = new Pledge<>();
-
-        this.then(t -> {
-            consumer.accept(t);
-            pledge.resolve((Void) null);
-        });
-
-        return pledge;
+        return this.thenAcceptWith(null, consumer);
     }
 
     @Override
     public Pledge<Void> thenAcceptAsync(Consumer<? super T> consumer) {
-        return this.thenAccept(consumer);
+        return this.thenAcceptWith(getDefaultExecutor(), consumer);
     }
 
     @Override
     public Pledge<Void> thenAcceptAsync(Consumer<? super T> consumer, Executor executor) {
-        return this.thenAccept(consumer);
+        return this.thenAcceptWith(executor, consumer);
     }
 
-    @Override
-    public Pledge<Void> thenRun(Runnable runnable) {
-
-        Pledge<Void> pledge = new Pledge<>();
-
-        this.then(t -> {
-            runnable.run();
-            pledge.resolve((Void) null);
+    private Pledge<Void> thenAcceptWith(@Nullable Executor executor, Consumer<? super T> consumer) {
+        return this.chain(executor, (t, pledge) -> {
+            consumer.accept(t);
+            pledge.resolveWithResult(null);
         });
+    }
 
-        return pledge;
+    @Override
+    public Pledge<Void> thenRun(Runnable runnable) {
+        return this.thenRunWith(null, runnable);
     }
 
     @Override
     public Pledge<Void> thenRunAsync(Runnable runnable) {
-        return this.thenRun(runnable);
+        return this.thenRunWith(getDefaultExecutor(), runnable);
     }
 
     @Override
     public Pledge<Void> thenRunAsync(Runnable runnable, Executor executor) {
-        return this.thenRun(runnable);
+        return this.thenRunWith(executor, runnable);
     }
 
-    @Override
-    public <U, V> Pledge<V> thenCombine(CompletionStage<? extends U> completionStage, BiFunction<? super T, ? super U, ? extends V> biFunction) {
-
-        Pledge<V> pledge = new Pledge<>();
-
-        this.then(t -> {
-            completionStage.thenAccept(u -> {
-                var result = biFunction.apply(t, u);
-                pledge.resolve(result);
-            });
+    private Pledge<Void> thenRunWith(@Nullable Executor executor, Runnable runnable) {
+        return this.chain(executor, (t, pledge) -> {
+            runnable.run();
+            pledge.resolveWithResult(null);
         });
+    }
 
-        return pledge;
+    @Override
+    public <U, V> Pledge<V> thenCombine(CompletionStage<? extends U> completionStage, BiFunction<? super T, ? super U, ? extends V> biFunction) {
+        return this.combine(completionStage, null, (t, u, pledge) -> pledge.resolveWithResult(biFunction.apply(t, u)));
     }
 
     @Override
     public <U, V> Pledge<V> thenCombineAsync(CompletionStage<? extends U> completionStage, BiFunction<? super T, ? super U, ? extends V> biFunction) {
-        return this.thenCombine(completionStage, biFunction);
+        return this.thenCombineAsync(completionStage, biFunction, getDefaultExecutor());
     }
 
     @Override
     public <U, V> Pledge<V> thenCombineAsync(CompletionStage<? extends U> completionStage, BiFunction<? super T, ? super U, ? extends V> biFunction, Executor executor) {
-        return this.thenCombine(completionStage, biFunction);
+        return this.combine(completionStage, executor, (t, u, pledge) -> pledge.resolveWithResult(biFunction.apply(t, u)));
     }
 
     @Override
     public <U> Pledge<Void> thenAcceptBoth(CompletionStage<? extends U> completionStage, BiConsumer<? super T, ? super U> biConsumer) {
-
-        Pledge<Void> pledge = new Pledge<>();
-
-        this.then(t -> {
-            completionStage.thenAccept(u -> {
-                biConsumer.accept(t, u);
-                pledge.resolve((Void) null);
-            });
-        });
-
-        return pledge;
+        return this.thenAcceptBothWith(completionStage, null, biConsumer);
     }
 
     @Override
     public <U> Pledge<Void> thenAcceptBothAsync(CompletionStage<? extends U> completionStage, BiConsumer<? super T, ? super U> biConsumer) {
-        return this.thenAcceptBoth(completionStage, biConsumer);
+        return this.thenAcceptBothWith(completionStage, getDefaultExecutor(), biConsumer);
     }
 
     @Override
     public <U> Pledge<Void> thenAcceptBothAsync(CompletionStage<? extends U> completionStage, BiConsumer<? super T, ? super U> biConsumer, Executor executor) {
-        return this.thenAcceptBoth(completionStage, biConsumer);
+        return this.thenAcceptBothWith(completionStage, executor, biConsumer);
     }
 
-    @Override
-    public Pledge<Void> runAfterBoth(CompletionStage<?> completionStage, Runnable runnable) {
-
-        Pledge<Void> pledge = new Pledge<>();
-
-        this.then(t -> {
-            completionStage.thenRun(runnable).thenRun(() -> {
-                pledge.resolve((Void) null);
-            });
+    private <U> Pledge<Void> thenAcceptBothWith(CompletionStage<? extends U> completionStage, @Nullable Executor executor, BiConsumer<? super T, ? super U> biConsumer) {
+        return this.combine(completionStage, executor, (t, u, pledge) -> {
+            biConsumer.accept(t, u);
+            pledge.resolveWithResult(null);
         });
+    }
 
-        return pledge;
+    @Override
+    public Pledge<Void> runAfterBoth(CompletionStage<?> completionStage, Runnable runnable) {
+        return this.runAfterBothWith(completionStage, null, runnable);
     }
 
     @Override
     public Pledge<Void> runAfterBothAsync(CompletionStage<?> completionStage, Runnable runnable) {
-        return this.runAfterBoth(completionStage, runnable);
+        return this.runAfterBothWith(completionStage, getDefaultExecutor(), runnable);
     }
 
     @Override
     public Pledge<Void> runAfterBothAsync(CompletionStage<?> completionStage, Runnable runnable, Executor executor) {
-        return this.runAfterBoth(completionStage, runnable);
+        return this.runAfterBothWith(completionStage, executor, runnable);
     }
 
-    @Override
-    public <U> Pledge<U> applyToEither(CompletionStage<? extends T> completionStage, Function<? super T, U> function) {
-
-        Pledge<U> pledge = new Pledge<>();
-
-        this.race(this, completionStage).then(result -> {
-            var applied = function.apply(result);
-            pledge.resolve(applied);
+    private Pledge<Void> runAfterBothWith(CompletionStage<?> completionStage, @Nullable Executor executor, Runnable runnable) {
+        return this.combine(completionStage, executor, (t, u, pledge) -> {
+            runnable.run();
+            pledge.resolveWithResult(null);
         });
+    }
 
-        return pledge;
+    @Override
+    public <U> Pledge<U> applyToEither(CompletionStage<? extends T> completionStage, Function<? super T, U> function) {
+        return this.either(completionStage, null, (t, pledge) -> pledge.resolveWithResult(function.apply(t)));
     }
 
+    /**
+     * Create a pledge that completes with the first outcome of the given stages,
+     * be it a result or an error (like CompletableFuture does)
+     *
+     * @since    0.2.0
+     */
     private <U> Pledge<U> race(CompletionStage<? extends U> stage_one, CompletionStage<? extends U> stage_two) {
 
         Pledge<U> pledge = new Pledge<>();
 
-        stage_one.thenAccept(pledge::resolveWithResult);
-        stage_two.thenAccept(pledge::resolveWithResult);
+        BiConsumer<U, Throwable> listener = (result, error) -> {
+            if (error != null) {
+                pledge.propagate(error);
+            } else {
+                pledge.resolveWithResult(result);
+            }
+        };
+
+        stage_one.whenComplete(listener);
+        stage_two.whenComplete(listener);
 
         return pledge;
     }
 
     @Override
     public <U> Pledge<U> applyToEitherAsync(CompletionStage<? extends T> completionStage, Function<? super T, U> function) {
-        return this.applyToEither(completionStage, function);
+        return this.applyToEitherAsync(completionStage, function, getDefaultExecutor());
     }
 
     @Override
     public <U> Pledge<U> applyToEitherAsync(CompletionStage<? extends T> completionStage, Function<? super T, U> function, Executor executor) {
-        return this.applyToEither(completionStage, function);
+        return this.either(completionStage, executor, (t, pledge) -> pledge.resolveWithResult(function.apply(t)));
     }
 
     @Override
     public Pledge<Void> acceptEither(CompletionStage<? extends T> completionStage, Consumer<? super T> consumer) {
-
-        Pledge<Void> pledge = new Pledge<>();
-
-        this.race(this, completionStage).then(result -> {
-            consumer.accept(result);
-            pledge.resolve((Void) null);
-        });
-
-        return pledge;
+        return this.acceptEitherWith(completionStage, null, consumer);
     }
 
     @Override
     public Pledge<Void> acceptEitherAsync(CompletionStage<? extends T> completionStage, Consumer<? super T> consumer) {
-        return this.acceptEither(completionStage, consumer);
+        return this.acceptEitherWith(completionStage, getDefaultExecutor(), consumer);
     }
 
     @Override
     public Pledge<Void> acceptEitherAsync(CompletionStage<? extends T> completionStage, Consumer<? super T> consumer, Executor executor) {
-        return this.acceptEither(completionStage, consumer);
+        return this.acceptEitherWith(completionStage, executor, consumer);
     }
 
-    @Override
-    public Pledge<Void> runAfterEither(CompletionStage<?> completionStage, Runnable runnable) {
-
-        Pledge<Void> pledge = new Pledge<>();
-
-        this.race(this, completionStage).then(result -> {
-            runnable.run();
-            pledge.resolve((Void) null);
+    private Pledge<Void> acceptEitherWith(CompletionStage<? extends T> completionStage, @Nullable Executor executor, Consumer<? super T> consumer) {
+        return this.either(completionStage, executor, (t, pledge) -> {
+            consumer.accept(t);
+            pledge.resolveWithResult(null);
         });
+    }
 
-        return pledge;
+    @Override
+    public Pledge<Void> runAfterEither(CompletionStage<?> completionStage, Runnable runnable) {
+        return this.runAfterEitherWith(completionStage, null, runnable);
     }
 
     @Override
     public Pledge<Void> runAfterEitherAsync(CompletionStage<?> completionStage, Runnable runnable) {
+        return this.runAfterEitherWith(completionStage, getDefaultExecutor(), runnable);
+    }
 
-        Pledge<Void> pledge = new Pledge<>();
+    @Override
+    public Pledge<Void> runAfterEitherAsync(CompletionStage<?> completionStage, Runnable runnable, Executor executor) {
+        return this.runAfterEitherWith(completionStage, executor, runnable);
+    }
 
-        this.race(this, completionStage).then(result -> {
+    private Pledge<Void> runAfterEitherWith(CompletionStage<?> completionStage, @Nullable Executor executor, Runnable runnable) {
+        return this.race(this, completionStage).chain(executor, (ignored, pledge) -> {
             runnable.run();
-            pledge.resolve((Void) null);
+            pledge.resolveWithResult(null);
         });
-
-        return pledge;
     }
 
     @Override
-    public Pledge<Void> runAfterEitherAsync(CompletionStage<?> completionStage, Runnable runnable, Executor executor) {
-        return this.runAfterEither(completionStage, runnable);
+    public <U> Pledge<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> function) {
+        return this.thenComposeWith(null, function);
     }
 
     @Override
-    public <U> Pledge<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> function) {
+    public <U> Pledge<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> function) {
+        return this.thenComposeWith(getDefaultExecutor(), function);
+    }
 
-        Pledge<U> pledge = new Pledge<>();
+    @Override
+    public <U> Pledge<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> function, Executor executor) {
+        return this.thenComposeWith(executor, function);
+    }
 
-        this.then(result -> {
-            CompletionStage<U> stage = function.apply(result);
-            stage.thenAccept(pledge::resolveWithResult);
+    private <U> Pledge<U> thenComposeWith(@Nullable Executor executor, Function<? super T, ? extends CompletionStage<U>> function) {
+        return this.chain(executor, (t, pledge) -> {
+            CompletionStage<U> stage = function.apply(t);
+            stage.whenComplete((u, error) -> {
+                if (error != null) {
+                    pledge.propagate(error);
+                } else {
+                    pledge.resolveWithResult(u);
+                }
+            });
         });
-
-        return pledge;
     }
 
     @Override
-    public <U> Pledge<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> function) {
-        return this.thenCompose(function);
+    public <U> Pledge<U> handle(BiFunction<? super T, Throwable, ? extends U> biFunction) {
+        return this.handleWith(null, biFunction);
     }
 
     @Override
-    public <U> Pledge<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> function, Executor executor) {
-        return this.thenCompose(function);
+    public <U> Pledge<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> biFunction) {
+        return this.handleWith(getDefaultExecutor(), biFunction);
     }
 
     @Override
-    public <U> Pledge<U> handle(BiFunction<? super T, Throwable, ? extends U> biFunction) {
+    public <U> Pledge<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> biFunction, Executor executor) {
+        return this.handleWith(executor, biFunction);
+    }
+
+    private <U> Pledge<U> handleWith(@Nullable Executor executor, BiFunction<? super T, Throwable, ? extends U> biFunction) {
 
         Pledge<U> pledge = new Pledge<>();
 
         this.done((error, result) -> {
-
-            var applied = biFunction.apply(result, error);
-
-            pledge.resolve(applied);
+            dispatch(executor, pledge, () -> pledge.resolveWithResult(biFunction.apply(result, error)));
         });
 
         return pledge;
     }
 
     @Override
-    public <U> Pledge<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> biFunction) {
-        return this.handle(biFunction);
+    public Pledge<T> whenComplete(BiConsumer<? super T, ? super Throwable> biConsumer) {
+        return this.whenCompleteWith(null, biConsumer);
     }
 
     @Override
-    public <U> Pledge<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> biFunction, Executor executor) {
-        return this.handle(biFunction);
+    public CompletionStage<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> biConsumer) {
+        return this.whenCompleteWith(getDefaultExecutor(), biConsumer);
     }
 
     @Override
-    public Pledge<T> whenComplete(BiConsumer<? super T, ? super Throwable> biConsumer) {
+    public CompletionStage<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> biConsumer, Executor executor) {
+        return this.whenCompleteWith(executor, biConsumer);
+    }
+
+    private Pledge<T> whenCompleteWith(@Nullable Executor executor, BiConsumer<? super T, ? super Throwable> biConsumer) {
 
         Pledge<T> pledge = new Pledge<>();
 
         this.done((error, result) -> {
-            biConsumer.accept(result, error);
+            dispatch(executor, pledge, () -> {
+                biConsumer.accept(result, error);
 
-            if (error != null) {
-                pledge.reject(error);
-                return;
-            }
+                if (error != null) {
+                    pledge.propagate(error);
+                    return;
+                }
 
-            pledge.resolve(result);
+                pledge.resolveWithResult(result);
+            });
         });
 
         return pledge;
     }
 
-    @Override
-    public CompletionStage<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> biConsumer) {
-        return this.whenComplete(biConsumer);
-    }
-
-    @Override
-    public CompletionStage<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> biConsumer, Executor executor) {
-        return this.whenComplete(biConsumer);
-    }
-
     @Override
     public CompletionStage<T> exceptionally(Function<Throwable, ? extends T> function) {
 
@@ -727,7 +883,7 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
 
         this.done((error, result) -> {
             if (error != null) {
-                pledge.resolve(function.apply(error));
+                dispatch(null, pledge, () -> pledge.resolveWithResult(function.apply(error)));
                 return;
             }
 
@@ -754,6 +910,16 @@ public class Pledge<T> implements Future<T>, CompletionStage<T> {
         return future;
     }
 
+    /**
+     * A consumer of 3 values
+     *
+     * @since    0.2.0
+     */
+    @FunctionalInterface
+    private interface TriConsumer<A, B, C> {
+        void accept(A a, B b, C c);
+    }
+
     /**
      * A composer interface
      *
@@ -0,0 +1,161 @@
+package rocks.blackblock.bib.runnable;
+
+import org.jetbrains.annotations.ApiStatus;
+import rocks.blackblock.bib.monitor.GlitchGuru;
+import rocks.blackblock.bib.util.BibFlow;
+
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * A cancellable handle to a task on the shared BibFlow scheduler
+ * (see {@link BibFlow#getScheduler()}).
+ * <p>
+ * Exceptions thrown by the task are registered and swallowed,
+ * so a failing interval task does not stop its next runs.
+ *
+ * @author   Jelle De Loecker <jelle@elevenways.be>
+ * @since    0.2.0
+ */
+@SuppressWarnings("unused")
+public class ScheduledTask implements Runnable {
+
+    // The actual runnable to execute
+    private final Runnable runnable;
+
+    // The interval in nanoseconds (0 for one-shot tasks)
+    private final long period_ns;
+
+    // When the next run is expected to start
+    private long expected_ns;
+
+    // The future of the scheduler
+    private volatile ScheduledFuture<?> future = null;
+
+    // If it has been cancelled
+    private volatile boolean cancelled = false;
+
+    // How many times it has run
+    private volatile long run_count = 0;
+
+    /**
+     * Create the task
+     *
+     * @since    0.2.0
+     */
+    @ApiStatus.Internal
+    public ScheduledTask(Runnable runnable, long delay_ns, long period_ns) {
+        this.runnable = runnable;
+        this.period_ns = period_ns;
+        this.expected_ns = System.nanoTime() + delay_ns;
+    }
+
+    /**
+     * Attach the scheduler's future
+     *
+     * @since    0.2.0
+     */
+    @ApiStatus.Internal
+    public void setFuture(ScheduledFuture<?> future) {
+        this.future = future;
+
+        if (this.cancelled) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Run the task (called by the scheduler)
+     *
+     * @since    0.2.0
+     */
+    @Override
+    public void run() {
+
+        if (this.cancelled) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        BibFlow.registerSchedulerLateness(now - this.expected_ns);
+
+        if (this.period_ns > 0) {
+            this.expected_ns += this.period_ns;
+        }
+
+        this.run_count++;
+
+        try {
+            this.runnable.run();
+        } catch (Throwable t) {
+            GlitchGuru.registerThrowable(t, "Failed to run scheduled task");
+        }
+    }
+
+    /**
+     * Cancel the task.
+     * A run that is currently in progress is not interrupted.
+     *
+     * @since    0.2.0
+     *
+     * @return   True if it was not cancelled before
+     */
+    public boolean cancel() {
+
+        if (this.cancelled) {
+            return false;
+        }
+
+        this.cancelled = true;
+
+        ScheduledFuture<?> future = this.future;
+
+        if (future != null) {
+            future.cancel(false);
+        }
+
+        return true;
+    }
+
+    /**
+     * Has this task been cancelled?
+     *
+     * @since    0.2.0
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Is this a repeating task?
+     *
+     * @since    0.2.0
+     */
+    public boolean isRepeating() {
+        return this.period_ns > 0;
+    }
+
+    /**
+     * Will this task never run again?
+     *
+     * @since    0.2.0
+     */
+    public boolean isDone() {
+
+        if (this.cancelled) {
+            return true;
+        }
+
+        ScheduledFuture<?> future = this.future;
+
+        return future != null && future.isDone();
+    }
+
+    /**
+     * How many times has this task run?
+     *
+     * @since    0.2.0
+     */
+    public long getRunCount() {
+        return this.run_count;
+    }
+}
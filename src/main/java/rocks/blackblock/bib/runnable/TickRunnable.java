@@ -1,24 +1,48 @@
 package rocks.blackblock.bib.runnable;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.server.MinecraftServer;
 import org.jetbrains.annotations.ApiStatus;
 import rocks.blackblock.bib.util.BibServer;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Representing a runnable that should be executed on a certain tick
+ * <p>
+ * Queued runnables are kept in per-tick buckets (intrusive linked lists),
+ * so scheduling & cancelling are O(1) and every tick only touches
+ * the runnables that are actually due.
  *
  * @author   Jelle De Loecker <jelle@elevenways.be>
  * @since    0.1.0
  */
 public class TickRunnable {
 
+    // The default amount of time the due runnables may take per tick
+    private static final long DEFAULT_TICK_BUDGET_NS = 10_000_000L;
+
     // Are there currently any queued runnables?
     private static boolean HAS_QUEUED_RUNNABLES = false;
 
-    // All the currently queued runnables
-    private static final List<TickRunnable> QUEUED_RUNNABLES = new ArrayList<>();
+    // The amount of queued runnables
+    private static int QUEUED_COUNT = 0;
+
+    // The queued runnables per tick
+    private static final Int2ObjectMap<Bucket> BUCKETS = new Int2ObjectOpenHashMap<>();
+
+    // The runnables that are due but did not fit in the previous tick's budget
+    private static final Bucket DUE = new Bucket(Integer.MIN_VALUE);
+
+    // Runnables queued from other threads, waiting to be put in a bucket
+    private static final ConcurrentLinkedQueue<TickRunnable> INCOMING = new ConcurrentLinkedQueue<>();
+
+    // The last tick whose bucket has been moved to the due list
+    private static int LAST_COLLECTED_TICK = Integer.MIN_VALUE;
+
+    // How long the due runnables may take per tick (in nanoseconds)
+    private static long TICK_BUDGET_NS = DEFAULT_TICK_BUDGET_NS;
 
     // The actual runnable to eventually execute
     private Runnable runnable;
@@ -32,6 +56,11 @@ public class TickRunnable {
     // If it has run already
     private boolean has_run = false;
 
+    // The bucket this runnable is currently in (if any)
+    private Bucket bucket = null;
+    private TickRunnable previous = null;
+    private TickRunnable next = null;
+
     /**
      * Check the queued runnables
      *
@@ -41,29 +70,80 @@ public class TickRunnable {
     @ApiStatus.Internal
     public static void checkQueuedRunnables() {
 
+        drainIncoming();
+
         if (!HAS_QUEUED_RUNNABLES) {
             return;
         }
 
         int current_tick = BibServer.getTick();
 
-        List<TickRunnable> to_remove = null;
-        List<TickRunnable> to_check = new ArrayList<>(QUEUED_RUNNABLES);
+        collectDueBuckets(current_tick);
 
-        for (TickRunnable runnable : to_check) {
-            if (runnable.getOnTick() <= current_tick) {
-                if (to_remove == null) {
-                    to_remove = new ArrayList<>();
-                }
+        long deadline = System.nanoTime() + TICK_BUDGET_NS;
+        boolean ran_any = false;
+
+        while (DUE.head != null) {
+
+            // Always run at least one, the rest can spill into the next tick
+            if (ran_any && System.nanoTime() >= deadline) {
+                break;
+            }
 
+            TickRunnable runnable = DUE.head;
+            runnable.unlink();
+            ran_any = true;
+
+            try {
                 runnable.run();
-                to_remove.add(runnable);
+            } catch (Throwable t) {
+                BibServer.registerThrowable(t, "Failed to run TickRunnable");
             }
         }
 
-        if (to_remove != null) {
-            QUEUED_RUNNABLES.removeAll(to_remove);
+        HAS_QUEUED_RUNNABLES = QUEUED_COUNT > 0;
+    }
+
+    /**
+     * Forget all the queued runnables & the last collected tick.
+     * Called when the server stops: an integrated server's next session
+     * starts counting its ticks at 0 again.
+     *
+     * @since    0.2.0
+     */
+    @ApiStatus.Internal
+    public static void reset() {
+
+        for (Bucket bucket : BUCKETS.values()) {
+            bucket.clear();
         }
+
+        BUCKETS.clear();
+        DUE.clear();
+        INCOMING.clear();
+
+        QUEUED_COUNT = 0;
+        HAS_QUEUED_RUNNABLES = false;
+        LAST_COLLECTED_TICK = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Set how long the due runnables may take per tick.
+     * Runnables that don't fit are run on the next tick.
+     *
+     * @since    0.2.0
+     */
+    public static void setTickBudget(long budget_in_ms) {
+        TICK_BUDGET_NS = Math.max(0, budget_in_ms) * 1_000_000L;
+    }
+
+    /**
+     * Get the amount of currently queued runnables
+     *
+     * @since    0.2.0
+     */
+    public static int getQueuedCount() {
+        return QUEUED_COUNT;
     }
 
     /**
@@ -74,15 +154,99 @@ public class TickRunnable {
      */
     public static void queueTickRunnable(TickRunnable runnable) {
 
-        if (runnable == null || runnable.on_tick < 0 || runnable.has_run) {
+        if (runnable == null || runnable.on_tick < 0 || runnable.has_run || runnable.cancelled || runnable.bucket != null) {
             return;
         }
 
-        if (!HAS_QUEUED_RUNNABLES) {
-            HAS_QUEUED_RUNNABLES = true;
+        MinecraftServer server = BibServer.getServer();
+
+        // The buckets are only touched on the server thread
+        if (server != null && !server.isOnThread()) {
+            INCOMING.add(runnable);
+            return;
+        }
+
+        insert(runnable);
+    }
+
+    /**
+     * Put the given runnable in the correct bucket
+     *
+     * @since    0.2.0
+     */
+    private static void insert(TickRunnable runnable) {
+
+        Bucket bucket;
+
+        if (runnable.on_tick <= LAST_COLLECTED_TICK) {
+            // Its tick has already been collected: it's due right away
+            bucket = DUE;
+        } else {
+            bucket = BUCKETS.get(runnable.on_tick);
+
+            if (bucket == null) {
+                bucket = new Bucket(runnable.on_tick);
+                BUCKETS.put(runnable.on_tick, bucket);
+            }
         }
 
-        QUEUED_RUNNABLES.add(runnable);
+        bucket.append(runnable);
+        HAS_QUEUED_RUNNABLES = true;
+    }
+
+    /**
+     * Move the runnables queued from other threads into their buckets
+     *
+     * @since    0.2.0
+     */
+    private static void drainIncoming() {
+
+        TickRunnable runnable;
+
+        while ((runnable = INCOMING.poll()) != null) {
+            if (!runnable.cancelled && !runnable.has_run && runnable.bucket == null) {
+                insert(runnable);
+            }
+        }
+    }
+
+    /**
+     * Move the buckets of all the ticks up to the given one to the due list
+     *
+     * @since    0.2.0
+     */
+    private static void collectDueBuckets(int current_tick) {
+
+        // The tick counter went back (a new server): everything queued is due
+        if (current_tick < LAST_COLLECTED_TICK) {
+            LAST_COLLECTED_TICK = Integer.MIN_VALUE;
+        }
+
+        if (LAST_COLLECTED_TICK == Integer.MIN_VALUE || current_tick - LAST_COLLECTED_TICK > BUCKETS.size()) {
+            // First run, or a big jump: walking the buckets is cheaper than walking the ticks
+            var iterator = BUCKETS.int2ObjectEntrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Bucket bucket = iterator.next().getValue();
+
+                if (bucket.tick <= current_tick) {
+                    DUE.takeAll(bucket);
+                    iterator.remove();
+                }
+            }
+        } else {
+            for (int tick = LAST_COLLECTED_TICK + 1; tick <= current_tick; tick++) {
+                Bucket bucket = BUCKETS.remove(tick);
+
+                if (bucket != null) {
+                    DUE.takeAll(bucket);
+                }
+            }
+        }
+
+        if (current_tick > LAST_COLLECTED_TICK) {
+            LAST_COLLECTED_TICK = current_tick;
+        }
     }
 
     /**
@@ -127,7 +291,8 @@ public class TickRunnable {
     }
 
     /**
-     * Cancel the runnable
+     * Cancel the runnable.
+     * When called on the server thread, it is removed from the queue right away.
      *
      * @author   Jelle De Loecker <jelle@elevenways.be>
      * @since    0.1.0
@@ -142,6 +307,128 @@ public class TickRunnable {
 
         this.cancelled = true;
 
+        if (this.bucket != null) {
+            MinecraftServer server = BibServer.getServer();
+
+            if (server == null || server.isOnThread()) {
+                Bucket bucket = this.bucket;
+                this.unlink();
+
+                if (bucket.head == null && bucket != DUE) {
+                    BUCKETS.remove(bucket.tick);
+                }
+            }
+        }
+
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Remove this runnable from its bucket
+     *
+     * @since    0.2.0
+     */
+    private void unlink() {
+
+        Bucket bucket = this.bucket;
+
+        if (bucket == null) {
+            return;
+        }
+
+        if (this.previous != null) {
+            this.previous.next = this.next;
+        } else {
+            bucket.head = this.next;
+        }
+
+        if (this.next != null) {
+            this.next.previous = this.previous;
+        } else {
+            bucket.tail = this.previous;
+        }
+
+        this.previous = null;
+        this.next = null;
+        this.bucket = null;
+        QUEUED_COUNT--;
+    }
+
+    /**
+     * A linked list of runnables due on the same tick
+     *
+     * @since    0.2.0
+     */
+    private static class Bucket {
+
+        private final int tick;
+        private TickRunnable head = null;
+        private TickRunnable tail = null;
+
+        private Bucket(int tick) {
+            this.tick = tick;
+        }
+
+        /**
+         * Add the given runnable to the end of this bucket
+         */
+        private void append(TickRunnable runnable) {
+            runnable.bucket = this;
+            runnable.previous = this.tail;
+            runnable.next = null;
+
+            if (this.tail != null) {
+                this.tail.next = runnable;
+            } else {
+                this.head = runnable;
+            }
+
+            this.tail = runnable;
+            QUEUED_COUNT++;
+        }
+
+        /**
+         * Detach all the runnables from this bucket
+         */
+        private void clear() {
+
+            TickRunnable runnable = this.head;
+
+            while (runnable != null) {
+                TickRunnable next = runnable.next;
+                runnable.bucket = null;
+                runnable.previous = null;
+                runnable.next = null;
+                runnable = next;
+            }
+
+            this.head = null;
+            this.tail = null;
+        }
+
+        /**
+         * Move all the runnables of the given bucket to the end of this one
+         */
+        private void takeAll(Bucket other) {
+
+            if (other.head == null) {
+                return;
+            }
+
+            for (TickRunnable runnable = other.head; runnable != null; runnable = runnable.next) {
+                runnable.bucket = this;
+            }
+
+            if (this.tail != null) {
+                this.tail.next = other.head;
+                other.head.previous = this.tail;
+            } else {
+                this.head = other.head;
+            }
+
+            this.tail = other.tail;
+            other.head = null;
+            other.tail = null;
+        }
+    }
+}
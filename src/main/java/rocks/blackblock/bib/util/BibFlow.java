@@ -1,18 +1,22 @@
 package rocks.blackblock.bib.util;
 
 import net.minecraft.registry.RegistryKey;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.thread.ThreadExecutor;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+import rocks.blackblock.bib.collection.LongRollingAverage;
 import rocks.blackblock.bib.monitor.GlitchGuru;
 import rocks.blackblock.bib.runnable.Pledge;
+import rocks.blackblock.bib.runnable.ScheduledTask;
 import rocks.blackblock.bib.runnable.TickRunnable;
 
 import java.lang.ref.WeakReference;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -26,8 +30,11 @@ import java.util.function.Supplier;
 @SuppressWarnings("unused")
 public final class BibFlow {
 
-    // The main timer
-    private static Timer FLOW_TIMER = new Timer("BibFlow", true);
+    // The shared scheduler for all timers & intervals (created on first use)
+    private static volatile ScheduledThreadPoolExecutor SCHEDULER = null;
+
+    // How late the scheduled tasks started (in microseconds)
+    private static final LongRollingAverage SCHEDULER_LATENESS = new LongRollingAverage(100);
 
     // The main server thread
     private static final Thread MAIN_SERVER_THREAD = Thread.currentThread();
@@ -35,6 +42,9 @@ public final class BibFlow {
     // Server chunk executors per world
     private static final Map<RegistryKey<World>, ThreadExecutor<Runnable>> WORLD_CHUNK_EXECUTORS = new HashMap<>();
 
+    // The shared pool for background work (created on first use)
+    private static volatile ExecutorService WORKER_POOL = null;
+
     /**
      * Don't let anyone instantiate this class
      *
@@ -78,6 +88,80 @@ public final class BibFlow {
         return executor.submit(runnable);
     }
 
+    /**
+     * Get the shared worker pool for background work.
+     * Its threads are daemon threads, so they never keep the server alive.
+     *
+     * @since    0.2.0
+     */
+    public static ExecutorService getWorkerExecutor() {
+
+        ExecutorService pool = WORKER_POOL;
+
+        if (pool != null) {
+            return pool;
+        }
+
+        synchronized (BibFlow.class) {
+            if (WORKER_POOL == null) {
+                int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+                AtomicInteger counter = new AtomicInteger();
+
+                WORKER_POOL = Executors.newFixedThreadPool(threads, runnable -> {
+                    Thread thread = new Thread(runnable, "Bib-Worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setUncaughtExceptionHandler((t, e) -> GlitchGuru.registerThrowable(e));
+                    return thread;
+                });
+            }
+
+            return WORKER_POOL;
+        }
+    }
+
+    /**
+     * Compute something on the shared worker pool
+     *
+     * @since    0.2.0
+     */
+    public static <T> Pledge<T> onWorkerThread(Supplier<T> supplier) {
+
+        Pledge<T> pledge = new Pledge<>();
+
+        getWorkerExecutor().execute(() -> {
+            T result;
+
+            try {
+                result = supplier.get();
+            } catch (Throwable t) {
+                pledge.reject(t);
+                return;
+            }
+
+            pledge.resolve(result);
+        });
+
+        return pledge;
+    }
+
+    /**
+     * Run the given task on the main server thread.
+     * If we're already on it, it is run right away.
+     *
+     * @since    0.2.0
+     */
+    public static void onServerThread(Runnable runnable) {
+
+        MinecraftServer server = BibServer.getServer();
+
+        if (server == null || server.isOnThread()) {
+            runnable.run();
+            return;
+        }
+
+        server.execute(runnable);
+    }
+
     /**
      * Do something within a certain amount of ticks.
      * This will be executed on the main server thread.
@@ -94,16 +178,141 @@ public final class BibFlow {
     }
 
     /**
-     * Schedule something on the existing timer thread
+     * Get the shared scheduler used for all the timers & intervals.
+     * Its threads are daemon threads, so they never keep the server alive.
+     * Tasks run on the scheduler threads, so they should be short:
+     * hand heavy work off to {@link #getWorkerExecutor()}.
+     *
      * @since    0.2.0
      */
-    public static void setInterval(Runnable runnable, long delay_in_ms) {
-        FLOW_TIMER.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                runnable.run();
+    public static ScheduledExecutorService getScheduler() {
+
+        ScheduledThreadPoolExecutor scheduler = SCHEDULER;
+
+        if (scheduler != null) {
+            return scheduler;
+        }
+
+        synchronized (BibFlow.class) {
+            if (SCHEDULER == null) {
+                AtomicInteger counter = new AtomicInteger();
+
+                scheduler = new ScheduledThreadPoolExecutor(2, runnable -> {
+                    Thread thread = new Thread(runnable, "Bib-Scheduler-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setUncaughtExceptionHandler((t, e) -> GlitchGuru.registerThrowable(e));
+                    return thread;
+                });
+
+                // Don't keep cancelled tasks (and what they reference) in the queue
+                scheduler.setRemoveOnCancelPolicy(true);
+                scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+                SCHEDULER = scheduler;
             }
-        }, delay_in_ms, delay_in_ms);
+
+            return SCHEDULER;
+        }
+    }
+
+    /**
+     * Schedule the given task once on the shared scheduler
+     *
+     * @since    0.2.0
+     */
+    public static ScheduledTask schedule(Runnable runnable, long delay_in_ms) {
+
+        long delay_ns = TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay_in_ms));
+        ScheduledTask task = new ScheduledTask(runnable, delay_ns, 0);
+
+        task.setFuture(getScheduler().schedule(task, delay_ns, TimeUnit.NANOSECONDS));
+
+        return task;
+    }
+
+    /**
+     * Schedule the given task at a fixed rate on the shared scheduler
+     *
+     * @since    0.2.0
+     */
+    public static ScheduledTask scheduleAtFixedRate(Runnable runnable, long delay_in_ms, long interval_in_ms) {
+
+        if (interval_in_ms <= 0) {
+            throw new IllegalArgumentException("The interval has to be positive");
+        }
+
+        long delay_ns = TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay_in_ms));
+        long interval_ns = TimeUnit.MILLISECONDS.toNanos(interval_in_ms);
+        ScheduledTask task = new ScheduledTask(runnable, delay_ns, interval_ns);
+
+        task.setFuture(getScheduler().scheduleAtFixedRate(task, delay_ns, interval_ns, TimeUnit.NANOSECONDS));
+
+        return task;
+    }
+
+    /**
+     * Register how late a scheduled task started
+     *
+     * @since    0.2.0
+     */
+    @ApiStatus.Internal
+    public static void registerSchedulerLateness(long lateness_ns) {
+        synchronized (SCHEDULER_LATENESS) {
+            SCHEDULER_LATENESS.addValue(Math.max(0, lateness_ns) / 1000);
+        }
+    }
+
+    /**
+     * Get the amount of tasks waiting in the shared scheduler
+     *
+     * @since    0.2.0
+     */
+    public static int getSchedulerQueueDepth() {
+
+        ScheduledThreadPoolExecutor scheduler = SCHEDULER;
+
+        if (scheduler == null) {
+            return 0;
+        }
+
+        return scheduler.getQueue().size();
+    }
+
+    /**
+     * Get the average lateness of the recently started scheduled tasks (in ms)
+     *
+     * @since    0.2.0
+     */
+    public static double getSchedulerAverageLateness() {
+        synchronized (SCHEDULER_LATENESS) {
+            return SCHEDULER_LATENESS.getAverage() / 1000.0;
+        }
+    }
+
+    /**
+     * Get the max lateness of the recently started scheduled tasks (in ms)
+     *
+     * @since    0.2.0
+     */
+    public static double getSchedulerMaxLateness() {
+        synchronized (SCHEDULER_LATENESS) {
+
+            if (SCHEDULER_LATENESS.getCount() == 0) {
+                return 0;
+            }
+
+            return SCHEDULER_LATENESS.getMax() / 1000.0;
+        }
+    }
+
+    /**
+     * Do something every X ms on the shared scheduler.
+     * Use {@link #scheduleAtFixedRate(Runnable, long, long)} to get a cancellable handle.
+     *
+     * @since    0.2.0
+     */
+    public static void setInterval(Runnable runnable, long delay_in_ms) {
+        scheduleAtFixedRate(runnable, delay_in_ms, delay_in_ms);
     }
 
     /**
@@ -117,63 +326,101 @@ public final class BibFlow {
 
         TickRunnable instance = new TickRunnable(runnable, 0);
 
-        FLOW_TIMER.schedule(new WrapperTimerTask(instance), delay_in_ms);
+        // Cancelling the TickRunnable makes the scheduled run a no-op
+        schedule(instance::run, delay_in_ms);
 
         return instance;
     }
 
     /**
-     * Run the given runnable on a new timer thread
-     * after the given delay in ms
+     * Run the given runnable on the shared scheduler
+     * after the given delay in ms.
+     * Cancelling the returned future cancels the task.
      *
      * @since    0.2.0
      */
     public static CompletableFuture<Void> onTimerThread(Runnable runnable, long delay_in_ms) {
 
         CompletableFuture<Void> result = new CompletableFuture<>();
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    runnable.run();
-                } catch (Throwable t) {
-                    result.completeExceptionally(t);
-                    timer.cancel();
-                    return;
-                }
-
-                result.complete(null);
-                timer.cancel();
+
+        ScheduledTask task = schedule(() -> {
+
+            if (result.isDone()) {
+                return;
             }
+
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+                return;
+            }
+
+            result.complete(null);
         }, delay_in_ms);
 
+        result.whenComplete((ignored, throwable) -> {
+            if (result.isCancelled()) {
+                task.cancel();
+            }
+        });
+
         return result;
     }
 
     /**
-     * Observe something every X ms while the instance exists
+     * Observe something every X ms while the instance exists.
+     * Use {@link #scheduleWhileReferenced(Runnable, Object, long)} to get a cancellable handle.
+     *
      * @since    0.2.0
      */
     public static void onIntervalWhileReferenced(Runnable runnable, Object object, long interval_in_ms) {
+        scheduleWhileReferenced(runnable, object, interval_in_ms);
+    }
+
+    /**
+     * Observe something every X ms while the instance exists.
+     * The instance is only weakly referenced:
+     * the task cancels itself once it has been garbage collected.
+     * (So the runnable should not reference the instance itself)
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public static ScheduledTask scheduleWhileReferenced(Runnable runnable, Object object, long interval_in_ms) {
+        return scheduleWhileReferenced(object, ignored -> runnable.run(), interval_in_ms);
+    }
+
+    /**
+     * Do something with the given instance every X ms while it exists.
+     * The instance is only weakly referenced:
+     * the task cancels itself once it has been garbage collected.
+     *
+     * @since    0.2.0
+     */
+    @Nullable
+    public static <T> ScheduledTask scheduleWhileReferenced(T object, Consumer<T> consumer, long interval_in_ms) {
 
         if (object == null) {
-            return;
+            return null;
         }
 
-        var timer = new Timer(true);
-        var ref = new WeakReference<>(object);
-
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                if (ref.get() != null) {
-                    runnable.run();
-                } else {
-                    timer.cancel();
-                }
+        WeakReference<T> ref = new WeakReference<>(object);
+        ScheduledTask[] holder = new ScheduledTask[1];
+
+        ScheduledTask task = scheduleAtFixedRate(() -> {
+            T instance = ref.get();
+
+            if (instance != null) {
+                consumer.accept(instance);
+            } else if (holder[0] != null) {
+                holder[0].cancel();
             }
         }, interval_in_ms, interval_in_ms);
+
+        holder[0] = task;
+
+        return task;
     }
 
     /**
@@ -366,26 +613,6 @@ public final class BibFlow {
         }
     }
 
-    /**
-     * Private timer task class
-     *
-     * @author   Jelle De Loecker <jelle@elevenways.be>
-     * @since    0.1.0
-     */
-    private static class WrapperTimerTask extends TimerTask {
-
-        private final TickRunnable runnable;
-
-        public WrapperTimerTask(TickRunnable runnable) {
-            this.runnable = runnable;
-        }
-
-        @Override
-        public void run() {
-            this.runnable.run();
-        }
-    }
-
     /**
      * A small on-the-fly profiler
      */
@@ -1,6 +1,7 @@
 package rocks.blackblock.bib.util;
 
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.HoverEvent;
 import net.minecraft.text.MutableText;
 import net.minecraft.text.Text;
@@ -9,14 +10,13 @@ import net.minecraft.util.math.random.Random;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.ApiStatus;
 import rocks.blackblock.bib.BibMod;
-import rocks.blackblock.bib.collection.RollingAverage;
+import rocks.blackblock.bib.collection.FloatRollingAverage;
+import rocks.blackblock.bib.collection.RollingHistogram;
 import rocks.blackblock.bib.interop.InteropServerCore;
 import rocks.blackblock.bib.monitor.GlitchGuru;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -81,15 +81,32 @@ public class BibPerf {
     // Has the monitor been started?
     private static boolean started = false;
 
-    // The timer that controls the main check task
-    private static Timer task_timer = null;
+    // The value the state machine uses to determine the target state
+    private static StateMetric state_metric = StateMetric.MEAN;
 
     // The global performance info
     private static Info global_info = new Info();
 
+    // The default world info getter:
+    // use the world's own info, fall back to the global info
+    private static final Function<World, Info> DEFAULT_WORLD_INFO_GETTER = world -> {
+
+        if (world == null) {
+            return global_info;
+        }
+
+        Info info = world.bb$getPerformanceInfo();
+
+        if (info == null) {
+            return global_info;
+        }
+
+        return info;
+    };
+
     // The function that will get the perf info for the given world
-    // (Will use the global info by default)
-    private static Function<World, Info> world_info_getter = world -> global_info;
+    // (Will use the world's own info by default)
+    private static Function<World, Info> world_info_getter = DEFAULT_WORLD_INFO_GETTER;
 
     /**
      * Register a performance update listener for the global info
@@ -101,7 +118,8 @@ public class BibPerf {
     }
 
     /**
-     * The actual task that will be run
+     * The actual task that will be run.
+     * This is called on the main server thread once per second.
      *
      * @since    0.3.1
      */
@@ -165,6 +183,62 @@ public class BibPerf {
         BibPerf.ON_HALF_SECOND = BibPerf.ON_EVEN_TICK && ticks % 10 == 0;
         BibPerf.ON_FULL_SECOND = BibPerf.ON_HALF_SECOND && ticks % 20 == 0;
         BibPerf.ON_TENTH_SECOND = BibPerf.ON_FULL_SECOND && ticks % 200 == 0;
+
+        if (started && BibPerf.ON_FULL_SECOND) {
+            performHealthChecks();
+        }
+    }
+
+    /**
+     * A world has finished ticking:
+     * feed the duration into that world's own performance info
+     *
+     * @since    0.2.0
+     */
+    @ApiStatus.Internal
+    public static void registerWorldTick(ServerWorld world, long duration_in_ns) {
+
+        Info info = world.bb$getPerformanceInfo();
+
+        if (info == null) {
+            return;
+        }
+
+        info.recordTick(duration_in_ns);
+    }
+
+    /**
+     * The server has finished a full tick:
+     * record the duration in the global info's histogram
+     *
+     * @since    0.2.0
+     */
+    @ApiStatus.Internal
+    public static void registerServerTick(long duration_in_ns) {
+        global_info.histogram.recordNanos(duration_in_ns);
+    }
+
+    /**
+     * Set the value the state machine should use to determine the target state
+     *
+     * @since    0.2.0
+     */
+    public static void setStateMetric(StateMetric metric) {
+
+        if (metric == null) {
+            metric = StateMetric.MEAN;
+        }
+
+        state_metric = metric;
+    }
+
+    /**
+     * Get the value the state machine uses to determine the target state
+     *
+     * @since    0.2.0
+     */
+    public static StateMetric getStateMetric() {
+        return state_metric;
     }
 
     /**
@@ -269,7 +343,7 @@ public class BibPerf {
     public static void setWorldInfoGetter(Function<World, Info> getter) {
 
         if (getter == null) {
-            world_info_getter = world -> global_info;
+            world_info_getter = DEFAULT_WORLD_INFO_GETTER;
             return;
         }
 
@@ -285,6 +359,15 @@ public class BibPerf {
         return world_info_getter.apply(world);
     }
 
+    /**
+     * Get the global (server-wide) perf info
+     *
+     * @since    0.2.0
+     */
+    public static Info getGlobalInfo() {
+        return global_info;
+    }
+
     /**
      * Ease In sine method
      *
@@ -304,28 +387,27 @@ public class BibPerf {
     }
 
     /**
-     * Start the monitor
+     * Start the monitor.
+     * The health checks are performed on the server thread,
+     * each world's info is fed by its own tick.
      *
      * @since    0.2.0
      */
     @ApiStatus.Internal
     public static void start() {
-
-        if (started) {
-            return;
-        }
-
         started = true;
+    }
 
-        task_timer = new Timer(true);
+    /**
+     * What value the state machine keys off
+     * @since    0.2.0
+     */
+    public enum StateMetric {
+        // The rolling average MSPT (the default)
+        MEAN,
 
-        // Start the monitor
-        task_timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                performHealthChecks();
-            }
-        }, 2500, 2500);
+        // The 95th percentile of the tick durations of the last 10 seconds
+        P95
     }
 
     /**
@@ -483,7 +565,10 @@ public class BibPerf {
         private int load = 0;
 
         // The rolling average calculator for MSPT
-        private RollingAverage<Float> rolling_average = new RollingAverage<>();
+        private final FloatRollingAverage rolling_average = new FloatRollingAverage();
+
+        // The histogram of the individual tick durations
+        private final RollingHistogram histogram = new RollingHistogram();
 
         // The world this info is for
         private final World world;
@@ -512,6 +597,16 @@ public class BibPerf {
             return this.world;
         }
 
+        /**
+         * Record the duration of a single tick.
+         * This feeds both the histogram & the rolling average.
+         * @since    0.2.0
+         */
+        public void recordTick(long duration_in_ns) {
+            this.histogram.recordNanos(duration_in_ns);
+            this.aggregateMspt(duration_in_ns / 1_000_000f);
+        }
+
         /**
          * Aggregate the given MSPT
          * This is called when the MSPT is not averaged.
@@ -543,17 +638,23 @@ public class BibPerf {
             this.mspt = mspt;
             this.load = pct;
 
-            // Determine the target state based on MSPT
+            // Determine the target state based on MSPT (or the p95 if wanted)
+            float state_mspt = mspt;
+
+            if (state_metric == StateMetric.P95 && this.histogram.getCount(RollingHistogram.Window.TEN_SECONDS) > 0) {
+                state_mspt = this.getPercentileMspt(RollingHistogram.Window.TEN_SECONDS, 95);
+            }
+
             State new_target_state;
-            if (mspt >= 52) {
+            if (state_mspt >= 52) {
                 new_target_state = State.CRITICAL;
-            } else if (mspt >= 45) {
+            } else if (state_mspt >= 45) {
                 new_target_state = State.OVERLOADED;
-            } else if (mspt >= 40) {
+            } else if (state_mspt >= 40) {
                 new_target_state = State.VERY_BUSY;
-            } else if (mspt >= 32) {
+            } else if (state_mspt >= 32) {
                 new_target_state = State.BUSY;
-            } else if (mspt >= 15) {
+            } else if (state_mspt >= 15) {
                 new_target_state = State.NORMAL;
             } else {
                 new_target_state = State.IDLE;
@@ -742,6 +843,19 @@ public class BibPerf {
             line.append(Text.literal(this.load + "%").formatted(Formatting.AQUA))
                     .append(" / ");
 
+            // Tick duration percentiles of the last minute
+            MutableText percentiles = Text.literal(String.format(
+                    "%.0f/%.0f/%.0f/%.0f",
+                    this.getP50(),
+                    this.getP95(),
+                    this.getP99(),
+                    this.getMaxMspt()
+            )).formatted(Formatting.GRAY);
+
+            percentiles.setStyle(percentiles.getStyle().withHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, Text.literal("p50 / p95 / p99 / max MSPT of the last minute"))));
+
+            line.append(percentiles).append(" / ");
+
             // Current performance state with direction indicator
             Formatting stateColor = switch (this.current_state) {
                 case CRITICAL, OVERLOADED -> Formatting.RED;
@@ -814,6 +928,54 @@ public class BibPerf {
             return this.mspt;
         }
 
+        /**
+         * Get the tick duration histogram
+         * @since    0.2.0
+         */
+        public RollingHistogram getHistogram() {
+            return this.histogram;
+        }
+
+        /**
+         * Get the given percentile (0 - 100) of the tick durations in the given window, in ms
+         * @since    0.2.0
+         */
+        public float getPercentileMspt(RollingHistogram.Window window, double percentile) {
+            return this.histogram.getPercentile(window, percentile) / 1000f;
+        }
+
+        /**
+         * Get the median tick duration of the last minute
+         * @since    0.2.0
+         */
+        public float getP50() {
+            return this.getPercentileMspt(RollingHistogram.Window.ONE_MINUTE, 50);
+        }
+
+        /**
+         * Get the 95th percentile tick duration of the last minute
+         * @since    0.2.0
+         */
+        public float getP95() {
+            return this.getPercentileMspt(RollingHistogram.Window.ONE_MINUTE, 95);
+        }
+
+        /**
+         * Get the 99th percentile tick duration of the last minute
+         * @since    0.2.0
+         */
+        public float getP99() {
+            return this.getPercentileMspt(RollingHistogram.Window.ONE_MINUTE, 99);
+        }
+
+        /**
+         * Get the longest tick duration of the last minute
+         * @since    0.2.0
+         */
+        public float getMaxMspt() {
+            return this.histogram.getMax(RollingHistogram.Window.ONE_MINUTE) / 1000f;
+        }
+
         /**
          * Get the current load percentage
          * @since    0.2.0
@@ -900,6 +1062,10 @@ public class BibPerf {
                     .add("mspt", this.mspt)
                     .add("tps", this.tps)
                     .add("load", this.load)
+                    .add("p50", this.getP50())
+                    .add("p95", this.getP95())
+                    .add("p99", this.getP99())
+                    .add("max", this.getMaxMspt())
                     .add("recovery_progress", this.getRecoveryProgress());
 
             if (this.world != null) {